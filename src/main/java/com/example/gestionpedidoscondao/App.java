@@ -1,11 +1,18 @@
 package com.example.gestionpedidoscondao;
 
+import com.example.gestionpedidoscondao.controllers.TareasUI;
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.pedido.ConciliadorTotales;
+import com.example.gestionpedidoscondao.informes.RegistroPlantillas;
+import com.example.gestionpedidoscondao.informes.ServicioInformes;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Clase principal de la aplicación que extiende de {@link Application}.
@@ -21,15 +28,22 @@ import java.io.IOException;
  */
 public class App extends Application {
     private static Stage stage; // El escenario principal de la aplicación.
+    private static final ConciliadorTotales conciliador = new ConciliadorTotales(true); // Revisa los totales de los pedidos
 
     /**
      * Inicia la aplicación JavaFX configurando y mostrando la ventana de inicio de sesión.
+     * Lanza en segundo plano la construcción de la SessionFactory para que esté lista
+     * cuando el usuario intente iniciar sesión, programa la conciliación periódica de los totales de pedidos
+     * y precarga las plantillas de informes.
      *
      * @param stage El escenario principal de la aplicación.
      * @throws IOException Si ocurre un error al cargar el archivo FXML.
      */
     @Override
     public void start(Stage stage) throws IOException {
+        HibernateUtil.iniciar();
+        conciliador.iniciar(30, TimeUnit.MINUTES);
+        CompletableFuture.runAsync(RegistroPlantillas::getInstancia);
         App.stage = stage;
         FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource("controllers/ventanaLogin.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 907, 497);
@@ -39,14 +53,27 @@ public class App extends Application {
         stage.show();
     }
 
+    /**
+     * Detiene las tareas en segundo plano y cierra la SessionFactory y el pool de conexiones al terminar la aplicación.
+     */
+    @Override
+    public void stop() {
+        conciliador.detener();
+        ServicioInformes.cerrar();
+        RegistroPlantillas.cerrar();
+        HibernateUtil.cerrar();
+    }
+
     /**
      * Cambia la escena actual del escenario principal a la especificada por el archivo FXML y establece un nuevo título.
+     * Antes cancela los accesos a datos en segundo plano de la escena anterior.
      *
      * @param fxml  El nombre del archivo FXML que define la nueva escena.
      * @param title El título de la nueva escena.
      * @throws IOException Si ocurre un error al cargar el archivo FXML.
      */
     public static void changeScene(String fxml, String title) throws IOException {
+        TareasUI.cancelarTodas();
         FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource("controllers/" + fxml));
         Scene scene = new Scene(fxmlLoader.load(), 907, 497);
         stage.setResizable(false);
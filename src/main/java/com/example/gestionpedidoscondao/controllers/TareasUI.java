@@ -0,0 +1,171 @@
+package com.example.gestionpedidoscondao.controllers;
+
+import com.example.gestionpedidoscondao.domain.DAOAsync;
+import javafx.concurrent.Task;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.control.Alert;
+import lombok.extern.java.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Clase TareasUI.
+ * Ejecuta fuera del hilo de JavaFX los accesos a datos de los controladores y devuelve el resultado a dicho hilo.
+ * Las tareas se ejecutan en el ejecutor de {@link DAOAsync} y comparten su límite de accesos simultáneos,
+ * así que cargas independientes (por ejemplo, el catálogo y el historial de pedidos) avanzan en paralelo
+ * sin superar el tamaño del pool de conexiones.
+ * Mientras una tarea está en marcha, los nodos indicados se deshabilitan y muestran el cursor de espera.
+ * Al cambiar de escena ({@link #cancelarTodas()}) los resultados de las tareas pendientes se descartan:
+ * las de lectura se cancelan e interrumpen, mientras que las de escritura no se cancelan (una tarea cancelada antes
+ * de empezar no llegaría a ejecutarse) y se ejecutan o terminan en segundo plano sin avisar a la escena anterior.
+ * Todos los métodos deben llamarse desde el hilo de JavaFX.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class TareasUI {
+
+    private static final Set<Tarea<?>> activas = ConcurrentHashMap.newKeySet();
+    private static final Map<Node, Integer> ocupados = new HashMap<>(); // Nodo -> tareas que lo mantienen deshabilitado
+
+    private TareasUI() {
+    }
+
+    /**
+     * Ejecuta una consulta en segundo plano.
+     * Si falla, se muestra un mensaje de error genérico.
+     *
+     * @param consulta   Acceso a datos a ejecutar.
+     * @param alTerminar Acción que recibe el resultado, ejecutada en el hilo de JavaFX.
+     * @param ocupar     Nodos que se deshabilitan mientras dura la consulta.
+     * @param <T>        Tipo del resultado.
+     * @return Task Tarea lanzada.
+     */
+    public static <T> Task<T> leer(Callable<T> consulta, Consumer<T> alTerminar, Node... ocupar) {
+        return lanzar(consulta, alTerminar, TareasUI::mostrarError, true, ocupar);
+    }
+
+    /**
+     * Ejecuta una modificación de datos en segundo plano.
+     * Si falla, se muestra un mensaje de error genérico. Si se cambia de escena antes de que termine,
+     * la modificación se completa igualmente, pero no se llama a <code>alTerminar</code> ni se muestra el error.
+     *
+     * @param modificacion Acceso a datos a ejecutar.
+     * @param alTerminar   Acción que recibe el resultado, ejecutada en el hilo de JavaFX.
+     * @param ocupar       Nodos que se deshabilitan mientras dura la modificación.
+     * @param <T>          Tipo del resultado.
+     * @return Task Tarea lanzada.
+     */
+    public static <T> Task<T> escribir(Callable<T> modificacion, Consumer<T> alTerminar, Node... ocupar) {
+        return lanzar(modificacion, alTerminar, TareasUI::mostrarError, false, ocupar);
+    }
+
+    /**
+     * Ejecuta un acceso a datos en segundo plano con un tratamiento de error propio.
+     *
+     * @param trabajo      Acceso a datos a ejecutar.
+     * @param alTerminar   Acción que recibe el resultado, ejecutada en el hilo de JavaFX.
+     * @param alFallar     Acción que recibe el error, ejecutada en el hilo de JavaFX.
+     * @param interrumpible Si es verdadero, la tarea se cancela al cambiar de escena; si no, se ejecuta igualmente y solo se descarta su resultado.
+     * @param ocupar       Nodos que se deshabilitan mientras dura la tarea.
+     * @param <T>          Tipo del resultado.
+     * @return Task Tarea lanzada.
+     */
+    public static <T> Task<T> lanzar(Callable<T> trabajo, Consumer<T> alTerminar, Consumer<Throwable> alFallar,
+                                     boolean interrumpible, Node... ocupar) {
+        Tarea<T> tarea = new Tarea<>(trabajo, interrumpible);
+        ocupar(ocupar);
+        tarea.setOnSucceeded(e -> {
+            liberar(tarea, ocupar);
+            if (!tarea.descartada) {
+                alTerminar.accept(tarea.getValue());
+            }
+        });
+        tarea.setOnFailed(e -> {
+            liberar(tarea, ocupar);
+            if (!tarea.descartada) {
+                alFallar.accept(tarea.getException());
+            } else {
+                log.warning("Error en una tarea de escritura descartada al cambiar de escena: " + tarea.getException());
+                tarea.getException().printStackTrace();
+            }
+        });
+        tarea.setOnCancelled(e -> liberar(tarea, ocupar));
+        activas.add(tarea);
+        DAOAsync.getEjecutor().execute(tarea);
+        return tarea;
+    }
+
+    /**
+     * Descarta todas las tareas pendientes. Se llama al cambiar de escena, cuando sus resultados ya no tienen dónde mostrarse.
+     * Las de lectura se cancelan; las de escritura siguen adelante, pero ya no llaman a sus acciones de resultado ni de error.
+     */
+    public static void cancelarTodas() {
+        for (Tarea<?> tarea : activas) {
+            if (tarea.interrumpible) {
+                tarea.cancel(true);
+            } else {
+                tarea.descartada = true;
+            }
+        }
+        activas.clear();
+    }
+
+    private static void ocupar(Node... nodos) {
+        for (Node nodo : nodos) {
+            if (ocupados.merge(nodo, 1, Integer::sum) == 1) {
+                nodo.setDisable(true);
+                nodo.setCursor(Cursor.WAIT);
+            }
+        }
+    }
+
+    private static void liberar(Tarea<?> tarea, Node... nodos) {
+        activas.remove(tarea);
+        for (Node nodo : nodos) {
+            Integer restantes = ocupados.computeIfPresent(nodo, (n, cuenta) -> cuenta > 1 ? cuenta - 1 : null);
+            if (restantes == null) {
+                nodo.setDisable(false);
+                nodo.setCursor(Cursor.DEFAULT);
+            }
+        }
+    }
+
+    private static void mostrarError(Throwable error) {
+        log.warning("Error en una tarea en segundo plano: " + error);
+        error.printStackTrace();
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Error");
+        alert.setHeaderText(null);
+        alert.setContentText("No se pudo completar la operación. Por favor, verifica la conexión con la base de datos.");
+        alert.showAndWait();
+    }
+
+    /**
+     * Tarea de JavaFX que ejecuta un acceso a datos y recuerda si puede interrumpirse
+     * y si su resultado se ha descartado.
+     */
+    private static class Tarea<T> extends Task<T> {
+        private final Callable<T> trabajo;
+        private final boolean interrumpible;
+        private boolean descartada; // Solo se lee y escribe en el hilo de JavaFX
+
+        Tarea(Callable<T> trabajo, boolean interrumpible) {
+            this.trabajo = trabajo;
+            this.interrumpible = interrumpible;
+        }
+
+        @Override
+        protected T call() throws Exception {
+            return DAOAsync.limitar(trabajo);
+        }
+    }
+}
@@ -2,14 +2,22 @@ package com.example.gestionpedidoscondao.controllers;
 
 import com.example.gestionpedidoscondao.App;
 import com.example.gestionpedidoscondao.Session;
-import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.ReintentoOptimista;
+import com.example.gestionpedidoscondao.domain.UnidadDeTrabajo;
 import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
 import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
 import com.example.gestionpedidoscondao.domain.pedido.Pedido;
 import com.example.gestionpedidoscondao.domain.pedido.PedidoDAO;
 import com.example.gestionpedidoscondao.domain.producto.Producto;
 import com.example.gestionpedidoscondao.domain.producto.ProductoDAO;
+import com.example.gestionpedidoscondao.domain.producto.StockInsuficienteException;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import com.example.gestionpedidoscondao.informes.InstantaneaPedido;
+import com.example.gestionpedidoscondao.informes.ServicioInformes;
+import com.example.gestionpedidoscondao.informes.TrabajoInforme;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
@@ -17,20 +25,14 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
-import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JasperFillManager;
-import net.sf.jasperreports.engine.JasperPrint;
-import net.sf.jasperreports.engine.export.JRPdfExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import org.hibernate.HibernateException;
-import org.hibernate.Transaction;
-import java.sql.Connection;
-import java.util.HashMap;
+import java.util.concurrent.CancellationException;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.time.Instant;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Clase VentanaItemPedido que extiende de Application e implementa Initializable.
@@ -45,13 +47,13 @@ public class VentanaItemPedido extends Application implements Initializable {
 
     // Definiciones de componentes de la interfaz de usuario
     @javafx.fxml.FXML
-    private TableView<ItemPedido> tbItemsPedidos;
+    private TableView<ItemPedidoResumen> tbItemsPedidos;
     @javafx.fxml.FXML
-    private TableColumn<ItemPedido, String> cnomProducto;
+    private TableColumn<ItemPedidoResumen, String> cnomProducto;
     @javafx.fxml.FXML
-    private TableColumn<ItemPedido, Double> cprecioProducto;
+    private TableColumn<ItemPedidoResumen, Double> cprecioProducto;
     @javafx.fxml.FXML
-    private TableColumn<ItemPedido, Integer> cCantidad;
+    private TableColumn<ItemPedidoResumen, Integer> cCantidad;
     @javafx.fxml.FXML
     private Button btnVolver;
     private ItemPedidoDAO itemPedidoDAO = new ItemPedidoDAO();
@@ -65,6 +67,7 @@ public class VentanaItemPedido extends Application implements Initializable {
     private Button btnBorrar;
     private PedidoDAO pedidoDAO;
     private ProductoDAO productoDAO = new ProductoDAO();
+    private List<Producto> productos = new ArrayList<>(); // Catálogo cargado, con el stock leído por última vez
     @javafx.fxml.FXML
     private Button btnAñadir;
     private ItemPedido itemActual = null;
@@ -73,6 +76,8 @@ public class VentanaItemPedido extends Application implements Initializable {
     private Button btnBorrarItem;
     @javafx.fxml.FXML
     private Button btnCrearInforme;
+    private TrabajoInforme trabajoInforme = null; // Informe en curso, para cancelarlo al salir
+    private Instant itemsCargadosEn = null; // Momento en que se leyeron de la base de datos los ítems de la tabla
 
     /**
      * {@inheritDoc}
@@ -92,31 +97,25 @@ public class VentanaItemPedido extends Application implements Initializable {
     /**
      * Carga y muestra los ítems de un pedido en la tabla de la interfaz gráfica.
      * Este método se llama al inicializar la ventana y se encarga de llenar la tabla
-     * con los ítems correspondientes al pedido actual.
+     * con los ítems correspondientes al pedido actual, leídos en segundo plano.
      */
     public void loadItemsPedido() {
-        System.out.println("Cargando items del pedido: " + Session.getPedido());
-
-        if (itemPedidoDAO == null) {
-            System.out.println("Error: itemPedidoDAO no ha sido inicializado");
-            return;
-        }
-
-        List<ItemPedido> items = itemPedidoDAO.findItemsByPedidoCodigo(Session.getPedido().getCodigo());
-
-        cnomProducto.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getProducto().getNombre()));
+        cnomProducto.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getNombreProducto()));
         cprecioProducto.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getPrecioTotal()));
         cCantidad.setCellValueFactory(new PropertyValueFactory<>("cantidad"));
-        tbItemsPedidos.setItems(FXCollections.observableArrayList(items));
+        recargarYRefrescarTablaItems();
     }
 
     /**
-     * Vuelve a la ventana principal de la aplicación.
+     * Vuelve a la ventana principal de la aplicación, cancelando el informe en curso si lo hay.
      *
      * @param actionEvent El evento de acción que desencadena este método.
      */
     @javafx.fxml.FXML
     public void volver(ActionEvent actionEvent) {
+        if (trabajoInforme != null) {
+            trabajoInforme.cancelar();
+        }
         try {
             App.changeScene("ventanaPrincipal.fxml", "Gestor de Pedidos");
         } catch (IOException e) {
@@ -130,6 +129,7 @@ public class VentanaItemPedido extends Application implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         loadItemsPedido();
+        listenerProductoSeleccionado();
         loadNombresProductosIntoComboBox();
         agregarListenerTabla();
     }
@@ -141,7 +141,7 @@ public class VentanaItemPedido extends Application implements Initializable {
     private void agregarListenerTabla() {
         tbItemsPedidos.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
             if (newSelection != null) {
-                ItemPedido itemSeleccionado = tbItemsPedidos.getSelectionModel().getSelectedItem();
+                ItemPedidoResumen itemSeleccionado = tbItemsPedidos.getSelectionModel().getSelectedItem();
                 actualizarInterfazUsuarioConItemSeleccionado(itemSeleccionado);
             }
         });
@@ -152,9 +152,9 @@ public class VentanaItemPedido extends Application implements Initializable {
      *
      * @param itemSeleccionado Ítem de pedido seleccionado en la tabla.
      */
-    private void actualizarInterfazUsuarioConItemSeleccionado(ItemPedido itemSeleccionado) {
+    private void actualizarInterfazUsuarioConItemSeleccionado(ItemPedidoResumen itemSeleccionado) {
 
-        cbItem.getSelectionModel().select(itemSeleccionado.getProducto().getNombre());
+        cbItem.getSelectionModel().select(itemSeleccionado.getNombreProducto());
 
         lbPrecio.setText(String.format("%.2f", itemSeleccionado.getPrecioTotal()));
 
@@ -163,22 +163,31 @@ public class VentanaItemPedido extends Application implements Initializable {
 
     /**
      * Carga los nombres de los productos en el ComboBox de la interfaz de usuario.
+     * Los productos se leen en segundo plano.
      */
     private void loadNombresProductosIntoComboBox() {
-        List<Producto> productos = productoDAO.getAll();
+        TareasUI.leer(productoDAO::getAll, this::mostrarProductos, cbItem, btnAñadir);
+    }
+
+    /**
+     * Rellena el ComboBox de productos con los productos leídos, sustituyendo los de una carga anterior.
+     *
+     * @param productos Productos disponibles.
+     */
+    private void mostrarProductos(List<Producto> productos) {
         List<String> nombreProductos = new ArrayList<>();
         for (Producto producto : productos) {
             nombreProductos.add(producto.getNombre());
         }
-        cbItem.getItems().addAll(nombreProductos);
-        listenerProductoSeleccionado(productos);
+        this.productos = productos;
+        cbItem.getItems().setAll(nombreProductos);
     }
 
     /**
      * Agrega un listener al ComboBox de productos.
-     * Este listener actualiza la interfaz de usuario según el producto seleccionado.
+     * Este listener actualiza la interfaz de usuario según el producto seleccionado, buscándolo en el último catálogo cargado.
      */
-    private void listenerProductoSeleccionado(List<Producto> productos) {
+    private void listenerProductoSeleccionado() {
         cbItem.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             Producto selectedProducto = productos.stream()
                     .filter(producto -> producto.getNombre().equals(newValue))
@@ -219,15 +228,15 @@ public class VentanaItemPedido extends Application implements Initializable {
     }
 
     /**
-     * Recarga y refresca la tabla de ítems de pedidos con la información actualizada.
+     * Recarga y refresca la tabla de ítems de pedidos con la información actualizada, leída en segundo plano.
      */
     private void recargarYRefrescarTablaItems() {
-
         String codigoPedido = Session.getPedido().getCodigo();
-        List<ItemPedido> itemsActualizados = itemPedidoDAO.findItemsByPedidoCodigo(codigoPedido);
-
-        tbItemsPedidos.setItems(FXCollections.observableArrayList(itemsActualizados));
-        tbItemsPedidos.refresh();
+        TareasUI.leer(() -> itemPedidoDAO.findResumenByPedidoCodigo(codigoPedido), itemsActualizados -> {
+            tbItemsPedidos.setItems(FXCollections.observableArrayList(itemsActualizados));
+            itemsCargadosEn = Instant.now();
+            tbItemsPedidos.refresh();
+        }, tbItemsPedidos, btnCrearInforme);
     }
 
     /**
@@ -245,8 +254,10 @@ public class VentanaItemPedido extends Application implements Initializable {
         alert.setContentText("¿Deseas borrar el pedido " + codigoPedido + " del listado?");
         var result = alert.showAndWait();
         if (result.isPresent() && result.get().getButtonData() == ButtonBar.ButtonData.OK_DONE) {
-            pedidoDAO.deleteByCodigo(codigoPedido);
-            volver(null);
+            TareasUI.escribir(() -> {
+                pedidoDAO.deleteByCodigo(codigoPedido);
+                return null;
+            }, sinResultado -> volver(null), btnBorrar, btnVolver);
         }
     }
 
@@ -258,19 +269,22 @@ public class VentanaItemPedido extends Application implements Initializable {
      */
     @javafx.fxml.FXML
     public void borrar(ActionEvent actionEvent) {
-        ItemPedido itemSeleccionado = getSelectedItemPedido();
+        ItemPedidoResumen itemSeleccionado = getSelectedItemPedido();
 
         if (itemSeleccionado != null) {
             // Crear y mostrar el diálogo de confirmación
             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
-            alert.setContentText("¿Deseas borrar el artículo " + itemSeleccionado.getProducto().getNombre() + " del listado?");
+            alert.setContentText("¿Deseas borrar el artículo " + itemSeleccionado.getNombreProducto() + " del listado?");
             var result = alert.showAndWait();
 
             // Comprobar si el usuario confirmó la acción
             if (result.isPresent() && result.get().getButtonData() == ButtonBar.ButtonData.OK_DONE) {
                 // Solo borrar el ítem si el usuario confirma la acción
-                itemPedidoDAO.remove(itemSeleccionado);
-                recargarYRefrescarTablaItems();
+                TareasUI.escribir(() -> itemPedidoDAO.removeById(itemSeleccionado.getId()),
+                        borrado -> {
+                            recargarYRefrescarTablaItems();
+                            loadNombresProductosIntoComboBox();
+                        }, btnBorrarItem);
             }
         } else {
             Alert alert = new Alert(Alert.AlertType.WARNING);
@@ -282,15 +296,17 @@ public class VentanaItemPedido extends Application implements Initializable {
     /**
      * Obtiene el ítem de pedido seleccionado actualmente en la tabla.
      *
-     * @return ItemPedido seleccionado, o null si no hay ninguno seleccionado.
+     * @return ItemPedidoResumen seleccionado, o null si no hay ninguno seleccionado.
      */
-    public ItemPedido getSelectedItemPedido() {
+    public ItemPedidoResumen getSelectedItemPedido() {
         return tbItemsPedidos.getSelectionModel().getSelectedItem();
     }
 
     /**
      * Maneja la acción de añadir un nuevo ítem al pedido.
-     * Verifica la validez de la entrada y actualiza la tabla de ítems del pedido.
+     * Verifica la validez de la entrada y, en segundo plano, guarda el ítem y actualiza la tabla de ítems del pedido.
+     * La búsqueda del producto y del pedido y el guardado del ítem forman una única {@link UnidadDeTrabajo},
+     * que se repite si choca con la modificación simultánea de otro usuario.
      *
      * @param actionEvent Evento que desencadena esta acción.
      */
@@ -305,7 +321,6 @@ public class VentanaItemPedido extends Application implements Initializable {
         }
 
         String codigoPedido = Session.getPedido().getCodigo();
-        pedidoActual = pedidoDAO.findByCodigo(codigoPedido);
 
         String nombreProducto = cbItem.getValue() != null ? cbItem.getValue().toString() : null;
         Integer cantidad = cbCantidad.getValue() != null ? (int) cbCantidad.getValue() : null;
@@ -319,26 +334,60 @@ public class VentanaItemPedido extends Application implements Initializable {
             return;
         }
 
-        Producto productoSeleccionado = productoDAO.findByName(nombreProducto);
-        if (productoSeleccionado == null) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error de Producto");
-            alert.setHeaderText("Producto No Encontrado");
-            alert.setContentText("El producto seleccionado no existe. Por favor, selecciona otro producto.");
-            alert.showAndWait();
-            return;
-        }
+        TareasUI.lanzar(() -> ReintentoOptimista.enUnidadDeTrabajo("añadir ítem", session -> {
+            Producto productoSeleccionado = productoDAO.findByName(nombreProducto);
+            if (productoSeleccionado == null) {
+                return false;
+            }
+            pedidoActual = pedidoDAO.findByCodigo(codigoPedido);
 
-        ItemPedido nuevoItem = new ItemPedido();
-        nuevoItem.setProducto(productoSeleccionado);
-        nuevoItem.setCantidad(cantidad);
-        nuevoItem.setPedido(pedidoActual);
+            ItemPedido nuevoItem = new ItemPedido();
+            nuevoItem.setProducto(productoSeleccionado);
+            nuevoItem.setCantidad(cantidad);
+            nuevoItem.setPedido(pedidoActual);
 
-        itemPedidoDAO.save(nuevoItem);
+            itemPedidoDAO.save(nuevoItem);
+            return true;
+        }), guardado -> {
+            if (guardado) {
+                recargarYRefrescarTablaItems();
+                loadNombresProductosIntoComboBox();
+            } else {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Error de Producto");
+                alert.setHeaderText("Producto No Encontrado");
+                alert.setContentText("El producto seleccionado no existe. Por favor, selecciona otro producto.");
+                alert.showAndWait();
+            }
+        }, this::mostrarErrorAñadir, false, btnAñadir);
+    }
 
-        recargarYRefrescarTablaItems();
+    /**
+     * Informa de que el ítem no se ha podido añadir.
+     * Si el motivo es la falta de stock, recarga los productos para que las cantidades ofrecidas estén al día.
+     *
+     * @param error Error producido al añadir el ítem.
+     */
+    private void mostrarErrorAñadir(Throwable error) {
+        error.printStackTrace();
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Error de Producto");
+        alert.setHeaderText(null);
+        if (error instanceof StockInsuficienteException) {
+            alert.setContentText("No hay stock suficiente del producto seleccionado. Por favor, elige una cantidad menor.");
+            loadNombresProductosIntoComboBox();
+        } else {
+            alert.setContentText("No se pudo añadir el artículo. Por favor, verifica la conexión con la base de datos.");
+        }
+        alert.showAndWait();
     }
 
+    /**
+     * Maneja la acción de crear el informe del pedido actual.
+     * El informe se genera en segundo plano; el botón muestra el avance y se avisa al usuario al terminar.
+     *
+     * @param actionEvent Evento que desencadena esta acción.
+     */
     @javafx.fxml.FXML
     public void crearInforme(ActionEvent actionEvent) {
         String codigoPedido = Session.getPedido().getCodigo();
@@ -350,51 +399,38 @@ public class VentanaItemPedido extends Application implements Initializable {
             alert.showAndWait();
         }
     }
-    private void generarInforme(String codigoPedido) {
-        org.hibernate.Session session = null;
-        Transaction transaction = null;
 
-        try {
-            // Obtiene la SessionFactory y abre una nueva sesión
-            session = HibernateUtil.getSessionFactory().openSession();
-            transaction = session.beginTransaction();
-
-            // Configura los parámetros del informe
-            HashMap<String, Object> Parameter1 = new HashMap<>();
-            Parameter1.put("Parameter1", codigoPedido);
-
-            // Obtiene la conexión de la sesión de Hibernate
-            Connection connection = session.doReturningWork(conn -> conn);
+    /**
+     * Encola la generación del informe de un pedido en {@link ServicioInformes}.
+     * Se le pasan los ítems que ya muestra la tabla para que no tenga que volver a consultarlos.
+     *
+     * @param codigoPedido El código del pedido.
+     */
+    private void generarInforme(String codigoPedido) {
+        String textoBoton = btnCrearInforme.getText();
+        btnCrearInforme.setDisable(true);
 
-            // Genera el informe
-            JasperPrint jasperPrint = JasperFillManager.fillReport("GestorPedidos1.jasper", Parameter1, connection);
+        Usuario usuario = Session.getUser();
+        InstantaneaPedido instantanea = new InstantaneaPedido(codigoPedido, usuario.getId(), usuario.getNombre(),
+                usuario.getEmail(), List.copyOf(tbItemsPedidos.getItems()), itemsCargadosEn);
 
-            // Exporta el informe a PDF
-            JRPdfExporter exporter = new JRPdfExporter();
-            exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
-            String nombreArchivoPDF = "GestorPedido_" + codigoPedido + ".pdf";
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(nombreArchivoPDF));
-            exporter.exportReport();
+        trabajoInforme = ServicioInformes.getInstancia().generar(instantanea, (fase, fraccion) ->
+                Platform.runLater(() -> btnCrearInforme.setText(String.format("%s (%.0f%%)", fase, fraccion * 100))));
 
+        trabajoInforme.getResultado().whenComplete((ficheros, error) -> Platform.runLater(() -> {
+            btnCrearInforme.setText(textoBoton);
+            btnCrearInforme.setDisable(false);
+            if (error instanceof CancellationException) {
+                return;
+            }
             // Notificación al usuario
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Informe Generado");
+            Alert alert = new Alert(error == null ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+            alert.setTitle(error == null ? "Informe Generado" : "Error al generar el informe");
             alert.setHeaderText(null);
-            alert.setContentText("El informe ha sido generado exitosamente: " + nombreArchivoPDF);
+            alert.setContentText(error == null
+                    ? "El informe ha sido generado exitosamente: " + ficheros.values().stream().map(File::getName).collect(Collectors.joining(", "))
+                    : "No se pudo generar el informe del pedido " + codigoPedido + ".");
             alert.showAndWait();
-
-            // Finaliza la transacción
-            transaction.commit();
-        } catch (JRException | HibernateException e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
-            e.printStackTrace();
-            // Mostrar un mensaje de error al usuario
-        } finally {
-            if (session != null && session.isOpen()) {
-                session.close();
-            }
-        }
+        }));
     }
-}
\ No newline at end of file
+}
@@ -2,7 +2,7 @@ package com.example.gestionpedidoscondao.controllers;
 
 import com.example.gestionpedidoscondao.App;
 import com.example.gestionpedidoscondao.Session;
-import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
 import com.example.gestionpedidoscondao.domain.usuario.UsuarioDAO;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
@@ -31,34 +31,48 @@ public class VentanaLogin {
     private Button bntCancel;
     private final UsuarioDAO usuarioDAO = new UsuarioDAO();
 
+    /**
+     * Inicializa la ventana de login.
+     * Mantiene deshabilitado el botón de inicio de sesión hasta que la SessionFactory,
+     * que se construye en segundo plano, esté lista.
+     */
+    @FXML
+    public void initialize() {
+        if (!HibernateUtil.isLista()) {
+            btnSession.setDisable(true);
+            HibernateUtil.iniciar().whenComplete((sf, ex) -> Platform.runLater(() -> btnSession.setDisable(false)));
+        }
+    }
+
     /**
      * Maneja el evento de clic en el botón de inicio de sesión.
-     * Valida las credenciales del usuario y, si son correctas,
+     * Valida las credenciales del usuario en segundo plano y, si son correctas,
      * cambia a la ventana principal de la aplicación.
      * Muestra una alerta si las credenciales son incorrectas.
-     *
-     * @throws Exception Si ocurre un error al cambiar de escena.
      */
     @FXML
-    private void onLoginButtonClick() throws IOException {
+    private void onLoginButtonClick() {
         String nombre = tfUser.getText();
         String password = tfPass.getText();
 
-        UsuarioDAO usuarioDAO = new UsuarioDAO();
-        Usuario user = usuarioDAO.validateUser(nombre, password);
+        TareasUI.leer(() -> usuarioDAO.validateUser(nombre, password), user -> {
+            if (user != null) {
+                Session.setUser(user);
 
-        if (user != null) {
-            Session.setUser(user);
-
-            App.changeScene("ventanaPrincipal.fxml", "Gestor de Pedidos");
-        } else {
-            // Mostrar mensaje de error
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error de Login");
-            alert.setHeaderText(null);
-            alert.setContentText("Usuario o contraseña incorrectos.");
-            alert.showAndWait();
-        }
+                try {
+                    App.changeScene("ventanaPrincipal.fxml", "Gestor de Pedidos");
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            } else {
+                // Mostrar mensaje de error
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Error de Login");
+                alert.setHeaderText(null);
+                alert.setContentText("Usuario o contraseña incorrectos.");
+                alert.showAndWait();
+            }
+        }, btnSession);
     }
 
     /**
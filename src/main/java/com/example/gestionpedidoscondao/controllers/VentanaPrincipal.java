@@ -2,28 +2,30 @@ package com.example.gestionpedidoscondao.controllers;
 
 import com.example.gestionpedidoscondao.App;
 import com.example.gestionpedidoscondao.Session;
-import com.example.gestionpedidoscondao.domain.HibernateUtil;
 import com.example.gestionpedidoscondao.domain.carrito.Carrito;
-import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.pedido.OrderCheckoutService;
 import com.example.gestionpedidoscondao.domain.pedido.Pedido;
 import com.example.gestionpedidoscondao.domain.pedido.PedidoDAO;
+import com.example.gestionpedidoscondao.domain.pedido.PedidoResumen;
 import com.example.gestionpedidoscondao.domain.producto.Producto;
 import com.example.gestionpedidoscondao.domain.producto.ProductoDAO;
+import com.example.gestionpedidoscondao.domain.producto.StockInsuficienteException;
 import com.example.gestionpedidoscondao.domain.usuario.Usuario;
 import javafx.application.Application;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
-import org.hibernate.Transaction;
-import org.hibernate.mapping.Set;
 
 import java.io.IOException;
 import java.net.URL;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Clase controladora de la interfaz de usuario principal de la aplicación.
@@ -36,7 +38,7 @@ import java.util.*;
 public class VentanaPrincipal extends Application implements Initializable {
 
     @javafx.fxml.FXML
-    private TableView tbPedidos;
+    private TableView<PedidoResumen> tbPedidos;
     @javafx.fxml.FXML
     private TableColumn cCodigo;
     @javafx.fxml.FXML
@@ -70,7 +72,12 @@ public class VentanaPrincipal extends Application implements Initializable {
     @javafx.fxml.FXML
     private MenuItem mbClose;
     private ProductoDAO productoDAO = new ProductoDAO();
+    private List<Producto> productos = new ArrayList<>(); // Catálogo cargado, con el stock leído por última vez
     private PedidoDAO pedidoDAO = new PedidoDAO();
+    private OrderCheckoutService checkoutService = new OrderCheckoutService();
+    private static final int TAMAÑO_PAGINA_PEDIDOS = 50; // Pedidos leídos en cada página de la tabla
+    private boolean hayMasPedidos = false;
+    private boolean cargandoPagina = false; // Hay una página de pedidos leyéndose en segundo plano
 
 
     public static void main(String[] args) {
@@ -85,7 +92,8 @@ public class VentanaPrincipal extends Application implements Initializable {
 
     /**
      * Maneja el evento de clic en el botón "Comprar".
-     * Este método procesa los ítems en el carrito de compras y registra un nuevo pedido.
+     * Este método procesa los ítems en el carrito de compras y registra un nuevo pedido
+     * en una única transacción mediante {@link OrderCheckoutService}, en segundo plano.
      *
      * @param event El evento que desencadena esta acción.
      */
@@ -102,49 +110,54 @@ public class VentanaPrincipal extends Application implements Initializable {
             return;
         }
 
-        double totalCompra = calcularTotalCompra(itemsCarrito);
-        String codigoPedido = generateUniqueCode();
-        Date fechaPedido = new Date(System.currentTimeMillis());
         Usuario usuario = Session.getUser();
+        List<Carrito> lineas = new ArrayList<>(itemsCarrito);
+        TareasUI.lanzar(() -> checkoutService.checkout(usuario, lineas), pedido -> {
+            tbCarrito.getItems().clear();
 
-        Pedido pedido = new Pedido();
-        pedido.setCodigo(codigoPedido);
-        pedido.setFecha(fechaPedido);
-        pedido.setUsuario(usuario);
-        pedido.setTotal(totalCompra);
+            actualizarTablaPedidos();
+            loadNombresProductosIntoComboBox();
 
-        try {
-            try(org.hibernate.Session session = HibernateUtil.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-
-                session.save(pedido);
-
-                for (Carrito item : itemsCarrito) {
-                    Producto producto = productoDAO.findByName(item.getNombre()); // Método para buscar Producto por nombre
-                    ItemPedido itemPedido = new ItemPedido();
-                    itemPedido.setPedido(pedido);
-                    itemPedido.setProducto(producto);
-                    itemPedido.setCantidad(item.getCantidad());
-
-                    session.save(itemPedido);
-                }
-
-                tx.commit();
-
-                itemsCarrito.clear();
-                tbCarrito.getItems().clear();
-
-                actualizarTablaPedidos();
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Compra Exitosa");
+            alert.setHeaderText(null);
+            alert.setContentText("Tu pedido ha sido registrado exitosamente.");
+            alert.showAndWait();
+        }, this::mostrarErrorCompra, false, btnAceptar, btnCancelar);
+    }
 
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Compra Exitosa");
-                alert.setHeaderText(null);
-                alert.setContentText("Tu pedido ha sido registrado exitosamente.");
-                alert.showAndWait();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Informa de que la compra no se ha podido registrar.
+     * Si el motivo es la falta de stock, recarga los productos para que las cantidades ofrecidas estén al día.
+     *
+     * @param error Error producido durante la compra.
+     */
+    private void mostrarErrorCompra(Throwable error) {
+        error.printStackTrace();
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Error en la Compra");
+        alert.setHeaderText(null);
+        if (error instanceof StockInsuficienteException sinStock) {
+            alert.setContentText("No hay stock suficiente de " + nombresProductos(sinStock.getProductos())
+                    + ". No se ha registrado el pedido; revisa las cantidades del carrito.");
+            loadNombresProductosIntoComboBox();
+        } else {
+            alert.setContentText("No se pudo completar la compra. Por favor, verifica la conexión con la base de datos.");
         }
+        alert.showAndWait();
+    }
+
+    /**
+     * Devuelve los nombres de los productos indicados, según el catálogo cargado.
+     *
+     * @param ids IDs de los productos.
+     * @return String Nombres separados por comas.
+     */
+    private String nombresProductos(Set<Long> ids) {
+        return productos.stream()
+                .filter(producto -> ids.contains(producto.getId()))
+                .map(Producto::getNombre)
+                .collect(Collectors.joining(", "));
     }
 
     /**
@@ -152,9 +165,56 @@ public class VentanaPrincipal extends Application implements Initializable {
      * Este método se llama para refrescar la vista de pedidos después de realizar una compra o al iniciar la sesión.
      */
     private void actualizarTablaPedidos() {
+        long usuarioId = Session.getUser().getId();
+        TareasUI.leer(() -> pedidoDAO.findPageByUsuarioId(usuarioId, null, null, TAMAÑO_PAGINA_PEDIDOS), pedidosActualizados -> {
+            hayMasPedidos = pedidosActualizados.size() == TAMAÑO_PAGINA_PEDIDOS;
+            tbPedidos.setItems(FXCollections.observableArrayList(pedidosActualizados));
+        }, tbPedidos);
+    }
+
+    /**
+     * Añade a la tabla la siguiente página de pedidos del usuario, si la hay.
+     * Continúa a partir del último pedido mostrado en la tabla; mientras se lee una página no se pide otra.
+     */
+    private void cargarSiguientePaginaPedidos() {
+        ObservableList<PedidoResumen> mostrados = tbPedidos.getItems();
+        if (!hayMasPedidos || cargandoPagina || mostrados.isEmpty()) {
+            return;
+        }
+        cargandoPagina = true;
+        long usuarioId = Session.getUser().getId();
+        PedidoResumen ultimo = mostrados.get(mostrados.size() - 1);
+        TareasUI.lanzar(() -> pedidoDAO.findPageByUsuarioId(usuarioId, ultimo.getFecha(), ultimo.getId(), TAMAÑO_PAGINA_PEDIDOS), pagina -> {
+            cargandoPagina = false;
+            hayMasPedidos = pagina.size() == TAMAÑO_PAGINA_PEDIDOS;
+            mostrados.addAll(pagina);
+        }, error -> {
+            cargandoPagina = false;
+            error.printStackTrace();
+        }, true);
+    }
 
-        List<Pedido> pedidosActualizados = pedidoDAO.findByUsuarioId(Math.toIntExact(Session.getUser().getId()));
-        tbPedidos.setItems(FXCollections.observableArrayList(pedidosActualizados));
+    /**
+     * Enlaza la barra de desplazamiento vertical de la tabla de pedidos para que,
+     * al acercarse al final, se cargue la siguiente página.
+     */
+    private void activarCargaAlDesplazar() {
+        Runnable enlazar = () -> {
+            for (Node nodo : tbPedidos.lookupAll(".scroll-bar")) {
+                if (nodo instanceof ScrollBar barra && barra.getOrientation() == Orientation.VERTICAL) {
+                    barra.valueProperty().addListener((observable, oldValue, newValue) -> {
+                        if (newValue.doubleValue() >= barra.getMax() * 0.9) {
+                            cargarSiguientePaginaPedidos();
+                        }
+                    });
+                }
+            }
+        };
+        if (tbPedidos.getSkin() != null) {
+            enlazar.run();
+        } else {
+            tbPedidos.skinProperty().addListener((observable, oldValue, newValue) -> enlazar.run());
+        }
     }
 
     /**
@@ -219,15 +279,12 @@ public class VentanaPrincipal extends Application implements Initializable {
 
     /**
      * Genera un código único para identificar un pedido.
-     * Este método utiliza la hora actual y un valor aleatorio para asegurar la unicidad.
+     * Delega en {@link OrderCheckoutService#generarCodigo()}.
      *
      * @return Un código de pedido único.
      */
     public String generateUniqueCode() {
-        long timestamp = System.currentTimeMillis();
-        int randomValue = (int) (Math.random() * 1000);
-        String uniqueCode = "PEDIDO_" + timestamp + "_" + randomValue;
-        return uniqueCode;
+        return checkoutService.generarCodigo();
     }
 
     /**
@@ -263,6 +320,8 @@ public class VentanaPrincipal extends Application implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         lbNombreUsuario.setText(Session.getUser().getNombre());
+        listenerProductoSeleccionado();
+        // El catálogo y el historial se leen en dos tareas independientes que avanzan en paralelo
         loadNombresProductosIntoComboBox();
         loadPedidosUsuario();
         chageSceneToItemsPedidos();
@@ -275,8 +334,7 @@ public class VentanaPrincipal extends Application implements Initializable {
     private void chageSceneToItemsPedidos() {
         tbPedidos.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             if (newValue != null) {
-                Pedido pedidoSeleccionado = (Pedido) newValue;
-                Pedido codigoPedido = pedidoSeleccionado;
+                Pedido codigoPedido = newValue.aPedido();
                 Session.setPedido(codigoPedido); // Guardar el código del pedido en la sesión
                 try {
                     App.changeScene("ventanaItemPedido.fxml", "Items del Pedido " + codigoPedido);
@@ -289,25 +347,29 @@ public class VentanaPrincipal extends Application implements Initializable {
 
     /**
      * Carga los pedidos del usuario actual y los muestra en la tabla.
-     * Este método llena la tabla de pedidos con los pedidos realizados por el usuario.
+     * Solo se carga la primera página, en segundo plano; el resto se carga a medida que el usuario se desplaza por la tabla.
      */
     private void loadPedidosUsuario() {
-        List<Pedido> pedidos = pedidoDAO.findByUsuarioId(Math.toIntExact(Session.getUser().getId()));
-
         cCodigo.setCellValueFactory(new PropertyValueFactory<>("codigo"));
         cFecha.setCellValueFactory(new PropertyValueFactory<>("fecha"));
         cTotal.setCellValueFactory(new PropertyValueFactory<>("total"));
 
-        // Asegúrate de que la lista de pedidos no esté vacía
-        if (!pedidos.isEmpty()) {
-            tbPedidos.setItems(FXCollections.observableArrayList(pedidos));
-        } else {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error pedidos");
-            alert.setHeaderText(null);
-            alert.setContentText("Tabla vacia.");
-            alert.showAndWait();
-        }
+        long usuarioId = Session.getUser().getId();
+        TareasUI.leer(() -> pedidoDAO.findPageByUsuarioId(usuarioId, null, null, TAMAÑO_PAGINA_PEDIDOS), pedidos -> {
+            hayMasPedidos = pedidos.size() == TAMAÑO_PAGINA_PEDIDOS;
+
+            // Asegúrate de que la lista de pedidos no esté vacía
+            if (!pedidos.isEmpty()) {
+                tbPedidos.setItems(FXCollections.observableArrayList(pedidos));
+                activarCargaAlDesplazar();
+            } else {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Error pedidos");
+                alert.setHeaderText(null);
+                alert.setContentText("Tabla vacia.");
+                alert.showAndWait();
+            }
+        }, tbPedidos);
     }
 
     /**
@@ -327,10 +389,18 @@ public class VentanaPrincipal extends Application implements Initializable {
     /**
      * Carga los nombres de los productos en el ComboBox de la interfaz de usuario.
      * Este método se utiliza para llenar la lista desplegable con los nombres de los productos disponibles.
+     * Los productos se leen en segundo plano.
      */
     private void loadNombresProductosIntoComboBox() {
-        List<Producto> productos = productoDAO.getAll();
+        TareasUI.leer(productoDAO::getAll, this::mostrarProductos, cbItem, bntAñadir);
+    }
 
+    /**
+     * Rellena el ComboBox de productos con los productos leídos, sustituyendo los de una carga anterior.
+     *
+     * @param productos Productos disponibles.
+     */
+    private void mostrarProductos(List<Producto> productos) {
         if (productos == null || productos.isEmpty()) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("Error de Carga");
@@ -344,18 +414,17 @@ public class VentanaPrincipal extends Application implements Initializable {
         for (Producto producto : productos) {
             nombreProductos.add(producto.getNombre());
         }
-        cbItem.getItems().addAll(nombreProductos);
-        listenerProductoSeleccionado(productos);
+        this.productos = productos;
+        cbItem.getItems().setAll(nombreProductos);
     }
 
 
     /**
      * Agrega un listener al ComboBox de productos.
-     * Este listener actualiza la interfaz de usuario cuando se selecciona un producto diferente.
-     *
-     * @param productos Lista de productos disponibles para selección.
+     * Este listener actualiza la interfaz de usuario cuando se selecciona un producto diferente,
+     * buscándolo en el último catálogo cargado.
      */
-    private void listenerProductoSeleccionado(List<Producto> productos) {
+    private void listenerProductoSeleccionado() {
         cbItem.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             Producto selectedProducto = productos.stream()
                     .filter(producto -> producto.getNombre().equals(newValue))
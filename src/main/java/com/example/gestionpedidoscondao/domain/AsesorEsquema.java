@@ -0,0 +1,229 @@
+package com.example.gestionpedidoscondao.domain;
+
+import jakarta.persistence.Parameter;
+import lombok.extern.java.Log;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.boot.Metadata;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Table;
+import org.hibernate.query.Query;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase AsesorEsquema.
+ * Compara al arrancar la base de datos real con lo que declaran las entidades y avisa en el log de los problemas de rendimiento:
+ * <ul>
+ *     <li>Índices y restricciones únicas declarados en <code>@Table</code> que no existen en la base de datos
+ *     (ningún índice de la tabla empieza por esas columnas); ver db/migracion_005_indices.sql.</li>
+ *     <li>Consultas con nombre (<code>@NamedQuery</code>) cuyo plan de ejecución recorre una tabla o un índice completos.
+ *     Cada consulta se ejecuta una vez con valores de prueba en una transacción de solo lectura que se deshace,
+ *     se captura el SQL que genera Hibernate y se analiza con <code>EXPLAIN</code>.</li>
+ * </ul>
+ * Se lanza en un hilo en segundo plano desde {@link HibernateUtil} y se puede desactivar con la propiedad
+ * del sistema <code>esquema.asesor=false</code>. Nunca modifica el esquema.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class AsesorEsquema {
+
+    /**
+     * Propiedad del sistema que activa o desactiva la revisión al arrancar (activa por defecto).
+     */
+    public static final String PROP_ACTIVO = "esquema.asesor";
+
+    private AsesorEsquema() {
+    }
+
+    /**
+     * Lanza la revisión del esquema en un hilo en segundo plano si está activa.
+     *
+     * @param metadata       Metadatos de arranque de Hibernate, con los índices y consultas declarados.
+     * @param sessionFactory SessionFactory ya construida.
+     */
+    public static void lanzar(Metadata metadata, SessionFactory sessionFactory) {
+        if (!Boolean.parseBoolean(System.getProperty(PROP_ACTIVO, "true"))) {
+            return;
+        }
+        Thread hilo = new Thread(() -> revisar(metadata, sessionFactory), "asesor-esquema");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Revisa los índices declarados y el plan de cada consulta con nombre, y registra cada aviso en el log.
+     *
+     * @param metadata       Metadatos de arranque de Hibernate.
+     * @param sessionFactory SessionFactory con la que consultar la base de datos.
+     * @return List&lt;String&gt; Avisos encontrados; lista vacía si el esquema cubre todas las consultas.
+     */
+    public static List<String> revisar(Metadata metadata, SessionFactory sessionFactory) {
+        long inicio = System.nanoTime();
+        List<String> avisos = new ArrayList<>();
+        try (Session session = sessionFactory.openSession()) {
+            session.doWork(conexion -> avisos.addAll(revisarIndices(metadata, conexion)));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        List<String> consultas = new ArrayList<>();
+        metadata.visitNamedHqlQueryDefinitions(definicion -> consultas.add(definicion.getRegistrationName()));
+        consultas.sort(null);
+        for (String consulta : consultas) {
+            try {
+                avisos.addAll(revisarConsulta(sessionFactory, consulta));
+            } catch (Exception e) {
+                avisos.add("Consulta '" + consulta + "': no se pudo analizar su plan (" + e.getMessage() + ")");
+            }
+        }
+
+        avisos.forEach(log::warning);
+        log.info(String.format("Asesor de esquema: %d consultas analizadas, %d avisos en %d ms",
+                consultas.size(), avisos.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)));
+        return avisos;
+    }
+
+    /**
+     * Comprueba que cada índice o restricción única declarados tienen en la base de datos un índice que empieza por sus columnas.
+     */
+    private static List<String> revisarIndices(Metadata metadata, Connection conexion) throws SQLException {
+        List<String> avisos = new ArrayList<>();
+        DatabaseMetaData meta = conexion.getMetaData();
+        for (PersistentClass entidad : metadata.getEntityBindings()) {
+            Table tabla = entidad.getTable();
+            Map<String, List<String>> declarados = new TreeMap<>();
+            tabla.getIndexes().values().forEach(indice -> declarados.put(indice.getName(), columnas(indice.getColumns())));
+            tabla.getUniqueKeys().values().forEach(unica -> declarados.put(unica.getName(), columnas(unica.getColumns())));
+            if (declarados.isEmpty()) {
+                continue;
+            }
+            Collection<List<String>> existentes = indicesExistentes(meta, conexion.getCatalog(), tabla.getName());
+            declarados.forEach((nombre, columnas) -> {
+                boolean cubierto = existentes.stream()
+                        .anyMatch(existente -> existente.size() >= columnas.size() && existente.subList(0, columnas.size()).equals(columnas));
+                if (!cubierto) {
+                    avisos.add(String.format("Tabla %s: falta el índice %s sobre (%s) que declara la entidad %s",
+                            tabla.getName(), nombre, String.join(", ", columnas), entidad.getEntityName()));
+                }
+            });
+        }
+        return avisos;
+    }
+
+    /**
+     * Lee las columnas, en orden, de cada índice existente de una tabla.
+     */
+    private static Collection<List<String>> indicesExistentes(DatabaseMetaData meta, String catalogo, String tabla) throws SQLException {
+        Map<String, TreeMap<Short, String>> indices = new TreeMap<>();
+        try (ResultSet rs = meta.getIndexInfo(catalogo, null, tabla, false, true)) {
+            while (rs.next()) {
+                String nombre = rs.getString("INDEX_NAME");
+                String columna = rs.getString("COLUMN_NAME");
+                if (nombre != null && columna != null) {
+                    indices.computeIfAbsent(nombre, n -> new TreeMap<>()).put(rs.getShort("ORDINAL_POSITION"), columna.toLowerCase());
+                }
+            }
+        }
+        List<List<String>> existentes = new ArrayList<>();
+        indices.values().forEach(columnas -> existentes.add(new ArrayList<>(columnas.values())));
+        return existentes;
+    }
+
+    private static List<String> columnas(List<Column> columnas) {
+        List<String> nombres = new ArrayList<>();
+        columnas.forEach(columna -> nombres.add(columna.getName().toLowerCase()));
+        return nombres;
+    }
+
+    /**
+     * Ejecuta una consulta con nombre con valores de prueba, captura su SQL y analiza su plan con <code>EXPLAIN</code>.
+     */
+    private static List<String> revisarConsulta(SessionFactory sessionFactory, String consulta) {
+        List<String> sentencias = new ArrayList<>();
+        try (Session session = sessionFactory.withOptions().statementInspector(sql -> {
+            sentencias.add(sql);
+            return sql;
+        }).openSession()) {
+            session.setDefaultReadOnly(true);
+            Transaction tx = session.beginTransaction();
+            try {
+                Query<?> query = session.createNamedQuery(consulta);
+                for (Parameter<?> parametro : query.getParameters()) {
+                    query.setParameter(parametro.getName(), valorDePrueba(parametro.getParameterType()));
+                }
+                query.list();
+                List<String> capturadas = List.copyOf(sentencias);
+                return session.doReturningWork(conexion -> {
+                    List<String> avisos = new ArrayList<>();
+                    for (String sql : capturadas) {
+                        avisos.addAll(explicar(conexion, consulta, sql));
+                    }
+                    return avisos;
+                });
+            } finally {
+                tx.rollback();
+            }
+        }
+    }
+
+    /**
+     * Analiza el plan de una sentencia y avisa de cada tabla que se recorre entera (tipo ALL) o por un índice completo (tipo index).
+     * Los parámetros se enlazan como texto para que MySQL pueda usar los índices tanto en columnas de texto como numéricas.
+     */
+    private static List<String> explicar(Connection conexion, String consulta, String sql) throws SQLException {
+        List<String> avisos = new ArrayList<>();
+        try (PreparedStatement ps = conexion.prepareStatement("EXPLAIN " + sql)) {
+            int parametros = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parametros; i++) {
+                ps.setString(i, "0");
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String tipo = rs.getString("type");
+                    if ("ALL".equalsIgnoreCase(tipo) || "index".equalsIgnoreCase(tipo)) {
+                        avisos.add(String.format("Consulta '%s': recorrido completo (%s) de la tabla %s, unas %d filas; índices posibles: %s",
+                                consulta, tipo, rs.getString("table"), rs.getLong("rows"),
+                                rs.getString("possible_keys") == null ? "ninguno" : rs.getString("possible_keys")));
+                    }
+                }
+            }
+        }
+        return avisos;
+    }
+
+    /**
+     * Devuelve un valor del tipo del parámetro que sirva para ejecutar la consulta.
+     */
+    private static Object valorDePrueba(Class<?> tipo) {
+        if (tipo == null || String.class.equals(tipo)) {
+            return "0";
+        }
+        if (Long.class.equals(tipo) || long.class.equals(tipo)) {
+            return 0L;
+        }
+        if (Integer.class.equals(tipo) || int.class.equals(tipo)) {
+            return 0;
+        }
+        if (Date.class.isAssignableFrom(tipo)) {
+            return new Date(0);
+        }
+        return "0";
+    }
+}
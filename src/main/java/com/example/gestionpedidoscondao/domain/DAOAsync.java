@@ -0,0 +1,120 @@
+package com.example.gestionpedidoscondao.domain;
+
+import com.example.gestionpedidoscondao.domain.pool.EstadisticasPool;
+import com.example.gestionpedidoscondao.domain.pool.PooledConnectionProvider;
+import lombok.extern.java.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase DAOAsync.
+ * Ejecutor compartido de los accesos a datos en segundo plano, con un pool acotado de hilos de plataforma.
+ * El proyecto compila para Java 20 sin <code>--enable-preview</code>, así que no usa hilos virtuales.
+ * Las tareas de la interfaz ({@code TareasUI}) se lanzan en este ejecutor y llaman a los DAO y a sus métodos de búsqueda
+ * a través de {@link #limitar(Callable)}, de modo que cargas independientes avanzan en paralelo.
+ * <p>
+ * Todos los accesos comparten un semáforo con tantos permisos como conexiones tiene el pool,
+ * menos una reserva para los procesos en segundo plano, de modo que nunca hay más accesos simultáneos
+ * a la base de datos de los que el pool puede atender sin hacer esperar. El pool de hilos tiene el mismo tamaño
+ * que el semáforo, de modo que ningún hilo queda bloqueado esperando un permiso.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public final class DAOAsync {
+
+    private static final int RESERVA_CONEXIONES = 2; // Conexiones que se dejan libres para informes y conciliación
+    private static final int PERMISOS_POR_DEFECTO = 4; // Si no se puede consultar el tamaño del pool
+
+    private static final ThreadPoolExecutor ejecutor = crearEjecutor();
+    private static volatile Semaphore limite;
+
+    private DAOAsync() {
+    }
+
+    /**
+     * Ejecuta un acceso a datos en el hilo actual, esperando antes a que haya un permiso libre.
+     * Lo usan las tareas que se ejecutan en {@link #getEjecutor()} para compartir el mismo límite.
+     *
+     * @param acceso Acceso a datos a ejecutar.
+     * @param <R>    Tipo del resultado.
+     * @return R Resultado del acceso.
+     * @throws Exception Si el acceso falla o el hilo se interrumpe mientras espera.
+     */
+    public static <R> R limitar(Callable<R> acceso) throws Exception {
+        Semaphore semaforo = getLimite();
+        semaforo.acquire();
+        try {
+            return acceso.call();
+        } finally {
+            semaforo.release();
+        }
+    }
+
+    /**
+     * Devuelve el ejecutor compartido, un pool de hilos de plataforma con tantos hilos como permisos tiene el semáforo.
+     *
+     * @return ExecutorService Ejecutor de los accesos asíncronos.
+     */
+    public static ExecutorService getEjecutor() {
+        return ejecutor;
+    }
+
+    /**
+     * Devuelve el semáforo de accesos simultáneos, creándolo la primera vez a partir del tamaño del pool,
+     * y ajusta el número de hilos del ejecutor a sus permisos.
+     * Si el pool todavía no se ha creado, espera a que la SessionFactory esté lista.
+     */
+    private static Semaphore getLimite() {
+        Semaphore semaforo = limite;
+        if (semaforo == null) {
+            synchronized (DAOAsync.class) {
+                if (limite == null) {
+                    HibernateUtil.getSessionFactory();
+                    EstadisticasPool pool = PooledConnectionProvider.getEstadisticas();
+                    int permisos = pool != null ? Math.max(1, pool.getTamañoMaximo() - RESERVA_CONEXIONES) : PERMISOS_POR_DEFECTO;
+                    limite = new Semaphore(permisos, true);
+                    ajustarHilos(permisos);
+                    log.info("Accesos simultáneos a la base de datos limitados a " + permisos);
+                }
+                semaforo = limite;
+            }
+        }
+        return semaforo;
+    }
+
+    /**
+     * Crea el pool de hilos de los accesos asíncronos con {@value #PERMISOS_POR_DEFECTO} hilos; se ajusta al número
+     * de permisos en cuanto se conoce el tamaño del pool de conexiones. Los hilos inactivos se cierran al minuto.
+     */
+    private static ThreadPoolExecutor crearEjecutor() {
+        AtomicInteger contador = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(PERMISOS_POR_DEFECTO, PERMISOS_POR_DEFECTO, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread hilo = new Thread(runnable, "dao-async-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static void ajustarHilos(int hilos) {
+        if (hilos > ejecutor.getMaximumPoolSize()) {
+            ejecutor.setMaximumPoolSize(hilos);
+            ejecutor.setCorePoolSize(hilos);
+        } else {
+            ejecutor.setCorePoolSize(hilos);
+            ejecutor.setMaximumPoolSize(hilos);
+        }
+    }
+}
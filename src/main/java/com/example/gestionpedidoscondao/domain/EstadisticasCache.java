@@ -0,0 +1,61 @@
+package com.example.gestionpedidoscondao.domain;
+
+import lombok.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Clase EstadisticasCache.
+ * Instantánea de los aciertos y fallos de una región de entidades de la caché de segundo nivel
+ * y de su región de consultas asociada.
+ * Se obtiene a partir de las estadísticas de Hibernate (<code>hibernate.generate_statistics</code>).
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EstadisticasCache {
+    private final long aciertosEntidades;
+    private final long fallosEntidades;
+    private final long elementosEntidades;
+    private final long aciertosConsultas;
+    private final long fallosConsultas;
+
+    /**
+     * Construye la instantánea de las regiones indicadas.
+     *
+     * @param regionEntidades Nombre de la región de entidades.
+     * @param regionConsultas Nombre de la región de consultas.
+     * @return EstadisticasCache Estadísticas de ambas regiones, todas a cero si la SessionFactory no está disponible.
+     */
+    public static EstadisticasCache de(String regionEntidades, String regionConsultas) {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        if (sf == null) {
+            return new EstadisticasCache(0, 0, 0, 0, 0);
+        }
+        Statistics stats = sf.getStatistics();
+        CacheRegionStatistics entidades = stats.getDomainDataRegionStatistics(regionEntidades);
+        CacheRegionStatistics consultas = stats.getQueryRegionStatistics(regionConsultas);
+        return new EstadisticasCache(
+                entidades != null ? entidades.getHitCount() : 0,
+                entidades != null ? entidades.getMissCount() : 0,
+                entidades != null ? entidades.getElementCountInMemory() : 0,
+                consultas != null ? consultas.getHitCount() : 0,
+                consultas != null ? consultas.getMissCount() : 0);
+    }
+
+    /**
+     * Calcula el porcentaje de aciertos sumando entidades y consultas.
+     *
+     * @return double Porcentaje de aciertos entre 0 y 100.
+     */
+    public double getPorcentajeAciertos() {
+        long aciertos = aciertosEntidades + aciertosConsultas;
+        long total = aciertos + fallosEntidades + fallosConsultas;
+        return total == 0 ? 0.0 : aciertos * 100.0 / total;
+    }
+}
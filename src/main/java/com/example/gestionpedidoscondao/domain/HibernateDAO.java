@@ -0,0 +1,313 @@
+package com.example.gestionpedidoscondao.domain;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Clase HibernateDAO.
+ * Implementación base de {@link DAO} con Hibernate para una entidad de tipo T con identificador Long.
+ * Implementa todas las operaciones CRUD y añade operaciones masivas para importaciones y limpiezas:
+ * {@link #saveAll(Collection)}, {@link #updateAll(Collection)}, {@link #deleteAll(Collection)},
+ * {@link #getAll(Collection)} y {@link #forEach(Consumer)}.
+ * Las operaciones masivas usan una {@link StatelessSession} con lotes JDBC de {@link #TAMAÑO_LOTE} filas,
+ * de modo que no mantienen las entidades en memoria ni se ejecutan fila a fila.
+ * Todos los accesos se unen a la {@link UnidadDeTrabajo} en curso si la hay.
+ * Los errores se registran y se devuelve un valor por defecto, como en el resto de DAO, salvo en {@link #forEach(Consumer)},
+ * que los relanza para que un recorrido fallido no parezca una tabla vacía.
+ *
+ * @param <T> Tipo de la entidad.
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public abstract class HibernateDAO<T> implements DAO<T> {
+
+    /**
+     * Número de filas por lote JDBC y por sentencia en las operaciones masivas.
+     */
+    public static final int TAMAÑO_LOTE = 50;
+
+    protected final Class<T> tipo;
+
+    /**
+     * Crea el DAO para una entidad.
+     *
+     * @param tipo Clase de la entidad.
+     */
+    protected HibernateDAO(Class<T> tipo) {
+        this.tipo = tipo;
+    }
+
+    /**
+     * Obtiene todas las entidades de este tipo.
+     *
+     * @return ArrayList<T> Lista de entidades. Retorna una lista vacía si ocurre un error.
+     */
+    @Override
+    public ArrayList<T> getAll() {
+        ArrayList<T> entidades = new ArrayList<>();
+        try {
+            entidades = UnidadDeTrabajo.leer(session -> new ArrayList<>(session.createQuery("FROM " + getEntidad(), tipo).list()));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return entidades;
+    }
+
+    /**
+     * Obtiene varias entidades por sus IDs, cargándolas en consultas <code>IN</code> de {@link #TAMAÑO_LOTE} IDs.
+     *
+     * @param ids IDs de las entidades.
+     * @return List<T> Entidades encontradas, en el orden de los IDs; los IDs inexistentes se omiten.
+     *         Retorna una lista vacía si ocurre un error.
+     */
+    public List<T> getAll(Collection<Long> ids) {
+        List<T> entidades = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return entidades;
+        }
+        try {
+            entidades = UnidadDeTrabajo.leer(session -> session.byMultipleIds(tipo)
+                    .withBatchSize(TAMAÑO_LOTE)
+                    .multiLoad(new ArrayList<>(ids))
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .toList());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return entidades;
+    }
+
+    /**
+     * Obtiene una entidad por su ID.
+     *
+     * @param id El ID de la entidad.
+     * @return T La entidad, o null si no existe o si ocurre un error.
+     */
+    @Override
+    public T get(Long id) {
+        try {
+            return UnidadDeTrabajo.leer(session -> session.get(tipo, id));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Guarda una entidad nueva.
+     *
+     * @param data La entidad a guardar.
+     * @return T La entidad guardada, o null en caso de error.
+     */
+    @Override
+    public T save(T data) {
+        try {
+            UnidadDeTrabajo.escribir(session -> {
+                session.persist(data);
+                return data;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+        UnidadDeTrabajo.despuesDeConfirmar(this::alConfirmarCambios);
+        return data;
+    }
+
+    /**
+     * Actualiza una entidad existente con el estado del objeto recibido.
+     *
+     * @param data La entidad a actualizar.
+     */
+    @Override
+    public void update(T data) {
+        try {
+            UnidadDeTrabajo.escribir(session -> session.merge(data));
+            UnidadDeTrabajo.despuesDeConfirmar(this::alConfirmarCambios);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Elimina una entidad.
+     *
+     * @param data La entidad a eliminar.
+     */
+    @Override
+    public void delete(T data) {
+        remove(data);
+    }
+
+    /**
+     * Elimina una entidad.
+     *
+     * @param data La entidad a eliminar.
+     * @return boolean Verdadero si la entidad fue eliminada, falso si no existía o si ocurre un error.
+     */
+    @Override
+    public boolean remove(T data) {
+        boolean salida = false;
+        try {
+            salida = UnidadDeTrabajo.escribir(session -> {
+                T gestionada = session.contains(data) ? data : session.get(tipo, getId(data));
+                if (gestionada == null) {
+                    return false;
+                }
+                session.remove(gestionada);
+                return true;
+            });
+            UnidadDeTrabajo.despuesDeConfirmar(this::alConfirmarCambios);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return salida;
+    }
+
+    /**
+     * Inserta muchas entidades nuevas en lotes JDBC, sin guardarlas en el contexto de persistencia.
+     *
+     * @param entidades Entidades a insertar.
+     * @return int Número de entidades insertadas, o 0 si ocurre un error; en ese caso no se inserta ninguna.
+     */
+    public int saveAll(Collection<T> entidades) {
+        return masiva(entidades, (sinEstado, lote) -> lote.forEach(sinEstado::insert));
+    }
+
+    /**
+     * Actualiza muchas entidades existentes en lotes JDBC, sin cargarlas antes.
+     *
+     * @param entidades Entidades a actualizar, con su ID asignado.
+     * @return int Número de entidades actualizadas, o 0 si ocurre un error; en ese caso no se actualiza ninguna.
+     */
+    public int updateAll(Collection<T> entidades) {
+        return masiva(entidades, (sinEstado, lote) -> lote.forEach(sinEstado::update));
+    }
+
+    /**
+     * Elimina muchas entidades por sus IDs con sentencias <code>DELETE ... IN</code> de {@link #TAMAÑO_LOTE} IDs.
+     *
+     * @param ids IDs de las entidades a eliminar.
+     * @return int Número de filas eliminadas, o 0 si ocurre un error; en ese caso no se elimina ninguna.
+     */
+    public int deleteAll(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        int eliminadas = 0;
+        try {
+            List<Long> pendientes = new ArrayList<>(ids);
+            eliminadas = UnidadDeTrabajo.sinEstado(sinEstado -> {
+                int total = 0;
+                for (int i = 0; i < pendientes.size(); i += TAMAÑO_LOTE) {
+                    total += borrarLote(sinEstado, pendientes.subList(i, Math.min(i + TAMAÑO_LOTE, pendientes.size())));
+                }
+                return total;
+            });
+            UnidadDeTrabajo.despuesDeConfirmar(this::alConfirmarCambios);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return eliminadas;
+    }
+
+    /**
+     * Recorre todas las entidades de este tipo sin cargarlas a la vez en memoria.
+     * Usa siempre una sesión sin estado propia y lee las filas con un cursor de solo avance y el tamaño de lectura
+     * de {@link HibernateUtil#getTamañoLecturaStreaming()}; con MySQL las filas llegan en streaming y, mientras dura
+     * el recorrido, la conexión no admite otras consultas, así que el consumidor no debe provocar ninguna
+     * (por ejemplo, al navegar asociaciones de la entidad).
+     *
+     * @param consumidor Acción a aplicar a cada entidad.
+     * @return long Número de entidades recorridas.
+     * @throws RuntimeException Si falla la consulta o el recorrido; no se informa como una tabla vacía.
+     */
+    public long forEach(Consumer<? super T> consumidor) {
+        long leidas = 0;
+        try (StatelessSession sinEstado = HibernateUtil.getSessionFactory().openStatelessSession();
+             ScrollableResults<T> filas = sinEstado.createQuery("FROM " + getEntidad() + " e ORDER BY e.id", tipo)
+                     .setFetchSize(HibernateUtil.getTamañoLecturaStreaming())
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (filas.next()) {
+                consumidor.accept(filas.get());
+                leidas++;
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw e;
+        }
+        return leidas;
+    }
+
+    /**
+     * Elimina un lote de entidades por sus IDs. Las subclases lo sobrescriben cuando antes hay que borrar filas dependientes.
+     *
+     * @param sinEstado Sesión sin estado con la transacción en curso.
+     * @param ids       IDs del lote, como mucho {@link #TAMAÑO_LOTE}.
+     * @return int Número de filas eliminadas.
+     */
+    protected int borrarLote(StatelessSession sinEstado, List<Long> ids) {
+        return sinEstado.createMutationQuery("DELETE FROM " + getEntidad() + " e WHERE e.id IN (:ids)")
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Acción a ejecutar cuando se confirman cambios hechos a través de este DAO, por ejemplo invalidar una caché.
+     * Por defecto no hace nada.
+     */
+    protected void alConfirmarCambios() {
+    }
+
+    /**
+     * Devuelve el nombre de la entidad para las consultas HQL.
+     *
+     * @return String Nombre de la entidad.
+     */
+    protected String getEntidad() {
+        return tipo.getSimpleName();
+    }
+
+    private Long getId(T data) {
+        return (Long) HibernateUtil.getSessionFactory().getPersistenceUnitUtil().getIdentifier(data);
+    }
+
+    private int masiva(Collection<T> entidades, OperacionLote<T> operacion) {
+        if (entidades == null || entidades.isEmpty()) {
+            return 0;
+        }
+        int procesadas = 0;
+        try {
+            List<T> pendientes = new ArrayList<>(entidades);
+            procesadas = UnidadDeTrabajo.sinEstado(sinEstado -> {
+                sinEstado.setJdbcBatchSize(TAMAÑO_LOTE);
+                for (int i = 0; i < pendientes.size(); i += TAMAÑO_LOTE) {
+                    operacion.aplicar(sinEstado, pendientes.subList(i, Math.min(i + TAMAÑO_LOTE, pendientes.size())));
+                }
+                return pendientes.size();
+            });
+            UnidadDeTrabajo.despuesDeConfirmar(this::alConfirmarCambios);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return procesadas;
+    }
+
+    /**
+     * Operación que se aplica a cada lote de una operación masiva.
+     */
+    @FunctionalInterface
+    private interface OperacionLote<T> {
+        void aplicar(StatelessSession sinEstado, List<T> lote);
+    }
+}
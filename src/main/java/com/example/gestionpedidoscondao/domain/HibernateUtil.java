@@ -2,13 +2,29 @@ package com.example.gestionpedidoscondao.domain;
 
 import lombok.extern.java.Log;
 import org.hibernate.SessionFactory;
-import org.hibernate.cfg.Configuration;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+
+import java.sql.Connection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Clase HibernateUtil.
  * Utilizada para configurar y proporcionar una instancia de SessionFactory de Hibernate.
- * Incluye un bloque estático para inicializar la SessionFactory al cargar la clase.
- * Utiliza anotaciones para registrar eventos importantes en el proceso de configuración.
+ * La SessionFactory se construye en segundo plano la primera vez que se llama a {@link #iniciar()}
+ * (normalmente desde {@code App.start}), de modo que el hilo de JavaFX no se bloquea mientras
+ * Hibernate lee la configuración y los metadatos.
+ * Registra en el log la duración de cada fase del arranque y, una vez lista, lanza la revisión
+ * de índices y planes de consulta de {@link AsesorEsquema}.
+ * El fichero de configuración es <code>hibernate.cfg.xml</code> salvo que se indique otro con la propiedad
+ * del sistema <code>hibernate.configuracion</code>, por ejemplo para las pruebas contra una base de datos en memoria.
+ * Los recorridos en streaming leen su tamaño de lectura de la configuración con {@link #getTamañoLecturaStreaming()},
+ * ya que el valor que activa el streaming en MySQL no es válido en otros conectores.
  *
  * @author Author Name
  * @version 1.0
@@ -18,34 +34,142 @@ import org.hibernate.cfg.Configuration;
 public class HibernateUtil {
 
     /**
-     * Instancia única de SessionFactory.
-     * Inicializada durante el proceso de carga de la clase.
+     * Propiedad del sistema con el recurso de configuración de Hibernate (<code>hibernate.cfg.xml</code> por defecto).
      */
-    private static SessionFactory sf = null;
+    public static final String PROP_CONFIGURACION = "hibernate.configuracion";
 
     /**
-     * Bloque estático para inicializar la instancia de SessionFactory.
-     * Configura la SessionFactory a partir de un objeto de configuración de Hibernate.
-     * Registra en el log el éxito o los errores durante la inicialización.
+     * Propiedad de la configuración de Hibernate con el tamaño de lectura (<code>fetchSize</code>) de los recorridos en streaming.
+     * El conector de MySQL solo entrega las filas de una en una con <code>Integer.MIN_VALUE</code>, que
+     * <code>hibernate.cfg.xml</code> fija para MySQL; otros conectores, como H2, rechazan un valor negativo
+     * y usan el valor por defecto.
      */
-    static{
-        try {
-            Configuration cfg = new Configuration();
-            cfg.configure();
-            sf = cfg.buildSessionFactory();
-            log.info("SessionFactory creada con exito!");
-        } catch(Exception ex) {
-            log.severe("Error al crear SessionFactory: " + ex.getMessage());
-            ex.printStackTrace(); // Esto imprimirá la traza completa de la excepción
+    public static final String PROP_TAMAÑO_LECTURA_STREAMING = "hibernate.gestionpedidos.streaming_fetch_size";
+
+    private static final int TAMAÑO_LECTURA_STREAMING_POR_DEFECTO = 100;
+
+    /**
+     * Futuro con la instancia única de SessionFactory.
+     * Se crea la primera vez que se solicita el arranque.
+     */
+    private static volatile CompletableFuture<SessionFactory> sf = null;
+
+    /**
+     * Lanza la construcción de la SessionFactory en un hilo en segundo plano si todavía no se ha lanzado.
+     * Las llamadas posteriores devuelven el mismo futuro.
+     *
+     * @return CompletableFuture&lt;SessionFactory&gt; Futuro que se completa cuando la SessionFactory está lista.
+     */
+    public static synchronized CompletableFuture<SessionFactory> iniciar() {
+        if (sf == null) {
+            sf = CompletableFuture.supplyAsync(HibernateUtil::construirSessionFactory, runnable -> {
+                Thread hilo = new Thread(runnable, "hibernate-bootstrap");
+                hilo.setDaemon(true);
+                hilo.start();
+            });
         }
+        return sf;
+    }
+
+    /**
+     * Indica si la SessionFactory ya se ha construido con éxito.
+     *
+     * @return boolean Verdadero si la SessionFactory está disponible sin esperar.
+     */
+    public static boolean isLista() {
+        CompletableFuture<SessionFactory> futuro = sf;
+        return futuro != null && futuro.isDone() && !futuro.isCompletedExceptionally();
     }
 
     /**
      * Devuelve la instancia de SessionFactory.
+     * Si el arranque en segundo plano todavía no ha terminado, espera a que termine;
+     * si no se había lanzado, lo lanza.
      *
-     * @return SessionFactory La instancia única de SessionFactory.
+     * @return SessionFactory La instancia única de SessionFactory, o null si no pudo crearse.
      */
     public static SessionFactory getSessionFactory(){
-        return sf;
+        try {
+            return iniciar().join();
+        } catch (CompletionException ex) {
+            log.severe("SessionFactory no disponible: " + ex.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Devuelve el tamaño de lectura de los recorridos en streaming configurado en {@value #PROP_TAMAÑO_LECTURA_STREAMING}.
+     *
+     * @return int Tamaño de lectura; 100 si no está configurado o no es válido.
+     */
+    public static int getTamañoLecturaStreaming() {
+        SessionFactory sessionFactory = getSessionFactory();
+        Object valor = sessionFactory != null ? sessionFactory.getProperties().get(PROP_TAMAÑO_LECTURA_STREAMING) : null;
+        if (valor == null) {
+            return TAMAÑO_LECTURA_STREAMING_POR_DEFECTO;
+        }
+        try {
+            return Integer.parseInt(valor.toString().trim());
+        } catch (NumberFormatException e) {
+            log.warning("Tamaño de lectura no válido en " + PROP_TAMAÑO_LECTURA_STREAMING + ": " + valor);
+            return TAMAÑO_LECTURA_STREAMING_POR_DEFECTO;
+        }
+    }
+
+    /**
+     * Cierra la SessionFactory (y con ella el pool de conexiones) si llegó a crearse.
+     */
+    public static synchronized void cerrar() {
+        if (sf != null && isLista()) {
+            sf.join().close();
+        }
+    }
+
+    /**
+     * Construye la SessionFactory a partir del recurso de configuración indicado en {@value #PROP_CONFIGURACION}.
+     * Mide por separado la lectura de la configuración, la construcción de los metadatos,
+     * la creación de la SessionFactory y la obtención de la primera conexión.
+     *
+     * @return SessionFactory La SessionFactory construida.
+     */
+    private static SessionFactory construirSessionFactory() {
+        long inicio = System.nanoTime();
+        StandardServiceRegistry registry = null;
+        try {
+            long fase = System.nanoTime();
+            registry = new StandardServiceRegistryBuilder()
+                    .configure(System.getProperty(PROP_CONFIGURACION, "hibernate.cfg.xml"))
+                    .build();
+            log.info("Arranque Hibernate - configuración leída en " + msDesde(fase) + " ms");
+
+            fase = System.nanoTime();
+            Metadata metadata = new MetadataSources(registry).buildMetadata();
+            log.info("Arranque Hibernate - metadatos construidos en " + msDesde(fase) + " ms");
+
+            fase = System.nanoTime();
+            SessionFactory sessionFactory = metadata.buildSessionFactory();
+            log.info("Arranque Hibernate - SessionFactory creada en " + msDesde(fase) + " ms");
+
+            fase = System.nanoTime();
+            ConnectionProvider provider = registry.getService(ConnectionProvider.class);
+            Connection conexion = provider.getConnection();
+            provider.closeConnection(conexion);
+            log.info("Arranque Hibernate - primera conexión obtenida en " + msDesde(fase) + " ms");
+
+            log.info("SessionFactory creada con exito en " + msDesde(inicio) + " ms");
+            AsesorEsquema.lanzar(metadata, sessionFactory);
+            return sessionFactory;
+        } catch(Exception ex) {
+            log.severe("Error al crear SessionFactory: " + ex.getMessage());
+            ex.printStackTrace(); // Esto imprimirá la traza completa de la excepción
+            if (registry != null) {
+                StandardServiceRegistryBuilder.destroy(registry);
+            }
+            throw new CompletionException(ex);
+        }
+    }
+
+    private static long msDesde(long inicioNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos);
     }
-}
\ No newline at end of file
+}
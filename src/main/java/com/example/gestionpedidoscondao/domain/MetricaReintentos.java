@@ -0,0 +1,32 @@
+package com.example.gestionpedidoscondao.domain;
+
+import lombok.*;
+
+/**
+ * Clase MetricaReintentos.
+ * Instantánea de las ejecuciones de una operación con {@link ReintentoOptimista} desde el arranque:
+ * ejecuciones, conflictos optimistas detectados, reintentos hechos y ejecuciones que agotaron los intentos.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MetricaReintentos {
+    private final String operacion;
+    private final long ejecuciones;
+    private final long conflictos;
+    private final long reintentos;
+    private final long agotadas;
+
+    /**
+     * Calcula la tasa de conflictos de la operación.
+     *
+     * @return double Conflictos por ejecución; puede superar 1 si una ejecución tiene varios conflictos.
+     */
+    public double getTasaConflictos() {
+        return ejecuciones == 0 ? 0.0 : (double) conflictos / ejecuciones;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.gestionpedidoscondao.domain;
+
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.java.Log;
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+import org.hibernate.dialect.lock.OptimisticEntityLockException;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Clase ReintentoOptimista.
+ * Repite una operación cuando falla por un conflicto de bloqueo optimista (<code>@Version</code>),
+ * es decir, cuando otro usuario ha modificado el mismo pedido o producto entre la lectura y la escritura.
+ * Entre intentos espera un tiempo aleatorio entre cero y un máximo que se duplica en cada intento
+ * (retroceso exponencial con fluctuación completa), para que los usuarios en conflicto no vuelvan a coincidir.
+ * El número de intentos y las esperas se configuran con las propiedades del sistema
+ * <code>reintentos.intentos</code> (5 por defecto), <code>reintentos.esperaBaseMs</code> (20 por defecto)
+ * y <code>reintentos.esperaMaximaMs</code> (500 por defecto).
+ * Cada operación acumula métricas de conflictos consultables con {@link #getMetricas()}.
+ * Dentro de una {@link UnidadDeTrabajo} no se reintenta: la transacción ya está marcada para deshacerse
+ * y el reintento corresponde a quien ejecuta la unidad completa.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class ReintentoOptimista {
+
+    private static final int INTENTOS = Integer.getInteger("reintentos.intentos", 5);
+    private static final long ESPERA_BASE_MS = Long.getLong("reintentos.esperaBaseMs", 20);
+    private static final long ESPERA_MAXIMA_MS = Long.getLong("reintentos.esperaMaximaMs", 500);
+
+    private static final Map<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    private ReintentoOptimista() {
+    }
+
+    /**
+     * Ejecuta una operación reintentándola si falla por un conflicto optimista.
+     * La operación debe poder repetirse desde el principio: cada intento tiene que leer de nuevo los datos.
+     *
+     * @param nombre    Nombre de la operación, para el log y las métricas.
+     * @param operacion Operación a ejecutar.
+     * @param <R>       Tipo del resultado.
+     * @return R Resultado del primer intento que termina sin conflicto.
+     * @throws RuntimeException El error de la operación si no es un conflicto optimista,
+     *                          o el último conflicto si se agotan los intentos.
+     */
+    public static <R> R ejecutar(String nombre, Supplier<R> operacion) {
+        if (UnidadDeTrabajo.isActiva()) {
+            return operacion.get();
+        }
+        Contadores c = contadores.computeIfAbsent(nombre, n -> new Contadores());
+        c.ejecuciones.increment();
+        for (int intento = 1; ; intento++) {
+            try {
+                return operacion.get();
+            } catch (RuntimeException e) {
+                if (!isConflicto(e)) {
+                    throw e;
+                }
+                c.conflictos.increment();
+                if (intento >= INTENTOS) {
+                    c.agotadas.increment();
+                    log.warning("Operación '" + nombre + "': conflicto optimista tras " + intento + " intentos; se abandona");
+                    throw e;
+                }
+                c.reintentos.increment();
+                long espera = ThreadLocalRandom.current().nextLong(Math.min(ESPERA_MAXIMA_MS, ESPERA_BASE_MS << Math.min(intento - 1, 20)) + 1);
+                log.fine("Operación '" + nombre + "': conflicto optimista en el intento " + intento + ", nuevo intento en " + espera + " ms");
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una {@link UnidadDeTrabajo} completa, repitiéndola en una sesión nueva si falla por un conflicto optimista.
+     *
+     * @param nombre  Nombre de la operación.
+     * @param trabajo Operación a ejecutar con la sesión de la unidad.
+     * @param <R>     Tipo del resultado.
+     * @return R Resultado de la operación.
+     */
+    public static <R> R enUnidadDeTrabajo(String nombre, Function<Session, R> trabajo) {
+        return ejecutar(nombre, () -> UnidadDeTrabajo.ejecutar(nombre, trabajo));
+    }
+
+    /**
+     * Devuelve las métricas acumuladas de cada operación.
+     *
+     * @return Map&lt;String, MetricaReintentos&gt; Métricas por nombre de operación, ordenadas por nombre.
+     */
+    public static Map<String, MetricaReintentos> getMetricas() {
+        Map<String, MetricaReintentos> metricas = new TreeMap<>();
+        contadores.forEach((nombre, c) -> metricas.put(nombre, new MetricaReintentos(nombre,
+                c.ejecuciones.sum(), c.conflictos.sum(), c.reintentos.sum(), c.agotadas.sum())));
+        return metricas;
+    }
+
+    /**
+     * Indica si un error, o alguna de sus causas, es un conflicto de bloqueo optimista.
+     *
+     * @param error Error a comprobar.
+     * @return boolean Verdadero si es un conflicto optimista.
+     */
+    public static boolean isConflicto(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException
+                    || t instanceof OptimisticEntityLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Contadores {
+        private final LongAdder ejecuciones = new LongAdder();
+        private final LongAdder conflictos = new LongAdder();
+        private final LongAdder reintentos = new LongAdder();
+        private final LongAdder agotadas = new LongAdder();
+    }
+}
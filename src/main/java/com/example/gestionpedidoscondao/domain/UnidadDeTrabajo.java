@@ -0,0 +1,217 @@
+package com.example.gestionpedidoscondao.domain;
+
+import lombok.extern.java.Log;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Clase UnidadDeTrabajo.
+ * Agrupa en una sola sesión y transacción de Hibernate todos los accesos a datos de una operación de la aplicación
+ * (por ejemplo, añadir un ítem a un pedido: buscar el pedido, buscar el producto y guardar el ítem).
+ * La unidad se asocia al hilo que la ejecuta; los DAO acceden a la base de datos mediante {@link #leer(Function)}
+ * y {@link #escribir(Function)}, que se unen a la unidad en curso si la hay; si no, una lectura abre una sesión propia
+ * solo para esa llamada y una escritura se ejecuta como una unidad de trabajo propia.
+ * Al terminar, cada unidad registra en el log (nivel FINE) cuántas operaciones de DAO ha agrupado, cuántas sentencias SQL ha
+ * ejecutado y cuánto ha durado; fuera de una unidad, cada una de esas operaciones habría usado su propia sesión y conexión.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class UnidadDeTrabajo {
+
+    private static final ThreadLocal<UnidadDeTrabajo> actual = new ThreadLocal<>();
+
+    private final String nombre;
+    private final Session session;
+    private final ContadorSentencias sentencias;
+    private final List<Runnable> trasConfirmar = new ArrayList<>();
+    private int operaciones;
+    private RuntimeException soloDeshacer; // Primer error de un acceso a datos; si no es null, la unidad se deshace
+
+    private UnidadDeTrabajo(String nombre, Session session, ContadorSentencias sentencias) {
+        this.nombre = nombre;
+        this.session = session;
+        this.sentencias = sentencias;
+    }
+
+    /**
+     * Ejecuta una operación como unidad de trabajo: abre una sesión, inicia una transacción, ejecuta la operación
+     * y confirma la transacción. Si ya hay una unidad en curso en este hilo, la operación se une a ella.
+     * Si la operación, o cualquier acceso a datos dentro de ella, falla, la transacción se deshace.
+     *
+     * @param nombre  Nombre de la operación, para el log.
+     * @param trabajo Operación a ejecutar con la sesión de la unidad.
+     * @param <R>     Tipo del resultado.
+     * @return R Resultado de la operación.
+     * @throws IllegalStateException Si algún acceso a datos falló dentro de la unidad y se ha deshecho la transacción;
+     *                               la causa es el primer error producido.
+     */
+    public static <R> R ejecutar(String nombre, Function<Session, R> trabajo) {
+        UnidadDeTrabajo enCurso = actual.get();
+        if (enCurso != null) {
+            return enCurso.unir(trabajo);
+        }
+
+        long inicio = System.nanoTime();
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        ContadorSentencias sentencias = new ContadorSentencias(sessionFactory.getSessionFactoryOptions().getStatementInspector());
+        try (Session session = sessionFactory.withOptions().statementInspector(sentencias).openSession()) {
+            UnidadDeTrabajo unidad = new UnidadDeTrabajo(nombre, session, sentencias);
+            actual.set(unidad);
+            Transaction tx = session.beginTransaction();
+            R resultado;
+            try {
+                resultado = trabajo.apply(session);
+                if (unidad.soloDeshacer != null) {
+                    throw new IllegalStateException("Unidad de trabajo '" + nombre + "' deshecha por un error en un acceso a datos",
+                            unidad.soloDeshacer);
+                }
+                tx.commit();
+            } catch (RuntimeException e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                throw e;
+            } finally {
+                actual.remove();
+                log.fine(String.format("Unidad de trabajo '%s': %d operaciones de DAO en 1 sesión, %d sentencias, %d ms",
+                        nombre, unidad.operaciones, sentencias.total, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)));
+            }
+            unidad.trasConfirmar.forEach(UnidadDeTrabajo::ejecutarSinFallar);
+            return resultado;
+        }
+    }
+
+    /**
+     * Ejecuta una consulta. Dentro de una unidad de trabajo usa su sesión; fuera, abre una sesión solo para la consulta.
+     *
+     * @param consulta Consulta a ejecutar con la sesión.
+     * @param <R>      Tipo del resultado.
+     * @return R Resultado de la consulta.
+     */
+    public static <R> R leer(Function<Session, R> consulta) {
+        UnidadDeTrabajo enCurso = actual.get();
+        if (enCurso != null) {
+            return enCurso.unir(consulta);
+        }
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return consulta.apply(session);
+        }
+    }
+
+    /**
+     * Ejecuta una modificación. Dentro de una unidad de trabajo usa su sesión y su transacción, que se confirmará
+     * al final de la unidad; fuera, la ejecuta como una unidad de trabajo propia, de modo que las acciones
+     * programadas con {@link #despuesDeConfirmar(Runnable)} se ejecutan después de confirmarla.
+     *
+     * @param modificacion Modificación a ejecutar con la sesión.
+     * @param <R>          Tipo del resultado.
+     * @return R Resultado de la modificación.
+     */
+    public static <R> R escribir(Function<Session, R> modificacion) {
+        return ejecutar("escritura", modificacion);
+    }
+
+    /**
+     * Ejecuta una operación masiva con una {@link StatelessSession}, sin contexto de persistencia ni caché de primer nivel.
+     * Vuelca antes la sesión de la unidad de trabajo y usa su conexión, de modo que la operación forma parte de la misma
+     * transacción; las entidades ya cargadas en la unidad no reflejan sus cambios. Los lotes JDBC pendientes de la sesión
+     * sin estado se ejecutan antes de cerrarla, ya que no es ella quien confirma la transacción.
+     * Fuera de una unidad, la operación se ejecuta como una unidad de trabajo propia y, como en {@link #escribir(Function)},
+     * las acciones programadas con {@link #despuesDeConfirmar(Runnable)} esperan a que se confirme.
+     *
+     * @param operacion Operación a ejecutar con la sesión sin estado.
+     * @param <R>       Tipo del resultado.
+     * @return R Resultado de la operación.
+     */
+    public static <R> R sinEstado(Function<StatelessSession, R> operacion) {
+        return ejecutar("operación sin estado", session -> {
+            session.flush();
+            return session.doReturningWork(conexion -> {
+                try (StatelessSession sinEstado = session.getSessionFactory().withStatelessOptions()
+                        .connection(conexion).openStatelessSession()) {
+                    R resultado = operacion.apply(sinEstado);
+                    ((SharedSessionContractImplementor) sinEstado).getJdbcCoordinator().executeBatch();
+                    return resultado;
+                }
+            });
+        });
+    }
+
+    /**
+     * Programa una acción para cuando los cambios estén confirmados: al final de la unidad de trabajo en curso,
+     * o inmediatamente si no hay ninguna. Las modificaciones de {@link #escribir(Function)} y {@link #sinEstado(Function)}
+     * siempre se ejecutan en una unidad, así que las acciones que programan esperan a la confirmación.
+     * Si la unidad se deshace, la acción no se ejecuta.
+     *
+     * @param accion Acción a ejecutar, por ejemplo avisar de un cambio o invalidar una caché.
+     */
+    public static void despuesDeConfirmar(Runnable accion) {
+        UnidadDeTrabajo enCurso = actual.get();
+        if (enCurso != null) {
+            enCurso.trasConfirmar.add(accion);
+        } else {
+            ejecutarSinFallar(accion);
+        }
+    }
+
+    /**
+     * Indica si el hilo actual está dentro de una unidad de trabajo.
+     *
+     * @return boolean Verdadero si hay una unidad en curso.
+     */
+    public static boolean isActiva() {
+        return actual.get() != null;
+    }
+
+    private <R> R unir(Function<Session, R> trabajo) {
+        operaciones++;
+        try {
+            return trabajo.apply(session);
+        } catch (RuntimeException e) {
+            if (soloDeshacer == null) {
+                soloDeshacer = e;
+            }
+            throw e;
+        }
+    }
+
+    private static void ejecutarSinFallar(Runnable accion) {
+        try {
+            accion.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Cuenta las sentencias SQL que prepara la sesión de una unidad.
+     * Si la SessionFactory tiene configurado su propio inspector (<code>hibernate.session_factory.statement_inspector</code>),
+     * le pasa cada sentencia, ya que el inspector de la sesión sustituye al de la SessionFactory.
+     */
+    private static class ContadorSentencias implements StatementInspector {
+        private final StatementInspector configurado;
+        private int total;
+
+        private ContadorSentencias(StatementInspector configurado) {
+            this.configurado = configurado;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            total++;
+            return configurado != null ? configurado.inspect(sql) : sql;
+        }
+    }
+}
@@ -10,6 +10,8 @@ import lombok.*;
  * Representa un ítem de un pedido en la base de datos.
  * Esta clase está mapeada a la tabla "ItemsPedidos" en la base de datos.
  * Incluye información sobre el pedido, el producto asociado, y la cantidad del producto.
+ * El producto se carga de forma perezosa; el grafo "orderDetail" lo carga junto al ítem.
+ * El índice sobre "codPedido" sirve a la búsqueda de los ítems de un pedido, que se declara como consulta con nombre.
  *
  * @author Author Name
  * @version 1.0
@@ -17,26 +19,38 @@ import lombok.*;
  */
 @Data
 @Entity
-@Table(name = "ItemsPedidos")
+@Table(name = "ItemsPedidos", indexes = @Index(name = "idx_items_pedidos_pedido", columnList = "codPedido"))
+@NamedEntityGraph(name = "orderDetail", attributeNodes = @NamedAttributeNode("producto"))
+@NamedQuery(name = "ItemPedido.findByPedidoCodigo",
+        query = "SELECT ip FROM ItemPedido ip JOIN ip.pedido p WHERE p.codigo = :codPedido")
+@NamedQuery(name = "ItemPedido.findResumenByPedidoCodigo",
+        query = "SELECT new com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen(ip.id, prod.nombre, prod.precio, ip.cantidad) " +
+                "FROM ItemPedido ip JOIN ip.pedido p JOIN ip.producto prod WHERE p.codigo = :codPedido ORDER BY ip.id")
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Setter
 public class ItemPedido {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "items_pedidos_id")
+    @TableGenerator(name = "items_pedidos_id", table = "secuencias_id", pkColumnName = "entidad",
+            valueColumnName = "siguiente_valor", pkColumnValue = "ItemsPedidos", initialValue = 1, allocationSize = 100)
     @Column(name = "id_items")
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "codPedido", referencedColumnName = "código")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Pedido pedido;
 
     @Column(name = "cantidad")
     private int cantidad;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto", referencedColumnName = "id_productos")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Producto producto;
 
     @Transient
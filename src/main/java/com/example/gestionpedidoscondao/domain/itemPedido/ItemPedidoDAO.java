@@ -1,22 +1,31 @@
 package com.example.gestionpedidoscondao.domain.itemPedido;
 
 import com.example.gestionpedidoscondao.domain.DAO;
-import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.UnidadDeTrabajo;
+import com.example.gestionpedidoscondao.domain.pedido.ArchivoPedidos;
+import com.example.gestionpedidoscondao.domain.pedido.CambiosPedido;
 import com.example.gestionpedidoscondao.domain.pedido.Pedido;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.producto.ReservaStock;
+import com.example.gestionpedidoscondao.domain.producto.StockInsuficienteException;
 import jakarta.persistence.EntityManager;
 import org.hibernate.Hibernate;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
 import org.hibernate.cache.spi.support.AbstractReadWriteAccess;
+import org.hibernate.jpa.SpecHints;
 import org.hibernate.query.Query;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Clase ItemPedidoDAO
  * Implementa la interfaz DAO para la gestión de objetos de tipo ItemPedido en la base de datos.
  * Permite realizar operaciones como buscar, guardar, actualizar y eliminar items de pedidos.
+ * No extiende {@link com.example.gestionpedidoscondao.domain.HibernateDAO}: todas las escrituras de ítems ajustan
+ * el stock del producto y el total del pedido, por lo que no se ofrecen operaciones masivas genéricas.
  *
  * @author José Miguel Ruiz Guevara
  * @version 1.0
@@ -26,7 +35,8 @@ public class ItemPedidoDAO implements DAO<ItemPedido> {
 
     /**
      * Busca y devuelve una lista de ItemPedido asociados con un código de Pedido específico.
-     * Utiliza una consulta HQL para obtener los datos de la base de datos.
+     * Utiliza la consulta con nombre "ItemPedido.findByPedidoCodigo" con el grafo "orderDetail", que carga el producto de cada ítem en la misma consulta.
+     * Si el pedido no tiene ítems en la tabla de uso diario los busca en el archivo ({@link ArchivoPedidos}).
      * Maneja excepciones internamente y devuelve una lista vacía en caso de error.
      *
      * @param codPedido El código del Pedido para el cual buscar los items.
@@ -35,11 +45,37 @@ public class ItemPedidoDAO implements DAO<ItemPedido> {
      */
     public List<ItemPedido> findItemsByPedidoCodigo(String codPedido) {
         List<ItemPedido> items = new ArrayList<>();
-        try (org.hibernate.Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<ItemPedido> query = session.createQuery(
-                    "SELECT ip FROM ItemPedido ip JOIN ip.pedido p JOIN ip.producto prod WHERE p.codigo = :codPedido", ItemPedido.class);
-            query.setParameter("codPedido", codPedido);
-            items = query.getResultList();
+        try {
+            items = UnidadDeTrabajo.leer(session -> {
+                Query<ItemPedido> query = session.createNamedQuery("ItemPedido.findByPedidoCodigo", ItemPedido.class);
+                query.setParameter("codPedido", codPedido);
+                query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("orderDetail"));
+                List<ItemPedido> encontrados = query.getResultList();
+                return encontrados.isEmpty() ? ArchivoPedidos.buscarItems(session, codPedido) : encontrados;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return items;
+    }
+
+    /**
+     * Busca los ítems de un pedido como proyección {@link ItemPedidoResumen},
+     * con solo las columnas que muestra la tabla de ítems.
+     * Si el pedido no tiene ítems en la tabla de uso diario los busca en el archivo ({@link ArchivoPedidos}).
+     *
+     * @param codPedido El código del Pedido para el cual buscar los items.
+     * @return List<ItemPedidoResumen> Lista de ítems del pedido. Retorna una lista vacía si no hay resultados o si ocurre un error.
+     */
+    public List<ItemPedidoResumen> findResumenByPedidoCodigo(String codPedido) {
+        List<ItemPedidoResumen> items = new ArrayList<>();
+        try {
+            items = UnidadDeTrabajo.leer(session -> {
+                List<ItemPedidoResumen> encontrados = session.createNamedQuery("ItemPedido.findResumenByPedidoCodigo", ItemPedidoResumen.class)
+                        .setParameter("codPedido", codPedido)
+                        .getResultList();
+                return encontrados.isEmpty() ? ArchivoPedidos.buscarResumen(session, codPedido) : encontrados;
+            });
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -47,93 +83,172 @@ public class ItemPedidoDAO implements DAO<ItemPedido> {
     }
 
     /**
-     * Método no implementado para obtener todos los ItemPedido.
+     * Obtiene todos los ItemPedido de la tabla de uso diario, con el producto de cada ítem cargado mediante el grafo "orderDetail".
      *
-     * @return ArrayList<ItemPedido> Retorna null ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @return ArrayList<ItemPedido> Lista de ítems. Retorna una lista vacía si ocurre un error.
      */
     @Override
-    public ArrayList<ItemPedido> getAll() {return null;}
+    public ArrayList<ItemPedido> getAll() {
+        ArrayList<ItemPedido> items = new ArrayList<>();
+        try {
+            items = UnidadDeTrabajo.leer(session -> new ArrayList<>(session.createQuery("FROM ItemPedido ip ORDER BY ip.id", ItemPedido.class)
+                    .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("orderDetail"))
+                    .getResultList()));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return items;
+    }
 
     /**
-     * Método no implementado para obtener un ItemPedido por su ID.
+     * Obtiene un ItemPedido por su ID, con su producto cargado mediante el grafo "orderDetail".
      *
      * @param id El ID único del ItemPedido a obtener.
-     * @return ItemPedido Retorna null ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @return ItemPedido El ítem, o null si no existe o si ocurre un error.
      */
     @Override
-    public ItemPedido get(Long id) {return null;}
+    public ItemPedido get(Long id) {
+        try {
+            return UnidadDeTrabajo.leer(session -> session.find(ItemPedido.class, id,
+                    Map.<String, Object>of(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("orderDetail"))));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 
     /**
      * Guarda un objeto ItemPedido en la base de datos.
-     * Si el ItemPedido está asociado a un Pedido, actualiza el total de dicho Pedido.
-     * Maneja transacciones y cierra la sesión al finalizar.
+     * Antes de guardarlo reserva la cantidad del ítem en el stock del producto mediante {@link ReservaStock}.
+     * Si el ItemPedido está asociado a un Pedido, suma el importe del ítem al total de dicho Pedido
+     * dentro de la misma transacción, sin recalcular el resto de ítems.
+     * Se une a la {@link UnidadDeTrabajo} en curso o, si no la hay, usa una transacción propia.
+     * Tras confirmar la transacción avisa del cambio del pedido mediante {@link CambiosPedido}.
      * Lanza excepciones en caso de errores en el proceso de guardado.
      *
      * @param data El objeto ItemPedido a ser guardado.
      * @return ItemPedido El objeto ItemPedido guardado.
-     * @throws Exception Si ocurre algún error durante el proceso de guardado.
+     * @throws StockInsuficienteException Si el producto no tiene stock suficiente.
+     * @throws IllegalStateException Si el pedido del ítem está archivado.
+     * @throws RuntimeException Si ocurre algún otro error durante el proceso de guardado.
      */
     @Override
     public ItemPedido save(ItemPedido data) {
-        Transaction transaction = null;
-        Session session = null;
+        if (data.getPedido() != null && data.getPedido().isArchivado()) {
+            throw new IllegalStateException("El pedido " + data.getPedido().getCodigo() + " está archivado y no admite cambios");
+        }
         try {
-            session = HibernateUtil.getSessionFactory().openSession();
-            transaction = session.beginTransaction();
-
-            session.persist(data);
-
-            Pedido pedido = data.getPedido();
-            if (pedido != null) {
-                // Consulta para obtener el total actualizado
-                Query<Double> query = session.createQuery(
-                        "SELECT SUM(ip.cantidad * prod.precio) FROM ItemPedido ip " +
-                                "JOIN ip.producto prod WHERE ip.pedido.id = :pedidoId", Double.class);
-                query.setParameter("pedidoId", pedido.getId());
-                Double nuevoTotal = query.getSingleResult();
-
-                // Actualizar el total del Pedido
-                pedido.setTotal(nuevoTotal != null ? nuevoTotal : 0.0);
-                session.update(pedido);
-            }
-
-            transaction.commit();
+            UnidadDeTrabajo.escribir(session -> {
+                if (data.getProducto() != null) {
+                    ReservaStock.reservar(session, Map.of(data.getProducto().getId(), data.getCantidad()));
+                }
+                session.persist(data);
+
+                Pedido pedido = data.getPedido();
+                if (pedido != null) {
+                    // Suma solo el importe del nuevo ítem al total del pedido
+                    double delta = data.getPrecioTotal();
+                    actualizarTotal(session, pedido.getId(), delta);
+                    if (session.contains(pedido)) {
+                        // Gestionado en la unidad de trabajo: se relee para no emitir un segundo UPDATE al hacer flush
+                        session.refresh(pedido);
+                    } else {
+                        pedido.setTotal(pedido.getTotal() + delta);
+                    }
+                    UnidadDeTrabajo.despuesDeConfirmar(() -> CambiosPedido.notificar(pedido.getCodigo()));
+                }
+                return data;
+            });
             return data;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
+        } catch (RuntimeException e) {
             e.printStackTrace();
             throw e;
-        } finally {
-            if (session != null && session.isOpen()) {
-                session.close();
-            }
         }
     }
 
     /**
-     * Método no implementado para actualizar un ItemPedido.
+     * Actualiza la cantidad y el producto de un ItemPedido existente.
+     * Ajusta el stock solo por la diferencia con lo guardado: reserva mediante {@link ReservaStock} las unidades que se añaden
+     * y devuelve las que se quitan, también si cambia el producto. Suma al total del Pedido la diferencia de importe
+     * del ítem con una única sentencia, como {@link #save(ItemPedido)}.
+     * Se une a la {@link UnidadDeTrabajo} en curso o, si no la hay, usa una transacción propia.
+     * Tras confirmar la transacción avisa del cambio del pedido mediante {@link CambiosPedido}.
      *
-     * @param itemPedido El objeto ItemPedido a actualizar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @param itemPedido El objeto ItemPedido a actualizar, con su ID asignado.
+     * @throws IllegalArgumentException   Si el ítem no existe, la cantidad no es positiva o se intenta mover a otro pedido.
+     * @throws StockInsuficienteException Si el producto no tiene stock suficiente para la nueva cantidad.
+     * @throws IllegalStateException      Si el pedido del ítem está archivado.
+     * @throws RuntimeException           Si ocurre algún otro error; en ese caso no se modifica nada.
      */
     @Override
-    public void update(ItemPedido itemPedido) {}
+    public void update(ItemPedido itemPedido) {
+        if (itemPedido.getPedido() != null && itemPedido.getPedido().isArchivado()) {
+            throw new IllegalStateException("El pedido " + itemPedido.getPedido().getCodigo() + " está archivado y no admite cambios");
+        }
+        if (itemPedido.getCantidad() <= 0) {
+            throw new IllegalArgumentException("Cantidad no válida para el ítem " + itemPedido.getId() + ": " + itemPedido.getCantidad());
+        }
+        try {
+            UnidadDeTrabajo.escribir(session -> {
+                ItemPedido guardado = session.get(ItemPedido.class, itemPedido.getId());
+                if (guardado == null) {
+                    throw new IllegalArgumentException("El ítem " + itemPedido.getId() + " no existe");
+                }
+                Pedido pedido = guardado.getPedido();
+                if (itemPedido.getPedido() != null && !pedido.getCodigo().equals(itemPedido.getPedido().getCodigo())) {
+                    throw new IllegalArgumentException("El ítem " + itemPedido.getId() + " no se puede mover a otro pedido");
+                }
+                Producto anterior = guardado.getProducto();
+                Producto nuevo = itemPedido.getProducto() != null ? session.get(Producto.class, itemPedido.getProducto().getId()) : anterior;
+
+                // Reserva o devuelve solo la diferencia de unidades de cada producto
+                Map<Long, Integer> diferencia = new HashMap<>();
+                diferencia.merge(nuevo.getId(), itemPedido.getCantidad(), Integer::sum);
+                diferencia.merge(anterior.getId(), -guardado.getCantidad(), Integer::sum);
+                Map<Long, Integer> reservar = new HashMap<>();
+                Map<Long, Integer> liberar = new HashMap<>();
+                diferencia.forEach((id, cantidad) -> {
+                    if (cantidad > 0) {
+                        reservar.put(id, cantidad);
+                    } else if (cantidad < 0) {
+                        liberar.put(id, -cantidad);
+                    }
+                });
+                ReservaStock.reservar(session, reservar);
+                ReservaStock.liberar(session, liberar);
+
+                double delta = nuevo.getPrecio() * itemPedido.getCantidad() - guardado.getPrecioTotal();
+                guardado.setProducto(nuevo);
+                guardado.setCantidad(itemPedido.getCantidad());
+                if (delta != 0) {
+                    actualizarTotal(session, pedido.getId(), delta);
+                    if (itemPedido.getPedido() != null && !session.contains(itemPedido.getPedido())) {
+                        itemPedido.getPedido().setTotal(itemPedido.getPedido().getTotal() + delta);
+                    }
+                }
+                String codigoPedido = pedido.getCodigo();
+                UnidadDeTrabajo.despuesDeConfirmar(() -> CambiosPedido.notificar(codigoPedido));
+                return guardado;
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw e;
+        }
+    }
 
     /**
-     * Método no implementado para eliminar un ItemPedido.
+     * Elimina un ItemPedido mediante {@link #removeById(Long)}, que ajusta el total del pedido y el stock del producto.
      *
      * @param data El objeto ItemPedido a eliminar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
      */
     @Override
-    public void delete(ItemPedido data) {}
+    public void delete(ItemPedido data) {
+        remove(data);
+    }
 
     /**
-     * Elimina un ItemPedido de la base de datos y actualiza el total del Pedido asociado.
+     * Elimina un ItemPedido de la base de datos, resta su importe del total del Pedido asociado
+     * y devuelve su cantidad al stock del producto.
      * Realiza la operación en una transacción y maneja posibles errores.
      *
      * @param item El ItemPedido a eliminar.
@@ -142,37 +257,58 @@ public class ItemPedidoDAO implements DAO<ItemPedido> {
      */
     @Override
     public boolean remove(ItemPedido item) {
+        return removeById(item.getId());
+    }
+
+    /**
+     * Elimina un ItemPedido a partir de su ID, resta su importe del total del Pedido asociado
+     * y devuelve su cantidad al stock del producto.
+     * Se une a la {@link UnidadDeTrabajo} en curso o, si no la hay, usa una transacción propia, y maneja posibles errores.
+     * Tras confirmar la transacción avisa del cambio del pedido mediante {@link CambiosPedido}.
+     *
+     * @param id El ID del ItemPedido a eliminar.
+     * @return boolean Verdadero si el item fue eliminado con éxito, falso en caso contrario.
+     */
+    public boolean removeById(Long id) {
         boolean salida = false;
-        Session session = HibernateUtil.getSessionFactory().openSession();
-        Transaction transaction = null;
         try {
-            transaction = session.beginTransaction();
-            ItemPedido itemToRemove = session.get(ItemPedido.class, item.getId());
-            if (itemToRemove != null) {
+            salida = UnidadDeTrabajo.escribir(session -> {
+                ItemPedido itemToRemove = session.get(ItemPedido.class, id);
+                if (itemToRemove == null) {
+                    return false;
+                }
                 Pedido pedido = itemToRemove.getPedido();
+                double delta = itemToRemove.getPrecioTotal();
                 session.remove(itemToRemove);
+                ReservaStock.liberar(session, Map.of(itemToRemove.getProducto().getId(), itemToRemove.getCantidad()));
 
-                List<ItemPedido> itemsActuales = session.createQuery("FROM ItemPedido ip WHERE ip.pedido.id = :pedidoId AND ip.id != :itemId", ItemPedido.class)
-                        .setParameter("pedidoId", pedido.getId())
-                        .setParameter("itemId", itemToRemove.getId())
-                        .getResultList();
-
-                double nuevoTotal = itemsActuales.stream().mapToDouble(ItemPedido::getPrecioTotal).sum();
-                pedido.setTotal(nuevoTotal);
+                // Resta solo el importe del ítem eliminado del total del pedido
+                actualizarTotal(session, pedido.getId(), -delta);
 
-                session.update(pedido);
-
-                salida = true;
-            }
-            transaction.commit();
+                String codigoPedido = pedido.getCodigo();
+                UnidadDeTrabajo.despuesDeConfirmar(() -> CambiosPedido.notificar(codigoPedido));
+                return true;
+            });
         } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
             e.printStackTrace();
-        } finally {
-            session.close();
         }
         return salida;
     }
+
+    /**
+     * Aplica un incremento (o decremento) al total de un pedido con una única sentencia UPDATE.
+     * Al ser una actualización atómica en base de datos no depende del número de ítems del pedido
+     * ni del total leído antes, por lo que dos ediciones simultáneas no se pisan; además incrementa la versión
+     * del pedido para que falle cualquier escritura posterior basada en una copia anterior.
+     *
+     * @param session  Sesión con la transacción en curso.
+     * @param pedidoId El ID del pedido a actualizar.
+     * @param delta    Importe a sumar al total; negativo para restar.
+     */
+    private void actualizarTotal(Session session, Long pedidoId, double delta) {
+        session.createMutationQuery("UPDATE VERSIONED Pedido p SET p.total = p.total + :delta WHERE p.id = :pedidoId")
+                .setParameter("delta", delta)
+                .setParameter("pedidoId", pedidoId)
+                .executeUpdate();
+    }
 }
@@ -0,0 +1,32 @@
+package com.example.gestionpedidoscondao.domain.itemPedido;
+
+import lombok.*;
+
+/**
+ * Clase ItemPedidoResumen.
+ * Proyección ligera de un ItemPedido con las columnas que muestra la tabla de ítems:
+ * identificador, nombre y precio del producto y cantidad.
+ * Se construye directamente desde la consulta, sin cargar las entidades Pedido ni Producto.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ItemPedidoResumen {
+    private final Long id;
+    private final String nombreProducto;
+    private final double precio;
+    private final int cantidad;
+
+    /**
+     * Calcula el importe de la línea.
+     *
+     * @return Double Cantidad por precio unitario del producto.
+     */
+    public Double getPrecioTotal() {
+        return cantidad * precio;
+    }
+}
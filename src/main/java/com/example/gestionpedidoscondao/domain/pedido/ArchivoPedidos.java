@@ -0,0 +1,182 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.extern.java.Log;
+import org.hibernate.Session;
+import org.hibernate.SharedSessionContract;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Clase ArchivoPedidos.
+ * Gestiona las tablas de archivo "PedidosArchivo" e "ItemsPedidosArchivo" (ver db/migracion_004_archivo_pedidos.sql),
+ * que guardan los pedidos históricos con sus ítems para que las tablas de uso diario no crezcan indefinidamente.
+ * {@link PedidoDAO#archivarAntiguos()} copia aquí los pedidos con más antigüedad que la indicada en la propiedad
+ * del sistema <code>archivo.diasAntiguedad</code> (365 por defecto) y los elimina de las tablas de uso diario,
+ * por lotes y en la misma transacción para cada lote. Cada ítem archivado guarda el nombre y el precio de su producto
+ * en ese momento, así que el pedido archivado se sigue mostrando igual aunque el producto cambie o se borre.
+ * {@link PedidoDAO} e {@link com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO} consultan el archivo
+ * cuando un código no está en las tablas de uso diario, de modo que un pedido archivado se sigue pudiendo abrir;
+ * los informes ({@link com.example.gestionpedidoscondao.informes.ServicioInformes}) también se rellenan con los datos del archivo.
+ * Los pedidos leídos del archivo no están asociados a ninguna sesión, se marcan con {@link Pedido#isArchivado()}
+ * y son de solo lectura.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class ArchivoPedidos {
+
+    /**
+     * Propiedad del sistema con la antigüedad, en días, a partir de la cual se archiva un pedido.
+     */
+    public static final String PROP_DIAS_ANTIGUEDAD = "archivo.diasAntiguedad";
+
+    /**
+     * Nombre con el que se muestran los ítems archivados cuyo producto se ha borrado del catálogo.
+     */
+    public static final String PRODUCTO_ELIMINADO = "(producto eliminado)";
+
+    static final int DIAS_ANTIGUEDAD = Math.max(1, Integer.getInteger(PROP_DIAS_ANTIGUEDAD, 365));
+
+    private static final String COPIAR_PEDIDOS = "INSERT INTO PedidosArchivo (id_pedidos, `código`, fecha, usuario, total, version) " +
+            "SELECT id_pedidos, `código`, fecha, usuario, total, version FROM Pedidos WHERE id_pedidos IN (:ids)";
+    private static final String COPIAR_ITEMS = "INSERT INTO ItemsPedidosArchivo (id_items, codPedido, cantidad, producto, nombre, precio) " +
+            "SELECT i.id_items, i.codPedido, i.cantidad, i.producto, pr.nombre, pr.precio FROM ItemsPedidos i " +
+            "JOIN Pedidos p ON p.`código` = i.codPedido LEFT JOIN Productos pr ON pr.id_productos = i.producto " +
+            "WHERE p.id_pedidos IN (:ids)";
+
+    private ArchivoPedidos() {
+    }
+
+    /**
+     * Copia al archivo los pedidos indicados y sus ítems, con el nombre y el precio que tiene en este momento
+     * el producto de cada ítem, dentro de la transacción de la sesión recibida.
+     * Quien llama es responsable de eliminarlos después de las tablas de uso diario en la misma transacción.
+     *
+     * @param sesion Sesión con la transacción en curso.
+     * @param ids    IDs de los pedidos a archivar.
+     * @return int Número de ítems copiados.
+     */
+    static int copiar(SharedSessionContract sesion, List<Long> ids) {
+        sesion.createNativeMutationQuery(COPIAR_PEDIDOS)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+        return sesion.createNativeMutationQuery(COPIAR_ITEMS)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Busca un pedido archivado por su código.
+     *
+     * @param session Sesión con la que leer el archivo y el usuario del pedido.
+     * @param codigo  El código del pedido.
+     * @return Pedido Copia de solo lectura del pedido archivado, sin ítems, o null si no está en el archivo.
+     */
+    public static Pedido buscarPedido(Session session, String codigo) {
+        List<Object[]> filas = session.createNativeQuery(
+                "SELECT id_pedidos, fecha, usuario, total, version FROM PedidosArchivo WHERE `código` = :codigo", Object[].class)
+                .setParameter("codigo", codigo)
+                .getResultList();
+        if (filas.isEmpty()) {
+            return null;
+        }
+        Object[] fila = filas.get(0);
+        Pedido pedido = new Pedido();
+        pedido.setId(((Number) fila[0]).longValue());
+        pedido.setCodigo(codigo);
+        pedido.setFecha((Date) fila[1]);
+        if (fila[2] != null) {
+            pedido.setUsuario(session.get(Usuario.class, ((Number) fila[2]).longValue()));
+        }
+        pedido.setTotal(((Number) fila[3]).doubleValue());
+        pedido.setVersion(((Number) fila[4]).longValue());
+        pedido.setArchivado(true);
+        return pedido;
+    }
+
+    /**
+     * Busca los ítems de un pedido archivado, con una copia del producto tal como era al archivarlo.
+     *
+     * @param session Sesión con la que leer el archivo.
+     * @param codigo  El código del pedido.
+     * @return List<ItemPedido> Copias de solo lectura de los ítems; lista vacía si el pedido no está en el archivo.
+     *         Los ítems cuyo producto ya no existía al archivarlos no tienen producto.
+     */
+    public static List<ItemPedido> buscarItems(Session session, String codigo) {
+        List<Object[]> filas = session.createNativeQuery(
+                "SELECT id_items, cantidad, producto, nombre, precio FROM ItemsPedidosArchivo WHERE codPedido = :codigo ORDER BY id_items", Object[].class)
+                .setParameter("codigo", codigo)
+                .getResultList();
+        List<ItemPedido> items = new ArrayList<>();
+        if (filas.isEmpty()) {
+            return items;
+        }
+        Pedido pedido = buscarPedido(session, codigo);
+        for (Object[] fila : filas) {
+            ItemPedido item = new ItemPedido();
+            item.setId(((Number) fila[0]).longValue());
+            item.setPedido(pedido);
+            item.setCantidad(((Number) fila[1]).intValue());
+            if (fila[3] != null) {
+                Producto producto = new Producto();
+                producto.setId(fila[2] != null ? ((Number) fila[2]).longValue() : null);
+                producto.setNombre((String) fila[3]);
+                producto.setPrecio(fila[4] != null ? ((Number) fila[4]).doubleValue() : 0.0);
+                item.setProducto(producto);
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Busca los ítems de un pedido archivado como proyección {@link ItemPedidoResumen}, con el nombre y el precio
+     * que tenía el producto al archivarlos.
+     * Los ítems cuyo producto ya no existía al archivarlos se incluyen con el nombre {@value #PRODUCTO_ELIMINADO} y precio cero,
+     * igual que {@link #buscarItems(Session, String)} los devuelve sin producto.
+     *
+     * @param session Sesión con la que leer el archivo.
+     * @param codigo  El código del pedido.
+     * @return List<ItemPedidoResumen> Ítems del pedido; lista vacía si el pedido no está en el archivo.
+     */
+    public static List<ItemPedidoResumen> buscarResumen(Session session, String codigo) {
+        List<Object[]> filas = session.createNativeQuery(
+                "SELECT id_items, nombre, precio, cantidad FROM ItemsPedidosArchivo WHERE codPedido = :codigo ORDER BY id_items", Object[].class)
+                .setParameter("codigo", codigo)
+                .getResultList();
+        List<ItemPedidoResumen> items = new ArrayList<>();
+        for (Object[] fila : filas) {
+            items.add(new ItemPedidoResumen(((Number) fila[0]).longValue(),
+                    fila[1] != null ? (String) fila[1] : PRODUCTO_ELIMINADO,
+                    fila[2] != null ? ((Number) fila[2]).doubleValue() : 0.0,
+                    ((Number) fila[3]).intValue()));
+        }
+        return items;
+    }
+
+    /**
+     * Archiva los pedidos con más antigüedad que la configurada, para lanzarlo como tarea programada.
+     *
+     * @param args Opcionalmente, la antigüedad en días; si no se indica se usa la propiedad {@value #PROP_DIAS_ANTIGUEDAD}.
+     */
+    public static void main(String[] args) {
+        try {
+            PedidoDAO pedidoDAO = new PedidoDAO();
+            ResultadoPurga resultado = args.length > 0
+                    ? pedidoDAO.archivarAnterioresA(Integer.parseInt(args[0]))
+                    : pedidoDAO.archivarAntiguos();
+            log.info("Archivo de pedidos antiguos: " + resultado);
+        } finally {
+            HibernateUtil.cerrar();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Clase CambiosPedido.
+ * Avisa a quien se haya suscrito de que un pedido o sus ítems han cambiado en la base de datos.
+ * Los DAO notifican el código del pedido después de confirmar la transacción; los suscriptores
+ * (por ejemplo, cachés de informes) lo usan para descartar lo que tengan guardado de ese pedido.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public class CambiosPedido {
+
+    private static final List<Consumer<String>> suscriptores = new CopyOnWriteArrayList<>();
+
+    private CambiosPedido() {
+    }
+
+    /**
+     * Registra un suscriptor que recibirá el código de cada pedido modificado.
+     *
+     * @param suscriptor Acción a ejecutar con el código del pedido.
+     */
+    public static void suscribir(Consumer<String> suscriptor) {
+        suscriptores.add(suscriptor);
+    }
+
+    /**
+     * Elimina un suscriptor registrado.
+     *
+     * @param suscriptor Suscriptor a eliminar.
+     */
+    public static void cancelarSuscripcion(Consumer<String> suscriptor) {
+        suscriptores.remove(suscriptor);
+    }
+
+    /**
+     * Notifica a todos los suscriptores que un pedido ha cambiado.
+     * Un error en un suscriptor no impide avisar al resto.
+     *
+     * @param codigoPedido El código del pedido modificado.
+     */
+    public static void notificar(String codigoPedido) {
+        if (codigoPedido == null) {
+            return;
+        }
+        for (Consumer<String> suscriptor : suscriptores) {
+            try {
+                suscriptor.accept(codigoPedido);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
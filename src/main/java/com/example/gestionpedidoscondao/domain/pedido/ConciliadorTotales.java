@@ -0,0 +1,156 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import lombok.extern.java.Log;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase ConciliadorTotales.
+ * Tarea en segundo plano que comprueba periódicamente que el total guardado de cada Pedido
+ * coincide con la suma de sus ítems.
+ * Como los totales se mantienen de forma incremental, un cambio de precio de un producto o una
+ * modificación hecha fuera de la aplicación puede desajustarlos; esta tarea los detecta y,
+ * si se indica, los corrige.
+ * Recorre la tabla de pedidos por bloques de IDs para no bloquearla durante mucho tiempo.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class ConciliadorTotales {
+
+    /**
+     * Diferencia máxima admitida entre el total guardado y el calculado.
+     */
+    private static final double TOLERANCIA = 0.005;
+
+    /**
+     * Número de pedidos revisados en cada consulta.
+     */
+    private static final int TAMAÑO_BLOQUE = 500;
+
+    private final boolean corregir;
+    private ScheduledExecutorService planificador;
+
+    /**
+     * Crea un conciliador.
+     *
+     * @param corregir Si es verdadero, los totales desajustados se corrigen; si no, solo se registran en el log.
+     */
+    public ConciliadorTotales(boolean corregir) {
+        this.corregir = corregir;
+    }
+
+    /**
+     * Programa la conciliación periódica en un hilo en segundo plano.
+     *
+     * @param periodo Tiempo entre dos conciliaciones (también se usa como espera inicial).
+     * @param unidad  Unidad del periodo.
+     */
+    public synchronized void iniciar(long periodo, TimeUnit unidad) {
+        if (planificador != null) {
+            return;
+        }
+        planificador = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread hilo = new Thread(runnable, "conciliador-totales");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador.scheduleWithFixedDelay(() -> {
+            try {
+                conciliar();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, periodo, periodo, unidad);
+    }
+
+    /**
+     * Detiene la conciliación periódica.
+     */
+    public synchronized void detener() {
+        if (planificador != null) {
+            planificador.shutdownNow();
+            planificador = null;
+        }
+    }
+
+    /**
+     * Revisa todos los pedidos una vez.
+     *
+     * @return int Número de pedidos con el total desajustado.
+     */
+    public int conciliar() {
+        int desajustados = 0;
+        long ultimoId = 0;
+        while (true) {
+            List<Long> ids;
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                ids = session.createQuery("SELECT p.id FROM Pedido p WHERE p.id > :ultimo ORDER BY p.id", Long.class)
+                        .setParameter("ultimo", ultimoId)
+                        .setMaxResults(TAMAÑO_BLOQUE)
+                        .getResultList();
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+            desajustados += conciliarBloque(ids.get(0), ids.get(ids.size() - 1));
+            ultimoId = ids.get(ids.size() - 1);
+        }
+        log.info("Conciliación de totales terminada: " + desajustados + " pedidos desajustados");
+        return desajustados;
+    }
+
+    /**
+     * Compara el total guardado con el calculado para los pedidos de un rango de IDs.
+     *
+     * @param desde Primer ID del bloque.
+     * @param hasta Último ID del bloque.
+     * @return int Número de pedidos desajustados en el bloque.
+     */
+    private int conciliarBloque(long desde, long hasta) {
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            tx = session.beginTransaction();
+            List<Object[]> filas = session.createQuery(
+                    "SELECT p.id, p.codigo, p.total, COALESCE(SUM(ip.cantidad * prod.precio), 0) " +
+                            "FROM Pedido p LEFT JOIN p.itemsPedidos ip LEFT JOIN ip.producto prod " +
+                            "WHERE p.id BETWEEN :desde AND :hasta " +
+                            "GROUP BY p.id, p.codigo, p.total " +
+                            "HAVING ABS(p.total - COALESCE(SUM(ip.cantidad * prod.precio), 0)) > :tolerancia", Object[].class)
+                    .setParameter("desde", desde)
+                    .setParameter("hasta", hasta)
+                    .setParameter("tolerancia", TOLERANCIA)
+                    .getResultList();
+
+            for (Object[] fila : filas) {
+                Long id = (Long) fila[0];
+                double guardado = ((Number) fila[2]).doubleValue();
+                double calculado = ((Number) fila[3]).doubleValue();
+                log.warning("Total desajustado en el pedido " + fila[1] + ": guardado " + guardado + ", calculado " + calculado);
+                if (corregir) {
+                    // Solo se corrige si nadie ha modificado el total desde la lectura
+                    session.createMutationQuery("UPDATE VERSIONED Pedido p SET p.total = :calculado WHERE p.id = :id AND p.total = :guardado")
+                            .setParameter("calculado", calculado)
+                            .setParameter("id", id)
+                            .setParameter("guardado", guardado)
+                            .executeUpdate();
+                }
+            }
+            tx.commit();
+            return filas.size();
+        } catch (RuntimeException e) {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        }
+    }
+}
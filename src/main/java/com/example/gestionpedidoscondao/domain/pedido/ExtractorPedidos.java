@@ -0,0 +1,351 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import lombok.extern.java.Log;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase ExtractorPedidos.
+ * Vuelca todos los pedidos con sus ítems a un fichero NDJSON o CSV para el almacén de datos: primero los de las tablas
+ * de uso diario y después los archivados ({@link ArchivoPedidos}), con el nombre y el precio guardados al archivarlos.
+ * Lee con una {@link StatelessSession} y una consulta por tabla recorrida con {@link ScrollableResults},
+ * con el tamaño de lectura de {@link HibernateUtil#getTamañoLecturaStreaming()} (con MySQL, las filas de una en una),
+ * y escribe cada fila según llega: la memoria usada no depende del tamaño de las tablas.
+ * Los pedidos se recorren por ID y cada cierto número de pedidos se guarda un punto de control junto al fichero
+ * (tabla que se está leyendo, último pedido escrito y longitud del fichero en ese momento). Si la extracción se interrumpe,
+ * la siguiente ejecución sobre el mismo fichero descarta lo escrito después del punto de control y continúa desde él.
+ * Un pedido que se archiva entre dos ejecuciones de una extracción reanudada puede aparecer dos veces o ninguna.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class ExtractorPedidos {
+
+    /**
+     * Propiedad del sistema con el número de pedidos entre dos puntos de control.
+     */
+    public static final String PROP_PEDIDOS_POR_PUNTO = "extraccion.pedidosPorPunto";
+
+    private static final int PEDIDOS_POR_PUNTO_POR_DEFECTO = 1000;
+
+    private static final String CONSULTA =
+            "SELECT p.id, p.codigo, p.fecha, p.total, u.id, ip.id, prod.id, prod.nombre, prod.precio, ip.cantidad " +
+                    "FROM Pedido p JOIN p.usuario u LEFT JOIN p.itemsPedidos ip LEFT JOIN ip.producto prod " +
+                    "WHERE p.id > :desde ORDER BY p.id, ip.id";
+
+    private static final String CONSULTA_ARCHIVO =
+            "SELECT p.id_pedidos, p.`código`, p.fecha, p.total, p.usuario, i.id_items, i.producto, i.nombre, i.precio, i.cantidad " +
+                    "FROM PedidosArchivo p LEFT JOIN ItemsPedidosArchivo i ON i.codPedido = p.`código` " +
+                    "WHERE p.id_pedidos > :desde ORDER BY p.id_pedidos, i.id_items";
+
+    private static final String CABECERA_CSV = "pedido_id,codigo,fecha,total,usuario_id,item_id,producto_id,producto,precio,cantidad";
+
+    private final FormatoExtraccion formato;
+    private final int pedidosPorPunto;
+
+    /**
+     * Crea un extractor con el número de pedidos entre puntos de control de la propiedad {@value #PROP_PEDIDOS_POR_PUNTO}.
+     *
+     * @param formato Formato del fichero de salida.
+     */
+    public ExtractorPedidos(FormatoExtraccion formato) {
+        this(formato, Integer.getInteger(PROP_PEDIDOS_POR_PUNTO, PEDIDOS_POR_PUNTO_POR_DEFECTO));
+    }
+
+    /**
+     * Crea un extractor.
+     *
+     * @param formato         Formato del fichero de salida.
+     * @param pedidosPorPunto Número de pedidos escritos entre dos puntos de control.
+     */
+    public ExtractorPedidos(FormatoExtraccion formato, int pedidosPorPunto) {
+        this.formato = formato;
+        this.pedidosPorPunto = Math.max(1, pedidosPorPunto);
+    }
+
+    /**
+     * Extrae todos los pedidos al fichero indicado, reanudando desde su punto de control si existe.
+     * Si el hilo se interrumpe, se detiene en el siguiente punto de control y el resultado indica que no está completa.
+     * Al terminar la extracción completa se borra el punto de control.
+     *
+     * @param fichero Fichero de salida.
+     * @return ResultadoExtraccion Resumen de la extracción.
+     * @throws IOException Si no se puede escribir el fichero o el punto de control.
+     */
+    public ResultadoExtraccion extraer(Path fichero) throws IOException {
+        Path puntoControl = fichero.resolveSibling(fichero.getFileName() + ".checkpoint");
+        Properties punto = leerPuntoControl(puntoControl, fichero);
+        boolean reanudada = punto != null;
+        Avance avance = new Avance();
+        long bytes = 0;
+        if (reanudada) {
+            avance.archivo = Boolean.parseBoolean(punto.getProperty("archivo", "false"));
+            avance.ultimoPedido = Long.parseLong(punto.getProperty("ultimoPedido"));
+            avance.pedidos = Long.parseLong(punto.getProperty("pedidos"));
+            avance.items = Long.parseLong(punto.getProperty("items"));
+            bytes = Long.parseLong(punto.getProperty("bytes"));
+        }
+        boolean completa;
+        long inicio = System.nanoTime();
+
+        if (reanudada) {
+            log.info("Reanudando la extracción de " + fichero + " tras el pedido " + avance.ultimoPedido
+                    + (avance.archivo ? " del archivo" : ""));
+        }
+
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             Writer salida = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8), 64 * 1024)) {
+            // Descarta lo escrito después del último punto de control
+            canal.truncate(bytes);
+            canal.position(bytes);
+            if (!reanudada && formato == FormatoExtraccion.CSV) {
+                salida.write(CABECERA_CSV);
+                salida.write('\n');
+            }
+
+            try (StatelessSession sinEstado = HibernateUtil.getSessionFactory().openStatelessSession()) {
+                if (!avance.archivo && volcar(sinEstado, avance, puntoControl, salida, canal)) {
+                    // Tablas de uso diario terminadas: continúa con los pedidos archivados
+                    avance.archivo = true;
+                    avance.ultimoPedido = 0;
+                }
+                completa = avance.archivo && volcar(sinEstado, avance, puntoControl, salida, canal);
+            }
+            salida.flush();
+        }
+
+        if (completa) {
+            Files.deleteIfExists(puntoControl);
+        }
+        ResultadoExtraccion resultado = new ResultadoExtraccion(avance.pedidos, avance.items,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), reanudada, completa);
+        log.info(String.format("Extracción %s de %s: %d pedidos, %d ítems en %d ms%s",
+                formato, fichero, resultado.getPedidos(), resultado.getItems(), resultado.getDuracionMs(),
+                completa ? "" : " (interrumpida, se reanudará desde el punto de control)"));
+        return resultado;
+    }
+
+    /**
+     * Recorre los pedidos de la tabla indicada por el avance a partir de su último pedido y los escribe,
+     * guardando un punto de control cada {@link #pedidosPorPunto} pedidos.
+     *
+     * @return boolean Verdadero si ha llegado al final; falso si se ha detenido en un punto de control porque el hilo se ha interrumpido.
+     */
+    private boolean volcar(StatelessSession sinEstado, Avance avance, Path puntoControl, Writer salida, FileChannel canal)
+            throws IOException {
+        Query<Object[]> consulta = avance.archivo
+                ? sinEstado.createNativeQuery(CONSULTA_ARCHIVO, Object[].class)
+                : sinEstado.createQuery(CONSULTA, Object[].class);
+        try (ScrollableResults<Object[]> filas = consulta
+                .setParameter("desde", avance.ultimoPedido)
+                .setFetchSize(HibernateUtil.getTamañoLecturaStreaming())
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            Object[] pedido = null;
+            int itemsPedido = 0;
+            int desdeUltimoPunto = 0;
+            while (filas.next()) {
+                Object[] fila = filas.get();
+                if (pedido == null || !pedido[0].equals(fila[0])) {
+                    if (pedido != null) {
+                        cerrarPedido(salida, pedido, itemsPedido);
+                        avance.pedidos++;
+                        avance.ultimoPedido = ((Number) pedido[0]).longValue();
+                        if (++desdeUltimoPunto >= pedidosPorPunto) {
+                            guardarPuntoControl(puntoControl, salida, canal, avance);
+                            desdeUltimoPunto = 0;
+                            if (Thread.currentThread().isInterrupted()) {
+                                return false;
+                            }
+                        }
+                    }
+                    pedido = fila;
+                    itemsPedido = 0;
+                    abrirPedido(salida, pedido);
+                }
+                if (fila[5] != null) {
+                    escribirItem(salida, fila, itemsPedido++);
+                    avance.items++;
+                }
+            }
+            if (pedido != null) {
+                cerrarPedido(salida, pedido, itemsPedido);
+                avance.pedidos++;
+                avance.ultimoPedido = ((Number) pedido[0]).longValue();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Lee el punto de control de una extracción anterior sobre el mismo fichero.
+     *
+     * @param puntoControl Fichero del punto de control.
+     * @param fichero      Fichero de salida.
+     * @return Properties Datos del punto de control, o null si no existe o no corresponde al fichero actual.
+     * @throws IOException Si no se puede leer el punto de control.
+     */
+    private Properties leerPuntoControl(Path puntoControl, Path fichero) throws IOException {
+        if (!Files.exists(puntoControl)) {
+            return null;
+        }
+        Properties punto = new Properties();
+        try (Reader entrada = Files.newBufferedReader(puntoControl, StandardCharsets.UTF_8)) {
+            punto.load(entrada);
+        }
+        long bytes = Long.parseLong(punto.getProperty("bytes", "-1"));
+        if (!formato.name().equals(punto.getProperty("formato")) || !Files.exists(fichero) || Files.size(fichero) < bytes || bytes < 0) {
+            log.warning("Punto de control " + puntoControl + " no válido para " + fichero + "; la extracción empieza de nuevo");
+            return null;
+        }
+        return punto;
+    }
+
+    /**
+     * Vuelca lo escrito al disco y guarda el punto de control de forma atómica.
+     */
+    private void guardarPuntoControl(Path puntoControl, Writer salida, FileChannel canal, Avance avance) throws IOException {
+        salida.flush();
+        canal.force(false);
+        Properties punto = new Properties();
+        punto.setProperty("formato", formato.name());
+        punto.setProperty("archivo", String.valueOf(avance.archivo));
+        punto.setProperty("ultimoPedido", String.valueOf(avance.ultimoPedido));
+        punto.setProperty("pedidos", String.valueOf(avance.pedidos));
+        punto.setProperty("items", String.valueOf(avance.items));
+        punto.setProperty("bytes", String.valueOf(canal.position()));
+        Path temporal = puntoControl.resolveSibling(puntoControl.getFileName() + ".tmp");
+        try (Writer escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            punto.store(escritor, "Punto de control de ExtractorPedidos");
+        }
+        Files.move(temporal, puntoControl, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void abrirPedido(Writer salida, Object[] pedido) throws IOException {
+        if (formato == FormatoExtraccion.NDJSON) {
+            salida.write("{\"id\":" + pedido[0]
+                    + ",\"codigo\":" + json(pedido[1])
+                    + ",\"fecha\":" + json(fecha(pedido[2]))
+                    + ",\"total\":" + pedido[3]
+                    + ",\"usuario\":" + pedido[4]
+                    + ",\"items\":[");
+        }
+    }
+
+    private void escribirItem(Writer salida, Object[] fila, int posicion) throws IOException {
+        if (formato == FormatoExtraccion.NDJSON) {
+            salida.write((posicion == 0 ? "" : ",")
+                    + "{\"id\":" + fila[5]
+                    + ",\"producto\":" + fila[6]
+                    + ",\"nombre\":" + json(fila[7])
+                    + ",\"precio\":" + fila[8]
+                    + ",\"cantidad\":" + fila[9] + "}");
+        } else {
+            salida.write(columnasPedidoCsv(fila) + "," + fila[5] + "," + fila[6] + "," + csv(fila[7]) + "," + fila[8] + "," + fila[9] + "\n");
+        }
+    }
+
+    private void cerrarPedido(Writer salida, Object[] pedido, int items) throws IOException {
+        if (formato == FormatoExtraccion.NDJSON) {
+            salida.write("]}\n");
+        } else if (items == 0) {
+            // Un pedido sin ítems también se exporta, con las columnas de ítem vacías
+            salida.write(columnasPedidoCsv(pedido) + ",,,,,\n");
+        }
+    }
+
+    private static String columnasPedidoCsv(Object[] fila) {
+        return fila[0] + "," + csv(fila[1]) + "," + fecha(fila[2]) + "," + fila[3] + "," + fila[4];
+    }
+
+    private static String fecha(Object valor) {
+        return valor == null ? null : Instant.ofEpochMilli(((Date) valor).getTime()).toString();
+    }
+
+    private static String json(Object valor) {
+        if (valor == null) {
+            return "null";
+        }
+        String texto = valor.toString();
+        StringBuilder sb = new StringBuilder(texto.length() + 2).append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String csv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor.toString();
+        if (texto.contains(",") || texto.contains("\"") || texto.contains("\n") || texto.contains("\r")) {
+            return "\"" + texto.replace("\"", "\"\"") + "\"";
+        }
+        return texto;
+    }
+
+    /**
+     * Avance de una extracción: tabla que se está leyendo, último pedido escrito y totales escritos hasta ahora.
+     */
+    private static class Avance {
+        private boolean archivo; // Se están leyendo las tablas de archivo
+        private long ultimoPedido;
+        private long pedidos;
+        private long items;
+    }
+
+    /**
+     * Punto de entrada para lanzar la extracción nocturna fuera de la interfaz gráfica.
+     *
+     * @param args Fichero de salida y, opcionalmente, formato (NDJSON o CSV; NDJSON por defecto).
+     * @throws IOException Si no se puede escribir el fichero.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Uso: ExtractorPedidos <fichero> [NDJSON|CSV]");
+            return;
+        }
+        FormatoExtraccion formato = args.length > 1 ? FormatoExtraccion.valueOf(args[1].toUpperCase()) : FormatoExtraccion.NDJSON;
+        try {
+            new ExtractorPedidos(formato).extraer(Path.of(args[0]));
+        } finally {
+            HibernateUtil.cerrar();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Enum FormatoExtraccion.
+ * Formatos de fichero que puede escribir {@link ExtractorPedidos}:
+ * NDJSON, con una línea JSON por pedido y sus ítems anidados,
+ * y CSV, con una fila por ítem que repite los datos de su pedido.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@AllArgsConstructor
+public enum FormatoExtraccion {
+    NDJSON("ndjson"),
+    CSV("csv");
+
+    private final String extension;
+}
@@ -0,0 +1,95 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Clase HuellaPedido.
+ * Resumen de todo lo que muestra el informe de un pedido, que cambia cuando se añade, elimina o modifica alguno de sus ítems,
+ * cuando cambia el nombre o el precio de alguno de sus productos, el nombre o el email del usuario, o el total del pedido:
+ * número de ítems, mayor ID de ítem, unidades totales, importe y total impreso en céntimos, y un resumen SHA-256
+ * del usuario y del nombre, precio y cantidad de cada ítem.
+ * Sirve como versión del pedido para reutilizar resultados calculados a partir de él.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class HuellaPedido {
+    private final long items;
+    private final long maxIdItem;
+    private final long unidades;
+    private final long importeCentimos;
+    private final long totalCentimos;
+    private final String resumen;
+
+    /**
+     * Calcula la huella de un pedido cuyo total impreso es la suma de sus ítems, como en los informes rellenados
+     * con datos ya cargados.
+     *
+     * @param idUsuario     ID del usuario del pedido, o null.
+     * @param nombreUsuario Nombre del usuario, o null.
+     * @param emailUsuario  Email del usuario, o null.
+     * @param items         Ítems del pedido.
+     * @return HuellaPedido Huella del pedido.
+     */
+    public static HuellaPedido de(Long idUsuario, String nombreUsuario, String emailUsuario, List<ItemPedidoResumen> items) {
+        return de(idUsuario, nombreUsuario, emailUsuario, items, null);
+    }
+
+    /**
+     * Calcula la huella de un pedido a partir de los datos que muestra su informe.
+     *
+     * @param idUsuario     ID del usuario del pedido, o null.
+     * @param nombreUsuario Nombre del usuario, o null.
+     * @param emailUsuario  Email del usuario, o null.
+     * @param items         Ítems del pedido.
+     * @param total         Total guardado del pedido, o null si el informe imprime la suma de los ítems.
+     * @return HuellaPedido Huella del pedido.
+     */
+    public static HuellaPedido de(Long idUsuario, String nombreUsuario, String emailUsuario, List<ItemPedidoResumen> items, Double total) {
+        List<ItemPedidoResumen> ordenados = items.stream().sorted(Comparator.comparing(ItemPedidoResumen::getId)).toList();
+        StringBuilder texto = new StringBuilder().append(idUsuario).append('|').append(nombreUsuario).append('|').append(emailUsuario);
+        long maxId = 0;
+        long unidades = 0;
+        double importe = 0;
+        for (ItemPedidoResumen item : ordenados) {
+            maxId = Math.max(maxId, item.getId());
+            unidades += item.getCantidad();
+            importe += item.getPrecioTotal();
+            texto.append('\n').append(item.getId()).append('|').append(item.getNombreProducto())
+                    .append('|').append(item.getPrecio()).append('|').append(item.getCantidad());
+        }
+        long importeCentimos = Math.round(importe * 100);
+        return new HuellaPedido(ordenados.size(), maxId, unidades, importeCentimos,
+                total != null ? Math.round(total * 100) : importeCentimos, resumir(texto.toString()));
+    }
+
+    /**
+     * Devuelve la huella como texto compacto, apto para formar claves.
+     *
+     * @return String Huella en texto.
+     */
+    public String getClave() {
+        return items + "-" + maxIdItem + "-" + unidades + "-" + importeCentimos + "-" + totalCentimos + "-" + resumen;
+    }
+
+    private static String resumir(String texto) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(texto.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import lombok.*;
+
+/**
+ * Clase LotePurga.
+ * Resultado de un lote de una purga de pedidos: pedidos e ítems eliminados en su transacción y su duración.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LotePurga {
+    private final int pedidos;
+    private final int items;
+    private final long duracionMs;
+}
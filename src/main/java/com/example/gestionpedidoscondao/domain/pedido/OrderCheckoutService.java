@@ -0,0 +1,130 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.ReintentoOptimista;
+import com.example.gestionpedidoscondao.domain.UnidadDeTrabajo;
+import com.example.gestionpedidoscondao.domain.carrito.Carrito;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.producto.ReservaStock;
+import com.example.gestionpedidoscondao.domain.producto.StockInsuficienteException;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.extern.java.Log;
+import org.hibernate.Session;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Clase OrderCheckoutService.
+ * Registra la compra de un carrito como un nuevo Pedido con todos sus ítems en una única transacción.
+ * Los productos del carrito se resuelven con una sola consulta <code>IN</code> y los ítems se insertan
+ * mediante lotes JDBC (<code>hibernate.jdbc.batch_size</code> con inserciones ordenadas).
+ * Antes de registrar el pedido reserva el stock de todas las líneas con {@link ReservaStock};
+ * si algún producto no tiene stock suficiente la compra se deshace entera.
+ * La compra es una {@link UnidadDeTrabajo}, que registra en el log el número de sentencias y la duración;
+ * si se llama dentro de otra unidad, se une a ella. Si choca con una modificación simultánea (conflicto optimista),
+ * {@link ReintentoOptimista} la repite desde el principio.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class OrderCheckoutService {
+
+    /**
+     * Tamaño de lote JDBC usado para insertar los ítems del pedido.
+     */
+    public static final int TAMAÑO_LOTE = 50;
+
+    /**
+     * Registra la compra de las líneas de carrito indicadas para el usuario dado.
+     *
+     * @param usuario El usuario que realiza la compra.
+     * @param lineas  Las líneas del carrito a comprar.
+     * @return Pedido El pedido registrado, con su código, fecha y total.
+     * @throws IllegalArgumentException Si el carrito está vacío o contiene un producto inexistente.
+     * @throws StockInsuficienteException Si algún producto no tiene stock suficiente; en ese caso no se guarda nada.
+     * @throws RuntimeException Si ocurre un error durante la transacción; en ese caso no se guarda nada.
+     */
+    public Pedido checkout(Usuario usuario, List<Carrito> lineas) {
+        if (lineas == null || lineas.isEmpty()) {
+            throw new IllegalArgumentException("El carrito está vacío");
+        }
+
+        try {
+            return ReintentoOptimista.enUnidadDeTrabajo("compra", session -> registrar(session, usuario, lineas));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /**
+     * Inserta el pedido y sus ítems con la sesión de la unidad de trabajo.
+     *
+     * @param session Sesión con la transacción en curso.
+     * @param usuario El usuario que realiza la compra.
+     * @param lineas  Las líneas del carrito a comprar.
+     * @return Pedido El pedido registrado.
+     */
+    private Pedido registrar(Session session, Usuario usuario, List<Carrito> lineas) {
+        session.setJdbcBatchSize(TAMAÑO_LOTE);
+
+        Set<String> nombres = lineas.stream().map(Carrito::getNombre).collect(Collectors.toSet());
+        Map<String, Producto> productos = session.createQuery("FROM Producto WHERE nombre IN (:nombres)", Producto.class)
+                .setParameterList("nombres", nombres)
+                .getResultStream()
+                .collect(Collectors.toMap(Producto::getNombre, Function.identity(), (a, b) -> a));
+
+        // Descuenta el stock de todas las líneas en un único lote antes de registrar nada
+        Map<Long, Integer> cantidades = new HashMap<>();
+        for (Carrito linea : lineas) {
+            Producto producto = productos.get(linea.getNombre());
+            if (producto == null) {
+                throw new IllegalArgumentException("Producto no encontrado: " + linea.getNombre());
+            }
+            cantidades.merge(producto.getId(), linea.getCantidad(), Integer::sum);
+        }
+        ReservaStock.reservar(session, cantidades);
+
+        Pedido pedido = new Pedido();
+        pedido.setCodigo(generarCodigo());
+        pedido.setFecha(new Date(System.currentTimeMillis()));
+        pedido.setUsuario(usuario);
+        // El total se calcula con el precio actual del catálogo, no con el que tenía el carrito al añadir la línea
+        pedido.setTotal(lineas.stream()
+                .mapToDouble(linea -> productos.get(linea.getNombre()).getPrecio() * linea.getCantidad())
+                .sum());
+        session.persist(pedido);
+
+        for (Carrito linea : lineas) {
+            Producto producto = productos.get(linea.getNombre());
+            ItemPedido itemPedido = new ItemPedido();
+            itemPedido.setPedido(pedido);
+            itemPedido.setProducto(producto);
+            itemPedido.setCantidad(linea.getCantidad());
+            session.persist(itemPedido);
+        }
+
+        UnidadDeTrabajo.despuesDeConfirmar(() -> log.info("Pedido " + pedido.getCodigo() + " registrado: " + lineas.size() + " líneas"));
+        return pedido;
+    }
+
+    /**
+     * Genera un código único para identificar un pedido.
+     * Utiliza la hora actual y un valor aleatorio para asegurar la unicidad.
+     *
+     * @return String Un código de pedido único.
+     */
+    public String generarCodigo() {
+        long timestamp = System.currentTimeMillis();
+        int randomValue = (int) (Math.random() * 1000);
+        return "PEDIDO_" + timestamp + "_" + randomValue;
+    }
+}
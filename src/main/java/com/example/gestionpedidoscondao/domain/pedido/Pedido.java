@@ -14,6 +14,13 @@ import java.util.HashSet;
  * Esta clase está mapeada a la tabla "Pedidos" en la base de datos.
  * Contiene información sobre el pedido, incluyendo un identificador único, código, fecha, usuario asociado, total del pedido,
  * y un conjunto de ítems asociados al pedido.
+ * El grafo "orderList" carga solo las columnas propias del pedido, sin usuario ni ítems.
+ * La columna "version" permite el bloqueo optimista: cada cambio del total la incrementa, de modo que
+ * guardar una copia anterior del pedido falla con un conflicto en lugar de perder el cambio de otro usuario.
+ * Los índices declarados cubren las búsquedas por código (único, también referenciado por los ítems) y por usuario,
+ * y las consultas frecuentes se declaran como consultas con nombre para que {@link com.example.gestionpedidoscondao.domain.AsesorEsquema}
+ * pueda comprobar su plan de ejecución al arrancar.
+ * Los pedidos leídos de las tablas de archivo ({@link ArchivoPedidos}) se marcan como archivados y son de solo lectura.
  *
  * @author Author Name
  * @version 1.0
@@ -21,14 +28,21 @@ import java.util.HashSet;
  */
 @Data
 @Entity
-@Table(name = "Pedidos")
+@Table(name = "Pedidos",
+        uniqueConstraints = @UniqueConstraint(name = "uk_pedidos_codigo", columnNames = "código"),
+        indexes = @Index(name = "idx_pedidos_usuario_fecha", columnList = "usuario, fecha, id_pedidos"))
+@NamedEntityGraph(name = "orderList")
+@NamedQuery(name = "Pedido.findByCodigo", query = "FROM Pedido p WHERE p.codigo = :codigo")
+@NamedQuery(name = "Pedido.findByUsuarioId", query = "FROM Pedido p WHERE p.usuario.id = :usuarioId")
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Setter
 public class Pedido {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pedidos_id")
+    @TableGenerator(name = "pedidos_id", table = "secuencias_id", pkColumnName = "entidad",
+            valueColumnName = "siguiente_valor", pkColumnValue = "Pedidos", initialValue = 1, allocationSize = 50)
     @Column(name = "id_pedidos")
     private Long id;
 
@@ -41,14 +55,24 @@ public class Pedido {
 
     @ManyToOne
     @JoinColumn(name = "usuario", referencedColumnName = "id_usuarios")
+    @EqualsAndHashCode.Exclude
     private Usuario usuario;
 
     @Column(name = "total")
     private double total;
 
+    @Version
+    @Column(name = "version")
+    private long version;
+
     @OneToMany(mappedBy = "pedido")
+    @EqualsAndHashCode.Exclude
     private Set<ItemPedido> itemsPedidos = new HashSet<>();
 
+    @Transient
+    @EqualsAndHashCode.Exclude
+    private boolean archivado;
+
     @Override
     public String toString() {
         // Incluir solo los campos primitivos o Strings, excluir referencias a otras entidades
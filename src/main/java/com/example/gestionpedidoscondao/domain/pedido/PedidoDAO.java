@@ -1,29 +1,62 @@
 package com.example.gestionpedidoscondao.domain.pedido;
 
-import com.example.gestionpedidoscondao.domain.DAO;
+import com.example.gestionpedidoscondao.domain.HibernateDAO;
 import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.UnidadDeTrabajo;
 import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
-import org.hibernate.Hibernate;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
+import com.example.gestionpedidoscondao.domain.producto.ReservaStock;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.AllArgsConstructor;
+import lombok.extern.java.Log;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.SpecHints;
 import org.hibernate.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Clase PedidoDAO.
- * Implementa la interfaz DAO para la gestión de objetos de tipo Pedido en la base de datos.
- * Permite realizar operaciones como buscar, guardar, actualizar y eliminar pedidos.
+ * Gestiona los objetos de tipo Pedido en la base de datos a partir de {@link HibernateDAO}.
+ * Permite realizar operaciones como buscar, guardar, actualizar y eliminar pedidos;
+ * al eliminar un pedido, también de forma masiva, se eliminan antes sus ítems.
+ * Ofrece además purgas por lotes acotados (por códigos, por usuario o por antigüedad) para el mantenimiento de las tablas,
+ * y el traslado de los pedidos antiguos a las tablas de archivo de {@link ArchivoPedidos}.
  *
  * @author Author Name
  * @version 1.0
  * @since 2023-11-21
  */
-public class PedidoDAO implements DAO<Pedido> {
+@Log
+public class PedidoDAO extends HibernateDAO<Pedido> {
+
+    /**
+     * Propiedad del sistema con el número de pedidos que se eliminan en cada transacción de una purga.
+     */
+    public static final String PROP_PEDIDOS_POR_LOTE_PURGA = "purga.pedidosPorLote";
+
+    private static final int PEDIDOS_POR_LOTE_PURGA = Math.max(1, Integer.getInteger(PROP_PEDIDOS_POR_LOTE_PURGA, 500));
+
+    public PedidoDAO() {
+        super(Pedido.class);
+    }
 
     /**
      * Encuentra y devuelve una lista de pedidos asociados a un ID de usuario específico.
-     * Utiliza una consulta HQL para recuperar los pedidos desde la base de datos.
+     * Utiliza la consulta con nombre "Pedido.findByUsuarioId" con el grafo "orderList", que no carga el usuario ni los ítems de cada pedido.
      * Maneja excepciones internamente y devuelve una lista vacía en caso de error.
      *
      * @param usuarioId El ID del usuario para buscar los pedidos asociados.
@@ -31,11 +64,13 @@ public class PedidoDAO implements DAO<Pedido> {
      */
     public List<Pedido> findByUsuarioId(int usuarioId) {
         List<Pedido> pedidos = new ArrayList<>();
-        try (org.hibernate.Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Pedido> query = session.createQuery(
-                    "from Pedido where usuario.id = :usuarioId", Pedido.class);
-            query.setParameter("usuarioId", usuarioId);
-            pedidos = query.getResultList();
+        try {
+            pedidos = UnidadDeTrabajo.leer(session -> {
+                Query<Pedido> query = session.createNamedQuery("Pedido.findByUsuarioId", Pedido.class);
+                query.setParameter("usuarioId", usuarioId);
+                query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("orderList"));
+                return query.getResultList();
+            });
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -43,68 +78,169 @@ public class PedidoDAO implements DAO<Pedido> {
     }
 
     /**
-     * Método no implementado para obtener todos los pedidos.
+     * Devuelve una página de los pedidos de un usuario, del más reciente al más antiguo,
+     * como proyección {@link PedidoResumen} con solo las columnas que muestra la tabla de pedidos.
+     * Utiliza paginación por clave (fecha, id): en lugar de saltar filas con un desplazamiento,
+     * continúa a partir del último pedido de la página anterior, por lo que el coste de cada página
+     * no depende de cuántas se hayan leído antes.
      *
-     * @return ArrayList<Pedido> Retorna null ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @param usuarioId    El ID del usuario.
+     * @param fechaDesde   Fecha del último pedido de la página anterior, o null para la primera página.
+     * @param idDesde      ID del último pedido de la página anterior, o null para la primera página.
+     * @param tamañoPagina Número máximo de pedidos a devolver.
+     * @return List<PedidoResumen> Pedidos de la página; si tiene menos de tamañoPagina elementos no hay más páginas.
      */
-    @Override
-    public ArrayList<Pedido> getAll() {return null;}
+    public List<PedidoResumen> findPageByUsuarioId(long usuarioId, Date fechaDesde, Long idDesde, int tamañoPagina) {
+        List<PedidoResumen> pedidos = new ArrayList<>();
+        boolean primeraPagina = fechaDesde == null || idDesde == null;
+        try {
+            pedidos = UnidadDeTrabajo.leer(session -> {
+                Query<PedidoResumen> query = session.createQuery(
+                        "SELECT new com.example.gestionpedidoscondao.domain.pedido.PedidoResumen(p.id, p.codigo, p.fecha, p.total) " +
+                                "FROM Pedido p WHERE p.usuario.id = :usuarioId" +
+                                (primeraPagina ? "" : " AND (p.fecha < :fecha OR (p.fecha = :fecha AND p.id < :id))") +
+                                " ORDER BY p.fecha DESC, p.id DESC", PedidoResumen.class);
+                query.setParameter("usuarioId", usuarioId);
+                if (!primeraPagina) {
+                    query.setParameter("fecha", fechaDesde);
+                    query.setParameter("id", idDesde);
+                }
+                query.setMaxResults(tamañoPagina);
+                return query.getResultList();
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return pedidos;
+    }
 
     /**
-     * Método no implementado para obtener un Pedido por su ID.
+     * Recorre todos los pedidos de un usuario, del más reciente al más antiguo, sin cargarlos a la vez en memoria.
+     * Las filas se leen con un cursor de solo avance y el tamaño de lectura de {@link HibernateUtil#getTamañoLecturaStreaming()}:
+     * con MySQL, <code>Integer.MIN_VALUE</code>, que las entrega en streaming, ya que el conector ignora un tamaño positivo
+     * salvo con <code>useCursorFetch</code>.
+     * Los pedidos se entregan uno a uno al consumidor y la sesión se vacía cada <code>tamañoBloque</code> pedidos
+     * para que la memoria usada no crezca con el historial.
+     * Por ese vaciado usa siempre una sesión propia y no se une a la {@link UnidadDeTrabajo} en curso.
+     * Mientras dura el recorrido la conexión no admite otras consultas, así que el consumidor no debe
+     * acceder al usuario ni a los ítems del pedido.
      *
-     * @param id El ID único del Pedido a obtener.
-     * @return Pedido Retorna null ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @param usuarioId    El ID del usuario.
+     * @param tamañoBloque Número de pedidos tras los que se vacía la sesión.
+     * @param consumidor   Acción a aplicar a cada pedido.
+     * @return long Número de pedidos recorridos.
+     * @throws RuntimeException Si falla la consulta o el recorrido; no se informa como un historial vacío.
      */
-    @Override
-    public Pedido get(Long id) {return null;}
+    public long streamByUsuarioId(long usuarioId, int tamañoBloque, Consumer<Pedido> consumidor) {
+        long leidos = 0;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Pedido> query = session.createQuery(
+                    "FROM Pedido p WHERE p.usuario.id = :usuarioId ORDER BY p.fecha DESC, p.id DESC", Pedido.class);
+            query.setParameter("usuarioId", usuarioId);
+            query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("orderList"));
+            query.setFetchSize(HibernateUtil.getTamañoLecturaStreaming());
+            query.setReadOnly(true);
+            try (ScrollableResults<Pedido> pedidos = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (pedidos.next()) {
+                    consumidor.accept(pedidos.get());
+                    if (++leidos % tamañoBloque == 0) {
+                        session.clear();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw e;
+        }
+        return leidos;
+    }
 
     /**
-     * Guarda un objeto Pedido en la base de datos.
-     * Abre una sesión con Hibernate, inicia una transacción, guarda el pedido,
-     * y maneja las transacciones y excepciones correspondientes.
+     * Devuelve los códigos de los pedidos realizados entre dos fechas, ambas incluidas.
      *
-     * @param data El objeto Pedido a ser guardado.
-     * @return Pedido El objeto Pedido guardado, o null en caso de error.
+     * @param desde Fecha inicial.
+     * @param hasta Fecha final.
+     * @return List<String> Códigos de los pedidos ordenados por fecha; lista vacía si ocurre un error.
      */
-    @Override
-    public Pedido save(Pedido data) {
-        Pedido salida = null;
-        try( org.hibernate.Session s = HibernateUtil.getSessionFactory().openSession()){
-            Transaction t = s.beginTransaction();
-            s.persist(data);
-            t.commit();
-            salida = data;
-        }catch (Exception e){
+    public List<String> findCodigosByFecha(Date desde, Date hasta) {
+        List<String> codigos = new ArrayList<>();
+        try {
+            codigos = UnidadDeTrabajo.leer(session -> session.createQuery(
+                    "SELECT p.codigo FROM Pedido p WHERE p.fecha BETWEEN :desde AND :hasta ORDER BY p.fecha, p.id", String.class)
+                    .setParameter("desde", desde)
+                    .setParameter("hasta", hasta)
+                    .getResultList());
+        } catch (Exception e) {
             e.printStackTrace();
         }
-        return salida;
+        return codigos;
+    }
+
+    /**
+     * Calcula la huella de todo lo que muestra el informe de un pedido con una única consulta:
+     * el total guardado, el nombre y el email del usuario y el nombre, precio y cantidad de cada ítem.
+     * Si el pedido no está en la tabla de uso diario la calcula con los datos del archivo ({@link ArchivoPedidos}).
+     *
+     * @param codigo El código del pedido.
+     * @return HuellaPedido Huella del pedido, o null si no se encuentra o si ocurre un error.
+     */
+    public HuellaPedido findHuellaByCodigo(String codigo) {
+        try {
+            return UnidadDeTrabajo.leer(session -> {
+                List<Object[]> filas = session.createQuery(
+                        "SELECT p.total, u.id, u.nombre, u.email, ip.id, prod.nombre, prod.precio, ip.cantidad " +
+                                "FROM Pedido p LEFT JOIN p.usuario u LEFT JOIN p.itemsPedidos ip LEFT JOIN ip.producto prod " +
+                                "WHERE p.codigo = :codigo ORDER BY ip.id", Object[].class)
+                        .setParameter("codigo", codigo)
+                        .getResultList();
+                if (filas.isEmpty()) {
+                    Pedido archivado = ArchivoPedidos.buscarPedido(session, codigo);
+                    if (archivado == null) {
+                        return null;
+                    }
+                    Usuario usuario = archivado.getUsuario();
+                    return HuellaPedido.de(usuario != null ? usuario.getId() : null,
+                            usuario != null ? usuario.getNombre() : null,
+                            usuario != null ? usuario.getEmail() : null,
+                            ArchivoPedidos.buscarResumen(session, codigo), archivado.getTotal());
+                }
+                Object[] primera = filas.get(0);
+                List<ItemPedidoResumen> items = new ArrayList<>();
+                for (Object[] fila : filas) {
+                    if (fila[4] != null) {
+                        items.add(new ItemPedidoResumen(((Number) fila[4]).longValue(), (String) fila[5],
+                                fila[6] != null ? ((Number) fila[6]).doubleValue() : 0.0, ((Number) fila[7]).intValue()));
+                    }
+                }
+                return HuellaPedido.de(primera[1] != null ? ((Number) primera[1]).longValue() : null,
+                        (String) primera[2], (String) primera[3], items,
+                        primera[0] != null ? ((Number) primera[0]).doubleValue() : null);
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
     }
 
     /**
      * Encuentra un pedido por su código.
-     * Inicializa la colección de ítems asociados al pedido y recalcula el total del pedido.
+     * El total se mantiene actualizado de forma incremental al añadir o eliminar ítems,
+     * por lo que no es necesario cargar la colección de ítems para recalcularlo.
+     * Si el pedido no está en la tabla de uso diario lo busca en el archivo ({@link ArchivoPedidos});
+     * en ese caso devuelve una copia de solo lectura marcada como archivada.
      *
      * @param codigo El código del pedido a buscar.
      * @return Pedido El objeto Pedido encontrado, o null si no se encuentra o si ocurre un error.
      */
     public Pedido findByCodigo(String codigo) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Pedido pedido = session.createQuery("FROM Pedido WHERE codigo = :codigo", Pedido.class)
-                    .setParameter("codigo", codigo)
-                    .uniqueResult();
-            Hibernate.initialize(pedido.getItemsPedidos()); // Inicializar la colección
-
-            // Verificar y calcular el total
-            double total = 0.0;
-            for (ItemPedido item : pedido.getItemsPedidos()) {
-                total += item.getPrecioTotal(); // Asegúrate de que getPrecioTotal() está calculando correctamente
-            }
-            pedido.setTotal(total);
-
-            return pedido;
+        try {
+            return UnidadDeTrabajo.leer(session -> {
+                Pedido pedido = session.createNamedQuery("Pedido.findByCodigo", Pedido.class)
+                        .setParameter("codigo", codigo)
+                        .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("orderList"))
+                        .uniqueResult();
+                return pedido != null ? pedido : ArchivoPedidos.buscarPedido(session, codigo);
+            });
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -112,59 +248,251 @@ public class PedidoDAO implements DAO<Pedido> {
     }
 
     /**
-     * Método no implementado para actualizar un Pedido.
+     * Elimina un pedido y sus ítems asociados mediante {@link #deleteByCodigo(String)}.
      *
-     * @param data El objeto Pedido a actualizar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @param pedido El objeto Pedido a eliminar.
+     * @return boolean Verdadero si el pedido fue eliminado, falso si no existía o si ocurre un error.
      */
     @Override
-    public void update(Pedido data) {}
+    public boolean remove(Pedido pedido) {
+        return deleteByCodigo(pedido.getCodigo());
+    }
 
     /**
-     * Método no implementado para eliminar un Pedido.
+     * Elimina un pedido y sus ítems asociados de la base de datos según el código del pedido,
+     * y devuelve al stock de cada producto las cantidades de los ítems eliminados.
+     * Usa solo sentencias sobre conjuntos: una consulta agregada para el stock y un DELETE para los ítems y otro para el pedido,
+     * sin cargar el pedido en la sesión.
+     * Se une a la {@link UnidadDeTrabajo} en curso o, si no la hay, usa una transacción propia, y maneja posibles errores.
+     * Tras confirmar la transacción avisa del cambio mediante {@link CambiosPedido}.
      *
-     * @param data El objeto Pedido a eliminar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @param codigoPedido El código del pedido a eliminar.
+     * @return boolean Verdadero si el pedido fue eliminado, falso si no existía o si ocurre un error.
      */
-    @Override
-    public void delete(Pedido data) {}
+    public boolean deleteByCodigo(String codigoPedido) {
+        boolean salida = false;
+        try {
+            salida = UnidadDeTrabajo.escribir(session -> {
+                ReservaStock.liberar(session, cantidadesPorProducto(session.createQuery(
+                        "SELECT ip.producto.id, sum(ip.cantidad) FROM ItemPedido ip WHERE ip.pedido.codigo = :codigoPedido GROUP BY ip.producto.id", Object[].class)
+                        .setParameter("codigoPedido", codigoPedido)
+                        .getResultList()));
+                session.createMutationQuery("DELETE FROM ItemPedido ip WHERE ip.pedido.codigo = :codigoPedido")
+                        .setParameter("codigoPedido", codigoPedido)
+                        .executeUpdate();
+                return session.createMutationQuery("DELETE FROM Pedido p WHERE p.codigo = :codigoPedido")
+                        .setParameter("codigoPedido", codigoPedido)
+                        .executeUpdate() > 0;
+            });
+            UnidadDeTrabajo.despuesDeConfirmar(() -> CambiosPedido.notificar(codigoPedido));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return salida;
+    }
 
     /**
-     * Método no implementado para eliminar un Pedido.
+     * Elimina un lote de pedidos por sus IDs junto con sus ítems, devuelve al stock las cantidades de los ítems y avisa del cambio de cada pedido
+     * mediante {@link CambiosPedido} cuando se confirme la transacción.
      *
-     * @param pedido El objeto Pedido a eliminar.
-     * @return boolean Siempre retorna falso ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * @param sinEstado Sesión sin estado con la transacción en curso.
+     * @param ids       IDs de los pedidos del lote.
+     * @return int Número de pedidos eliminados.
      */
     @Override
-    public boolean remove(Pedido pedido) {
-        return false;
+    protected int borrarLote(StatelessSession sinEstado, List<Long> ids) {
+        Borrado borrado = borrarPedidos(sinEstado, ids, true, false);
+        UnidadDeTrabajo.despuesDeConfirmar(() -> borrado.codigos.forEach(CambiosPedido::notificar));
+        return borrado.pedidos;
     }
 
     /**
-     * Elimina un pedido y sus ítems asociados de la base de datos según el código del pedido.
-     * Realiza la operación en una transacción y maneja posibles errores.
+     * Purga los pedidos con los códigos indicados y sus ítems.
      *
-     * @param codigoPedido El código del pedido a eliminar.
+     * @param codigos Códigos de los pedidos.
+     * @return ResultadoPurga Pedidos e ítems eliminados y duración de cada lote.
+     * @see #purgar(String, String, String, Object, boolean)
      */
-    public void deleteByCodigo(String codigoPedido) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            session.beginTransaction();
+    public ResultadoPurga purgarPorCodigos(Collection<String> codigos) {
+        List<String> pendientes = new ArrayList<>(new LinkedHashSet<>(codigos));
+        List<LotePurga> lotes = new ArrayList<>();
+        long inicio = System.nanoTime();
+        boolean completa = true;
+        for (int i = 0; i < pendientes.size() && completa; i += PEDIDOS_POR_LOTE_PURGA) {
+            ResultadoPurga parcial = purgar("códigos", "p.codigo IN (:codigos)", "codigos",
+                    pendientes.subList(i, Math.min(i + PEDIDOS_POR_LOTE_PURGA, pendientes.size())), false);
+            lotes.addAll(parcial.getLotes());
+            completa = parcial.isCompleta();
+        }
+        return new ResultadoPurga("códigos", lotes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), completa);
+    }
+
+    /**
+     * Purga todos los pedidos de un usuario y sus ítems.
+     *
+     * @param usuarioId El ID del usuario.
+     * @return ResultadoPurga Pedidos e ítems eliminados y duración de cada lote.
+     * @see #purgar(String, String, String, Object, boolean)
+     */
+    public ResultadoPurga purgarPorUsuario(long usuarioId) {
+        return purgar("usuario " + usuarioId, "p.usuario.id = :usuarioId", "usuarioId", usuarioId, false);
+    }
+
+    /**
+     * Purga los pedidos con una antigüedad mayor que la indicada y sus ítems, por ejemplo tras archivarlos.
+     *
+     * @param dias Antigüedad mínima, en días, de los pedidos a purgar.
+     * @return ResultadoPurga Pedidos e ítems eliminados y duración de cada lote.
+     * @see #purgar(String, String, String, Object, boolean)
+     */
+    public ResultadoPurga purgarAnterioresA(int dias) {
+        Date limite = Date.from(Instant.now().minus(Duration.ofDays(dias)));
+        return purgar("anteriores a " + dias + " días", "p.fecha < :limite", "limite", limite, false);
+    }
+
+    /**
+     * Archiva los pedidos con más antigüedad que la indicada en la propiedad {@value ArchivoPedidos#PROP_DIAS_ANTIGUEDAD}
+     * (365 días por defecto).
+     *
+     * @return ResultadoPurga Pedidos e ítems archivados y duración de cada lote.
+     * @see #archivarAnterioresA(int)
+     */
+    public ResultadoPurga archivarAntiguos() {
+        return archivarAnterioresA(ArchivoPedidos.DIAS_ANTIGUEDAD);
+    }
 
-            Query itemPedidoDeleteQuery = session.createQuery("DELETE FROM ItemPedido ip WHERE ip.pedido.codigo = :codigoPedido");
-            itemPedidoDeleteQuery.setParameter("codigoPedido", codigoPedido);
-            itemPedidoDeleteQuery.executeUpdate();
+    /**
+     * Traslada a las tablas de archivo los pedidos con una antigüedad mayor que la indicada y sus ítems.
+     * Cada lote se copia al archivo y se elimina de las tablas de uso diario en la misma transacción,
+     * por lo que un pedido nunca queda en ambas tablas ni en ninguna. Como la purga, no devuelve stock.
+     *
+     * @param dias Antigüedad mínima, en días, de los pedidos a archivar.
+     * @return ResultadoPurga Pedidos e ítems archivados y duración de cada lote.
+     * @see #purgar(String, String, String, Object, boolean)
+     */
+    public ResultadoPurga archivarAnterioresA(int dias) {
+        Date limite = Date.from(Instant.now().minus(Duration.ofDays(dias)));
+        return purgar("archivo de anteriores a " + dias + " días", "p.fecha < :limite", "limite", limite, true);
+    }
 
-            Query<Pedido> pedidoQuery = session.createQuery("FROM Pedido WHERE codigo = :codigo", Pedido.class);
-            pedidoQuery.setParameter("codigo", codigoPedido);
-            Pedido pedido = pedidoQuery.uniqueResult();
-            if (pedido != null) {
-                session.remove(pedido);
+    /**
+     * Purga pedidos y sus ítems por lotes de tantos pedidos como indique la propiedad {@value #PROP_PEDIDOS_POR_LOTE_PURGA} (500 por defecto).
+     * Cada lote se selecciona por ID a continuación del anterior y se elimina con sentencias sobre conjuntos
+     * en su propia transacción, de modo que los bloqueos duran solo lo que tarda un lote y lo ya purgado
+     * queda confirmado aunque un lote posterior falle. Registra en el log los pedidos e ítems eliminados y la duración de cada lote.
+     * La purga es una tarea de mantenimiento: no devuelve stock a los productos, a diferencia de {@link #deleteByCodigo(String)}.
+     *
+     * @param criterio  Descripción del criterio, para el log y el resultado.
+     * @param condicion Condición HQL sobre el pedido <code>p</code>.
+     * @param parametro Nombre del parámetro de la condición.
+     * @param valor     Valor del parámetro; una colección se pasa como lista.
+     * @param archivar  Si es verdadero, copia cada lote a las tablas de archivo antes de eliminarlo.
+     * @return ResultadoPurga Pedidos e ítems eliminados y duración de cada lote.
+     * @throws IllegalStateException Si se llama dentro de una unidad de trabajo, que impediría acotar las transacciones.
+     */
+    private ResultadoPurga purgar(String criterio, String condicion, String parametro, Object valor, boolean archivar) {
+        if (UnidadDeTrabajo.isActiva()) {
+            throw new IllegalStateException("La purga de pedidos usa una transacción por lote y no puede ejecutarse dentro de una unidad de trabajo");
+        }
+        List<LotePurga> lotes = new ArrayList<>();
+        long inicio = System.nanoTime();
+        long ultimoId = 0;
+        boolean completa = true;
+        while (true) {
+            long desde = ultimoId;
+            long inicioLote = System.nanoTime();
+            Borrado borrado;
+            try {
+                borrado = UnidadDeTrabajo.sinEstado(sinEstado -> {
+                    Query<Long> query = sinEstado.createQuery(
+                            "SELECT p.id FROM Pedido p WHERE " + condicion + " AND p.id > :desde ORDER BY p.id", Long.class);
+                    if (valor instanceof Collection<?> lista) {
+                        query.setParameterList(parametro, lista);
+                    } else {
+                        query.setParameter(parametro, valor);
+                    }
+                    List<Long> ids = query.setParameter("desde", desde)
+                            .setMaxResults(PEDIDOS_POR_LOTE_PURGA)
+                            .getResultList();
+                    return ids.isEmpty() ? null : borrarPedidos(sinEstado, ids, false, archivar);
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                completa = false;
+                break;
+            }
+            if (borrado == null) {
+                break;
+            }
+            borrado.codigos.forEach(CambiosPedido::notificar);
+            LotePurga lote = new LotePurga(borrado.pedidos, borrado.items, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioLote));
+            lotes.add(lote);
+            log.info(String.format("Purga de pedidos (%s), lote %d: %d pedidos y %d ítems en %d ms",
+                    criterio, lotes.size(), lote.getPedidos(), lote.getItems(), lote.getDuracionMs()));
+            if (borrado.seleccionados < PEDIDOS_POR_LOTE_PURGA) {
+                break;
             }
+            ultimoId = borrado.ultimoId;
+        }
+        ResultadoPurga resultado = new ResultadoPurga(criterio, lotes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), completa);
+        log.info(String.format("Purga de pedidos (%s) %s: %d pedidos y %d ítems en %d lotes, %d ms",
+                criterio, completa ? "terminada" : "detenida por un error", resultado.getPedidos(), resultado.getItems(),
+                lotes.size(), resultado.getDuracionMs()));
+        return resultado;
+    }
 
-            session.getTransaction().commit();
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Elimina con sentencias sobre conjuntos los ítems y los pedidos de un lote de IDs.
+     *
+     * @param sinEstado    Sesión sin estado con la transacción en curso.
+     * @param ids          IDs de los pedidos, ordenados.
+     * @param liberarStock Si es verdadero, devuelve al stock las cantidades de los ítems eliminados.
+     * @param archivar     Si es verdadero, copia antes los pedidos y sus ítems a las tablas de archivo.
+     * @return Borrado Códigos de los pedidos eliminados y filas eliminadas.
+     */
+    private Borrado borrarPedidos(StatelessSession sinEstado, List<Long> ids, boolean liberarStock, boolean archivar) {
+        List<String> codigos = sinEstado.createQuery("SELECT p.codigo FROM Pedido p WHERE p.id IN (:ids)", String.class)
+                .setParameterList("ids", ids)
+                .getResultList();
+        if (codigos.isEmpty()) {
+            return new Borrado(codigos, ids.size(), ids.get(ids.size() - 1), 0, 0);
+        }
+        if (liberarStock) {
+            ReservaStock.liberar(sinEstado, cantidadesPorProducto(sinEstado.createQuery(
+                    "SELECT ip.producto.id, sum(ip.cantidad) FROM ItemPedido ip WHERE ip.pedido.codigo IN (:codigos) GROUP BY ip.producto.id", Object[].class)
+                    .setParameterList("codigos", codigos)
+                    .getResultList()));
+        }
+        if (archivar) {
+            ArchivoPedidos.copiar(sinEstado, ids);
+        }
+        int items = sinEstado.createMutationQuery("DELETE FROM ItemPedido ip WHERE ip.pedido.codigo IN (:codigos)")
+                .setParameterList("codigos", codigos)
+                .executeUpdate();
+        int pedidos = super.borrarLote(sinEstado, ids);
+        return new Borrado(codigos, ids.size(), ids.get(ids.size() - 1), pedidos, items);
+    }
+
+    /**
+     * Convierte filas (ID de producto, suma de cantidades) en el mapa que espera {@link ReservaStock}.
+     */
+    private static Map<Long, Integer> cantidadesPorProducto(List<Object[]> filas) {
+        Map<Long, Integer> cantidades = new HashMap<>();
+        for (Object[] fila : filas) {
+            cantidades.put((Long) fila[0], ((Number) fila[1]).intValue());
         }
+        return cantidades;
+    }
+
+    /**
+     * Resultado interno del borrado de un lote de pedidos.
+     */
+    @AllArgsConstructor
+    private static class Borrado {
+        private final List<String> codigos;
+        private final int seleccionados;
+        private final long ultimoId;
+        private final int pedidos;
+        private final int items;
     }
 }
@@ -0,0 +1,40 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Clase PedidoResumen.
+ * Proyección ligera de un Pedido con las columnas que muestra la tabla de pedidos:
+ * identificador, código, fecha y total.
+ * Se construye directamente desde la consulta, sin cargar el usuario ni los ítems del pedido.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PedidoResumen {
+    private final Long id;
+    private final String codigo;
+    private final Date fecha;
+    private final double total;
+
+    /**
+     * Crea un Pedido desasociado con los datos del resumen.
+     * Sirve para guardar el pedido seleccionado en la sesión de la aplicación sin volver a consultarlo.
+     *
+     * @return Pedido Pedido con id, código, fecha y total; sin usuario ni ítems.
+     */
+    public Pedido aPedido() {
+        Pedido pedido = new Pedido();
+        pedido.setId(id);
+        pedido.setCodigo(codigo);
+        pedido.setFecha(fecha);
+        pedido.setTotal(total);
+        return pedido;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import lombok.*;
+
+/**
+ * Clase ResultadoExtraccion.
+ * Resumen de una extracción hecha por {@link ExtractorPedidos}: pedidos e ítems escritos en total
+ * (incluidos los de ejecuciones anteriores si se reanudó), duración de esta ejecución,
+ * si se reanudó desde un punto de control y si llegó al final de la tabla.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ResultadoExtraccion {
+    private final long pedidos;
+    private final long items;
+    private final long duracionMs;
+    private final boolean reanudada;
+    private final boolean completa;
+}
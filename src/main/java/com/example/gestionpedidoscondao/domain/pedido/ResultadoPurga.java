@@ -0,0 +1,38 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Clase ResultadoPurga.
+ * Resumen de una purga de pedidos hecha con {@link PedidoDAO}: criterio usado, resultado de cada lote,
+ * duración total y si terminó o se detuvo por un error (los lotes anteriores al error quedan confirmados).
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ResultadoPurga {
+    private final String criterio;
+    private final List<LotePurga> lotes;
+    private final long duracionMs;
+    private final boolean completa;
+
+    /**
+     * @return long Pedidos eliminados en todos los lotes.
+     */
+    public long getPedidos() {
+        return lotes.stream().mapToLong(LotePurga::getPedidos).sum();
+    }
+
+    /**
+     * @return long Ítems eliminados en todos los lotes.
+     */
+    public long getItems() {
+        return lotes.stream().mapToLong(LotePurga::getItems).sum();
+    }
+}
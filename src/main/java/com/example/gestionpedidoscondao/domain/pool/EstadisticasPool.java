@@ -0,0 +1,26 @@
+package com.example.gestionpedidoscondao.domain.pool;
+
+import lombok.*;
+
+/**
+ * Clase EstadisticasPool.
+ * Instantánea del estado del pool de conexiones en un momento dado.
+ * Incluye las conexiones activas e inactivas, los hilos en espera y los tiempos de espera
+ * acumulados desde el arranque.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EstadisticasPool {
+    private final int activas;
+    private final int inactivas;
+    private final int hilosEsperando;
+    private final int tamañoMaximo;
+    private final long adquisiciones;
+    private final double esperaMediaMs;
+    private final long esperaMaximaMs;
+}
@@ -0,0 +1,109 @@
+package com.example.gestionpedidoscondao.domain.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.java.Log;
+import org.hibernate.HibernateException;
+import org.hibernate.hikaricp.internal.HikariCPConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase PooledConnectionProvider.
+ * Proveedor de conexiones de Hibernate basado en un pool HikariCP que, además, mide el tiempo
+ * que cada sesión espera hasta obtener una conexión.
+ * Se selecciona desde <code>hibernate.cfg.xml</code> con la propiedad
+ * <code>hibernate.connection.provider_class</code> y se configura con las propiedades
+ * <code>hibernate.hikari.*</code> (tamaño mínimo y máximo, validación, expulsión de conexiones
+ * inactivas y detección de fugas).
+ * Las estadísticas del pool se pueden consultar en tiempo de ejecución con {@link #getEstadisticas()}.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class PooledConnectionProvider extends HikariCPConnectionProvider {
+
+    /**
+     * Proveedor activo, registrado al configurarse Hibernate.
+     */
+    private static volatile PooledConnectionProvider activo;
+
+    private final LongAdder adquisiciones = new LongAdder();
+    private final LongAdder nanosEspera = new LongAdder();
+    private final AtomicLong maxNanosEspera = new AtomicLong();
+
+    /**
+     * Configura el pool a partir de las propiedades de Hibernate y lo registra como proveedor activo.
+     *
+     * @param props Propiedades de configuración de Hibernate.
+     * @throws HibernateException Si el pool no puede crearse.
+     */
+    @Override
+    public void configure(Map<String, Object> props) throws HibernateException {
+        super.configure(props);
+        activo = this;
+        log.info("Pool de conexiones iniciado: " + getEstadisticas());
+    }
+
+    /**
+     * Obtiene una conexión del pool registrando el tiempo de espera.
+     *
+     * @return Connection Conexión tomada del pool.
+     * @throws SQLException Si no se obtiene una conexión dentro del tiempo configurado.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long inicio = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            long espera = System.nanoTime() - inicio;
+            adquisiciones.increment();
+            nanosEspera.add(espera);
+            maxNanosEspera.accumulateAndGet(espera, Math::max);
+        }
+    }
+
+    /**
+     * Cierra el pool y deja de publicarlo como proveedor activo.
+     */
+    @Override
+    public void stop() {
+        super.stop();
+        if (activo == this) {
+            activo = null;
+        }
+    }
+
+    /**
+     * Devuelve una instantánea de las estadísticas del pool activo.
+     *
+     * @return EstadisticasPool Estadísticas del pool, o null si el pool todavía no se ha configurado.
+     */
+    public static EstadisticasPool getEstadisticas() {
+        PooledConnectionProvider provider = activo;
+        if (provider == null) {
+            return null;
+        }
+        HikariDataSource dataSource = provider.unwrap(HikariDataSource.class);
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        long total = provider.adquisiciones.sum();
+        double esperaMediaMs = total == 0 ? 0.0
+                : provider.nanosEspera.sum() / (double) total / TimeUnit.MILLISECONDS.toNanos(1);
+        return new EstadisticasPool(
+                pool != null ? pool.getActiveConnections() : 0,
+                pool != null ? pool.getIdleConnections() : 0,
+                pool != null ? pool.getThreadsAwaitingConnection() : 0,
+                dataSource.getMaximumPoolSize(),
+                total,
+                esperaMediaMs,
+                TimeUnit.NANOSECONDS.toMillis(provider.maxNanosEspera.get()));
+    }
+}
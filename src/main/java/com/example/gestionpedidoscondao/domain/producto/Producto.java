@@ -3,6 +3,8 @@ package com.example.gestionpedidoscondao.domain.producto;
 import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -13,6 +15,10 @@ import java.util.Set;
  * Esta clase está mapeada a la tabla "Productos" en la base de datos y
  * contiene información sobre el producto, incluyendo su identificador único, nombre, precio,
  * cantidad disponible, y un conjunto de ítems de pedido asociados al producto.
+ * La columna "version" permite el bloqueo optimista: las reservas de {@link ReservaStock} la incrementan,
+ * de modo que una modificación basada en una copia anterior del producto falla en lugar de pisar el stock.
+ * El índice sobre "nombre" sirve a la búsqueda por nombre, declarada como consulta con nombre.
+ * Las instancias se guardan en la caché de segundo nivel, en la región {@link ProductoDAO#REGION_CACHE}.
  *
  * @author Author Name
  * @version 1.0
@@ -20,14 +26,19 @@ import java.util.Set;
  */
 @Data
 @Entity
-@Table(name = "Productos")
+@Table(name = "Productos", indexes = @Index(name = "idx_productos_nombre", columnList = "nombre"))
+@NamedQuery(name = "Producto.findByNombre", query = "FROM Producto p WHERE p.nombre = :nombre")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ProductoDAO.REGION_CACHE)
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Setter
 public class Producto {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "productos_id")
+    @TableGenerator(name = "productos_id", table = "secuencias_id", pkColumnName = "entidad",
+            valueColumnName = "siguiente_valor", pkColumnValue = "Productos", initialValue = 1, allocationSize = 20)
     @Column(name = "id_productos")
     private Long id;
 
@@ -40,6 +51,12 @@ public class Producto {
     @Column(name = "cantidad_disponible")
     private int cantidadDisponible;
 
+    @Version
+    @Column(name = "version")
+    private long version;
+
     @OneToMany(mappedBy = "producto")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<ItemPedido> itemsPedidos = new HashSet<>();
 }
@@ -1,135 +1,112 @@
 package com.example.gestionpedidoscondao.domain.producto;
 
-import com.example.gestionpedidoscondao.domain.DAO;
+import com.example.gestionpedidoscondao.domain.EstadisticasCache;
+import com.example.gestionpedidoscondao.domain.HibernateDAO;
 import com.example.gestionpedidoscondao.domain.HibernateUtil;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
+import com.example.gestionpedidoscondao.domain.UnidadDeTrabajo;
+import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
 import java.util.ArrayList;
 
-
 /**
  * Clase ProductoDAO
- * Implementa la interfaz DAO para la gestión de objetos de tipo Producto en la base de datos.
- * Proporciona operaciones CRUD (Crear, Leer, Actualizar, Eliminar) para objetos Producto.
+ * Gestiona los objetos de tipo Producto en la base de datos a partir de {@link HibernateDAO},
+ * que proporciona las operaciones CRUD y las operaciones masivas.
+ * Las consultas del catálogo se sirven desde la caché de consultas de Hibernate y los productos
+ * desde la caché de segundo nivel; ambas se invalidan al confirmar cualquier modificación de productos.
  *
  * @author José Miguel Ruiz Guevara
  * @version 1.0
  * @since 2023-11-21
  */
-public class ProductoDAO implements DAO {
+public class ProductoDAO extends HibernateDAO<Producto> {
+
+    /**
+     * Región de la caché de segundo nivel que guarda las entidades Producto.
+     */
+    public static final String REGION_CACHE = "productos";
+
+    /**
+     * Región de la caché de consultas que guarda los resultados de {@link #getAll()} y {@link #findByName(String)}.
+     */
+    public static final String REGION_CONSULTAS = "productos-consultas";
+
+    public ProductoDAO() {
+        super(Producto.class);
+    }
 
     /**
      * Obtiene todos los productos de la base de datos.
-     * Abre una sesión con Hibernate, ejecuta una consulta para obtener todos los productos,
-     * y maneja las transacciones y excepciones correspondientes.
+     * Ejecuta la consulta en la unidad de trabajo en curso o, si no la hay, en una sesión propia,
+     * y maneja las excepciones correspondientes.
      *
      * @return ArrayList<Producto> Una lista de todos los objetos Producto.
      *         Retorna una lista vacía si ocurre un error.
      */
     @Override
     public ArrayList<Producto> getAll() {
-        Session session = null;
-        Transaction tx = null;
         ArrayList<Producto> productos = new ArrayList<>();
-
         try {
-            session = HibernateUtil.getSessionFactory().openSession();
-            tx = session.beginTransaction();
-
-            Query<Producto> query = session.createQuery("FROM Producto", Producto.class);
-            productos = new ArrayList<>(query.list());
-
-            tx.commit();
+            productos = UnidadDeTrabajo.leer(session -> new ArrayList<>(session.createQuery("FROM Producto", Producto.class)
+                    .setCacheable(true)
+                    .setCacheRegion(REGION_CONSULTAS)
+                    .list()));
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
             e.printStackTrace();
-        } finally {
-            if (session != null) session.close();
         }
-
         return productos;
     }
 
     /**
-     * Método no implementado para obtener un Producto por su ID.
-     *
-     * @param id El ID único del Producto a obtener.
-     * @return Producto Retorna null ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
-     */
-    @Override
-    public Producto get(Long id) {return null;}
-
-    /**
-     * Guarda un objeto Producto en la base de datos.
-     * Abre una sesión con Hibernate, inicia una transacción, guarda el producto,
-     * y maneja las transacciones y excepciones correspondientes.
+     * Busca un producto por su nombre en la base de datos.
+     * Ejecuta la consulta en la unidad de trabajo en curso o, si no la hay, en una sesión propia,
+     * y maneja las excepciones correspondientes.
      *
-     * @param data El objeto Producto a ser guardado.
-     * @return Producto El objeto Producto guardado, o null en caso de error.
+     * @param nombre El nombre del producto a buscar.
+     * @return Producto El objeto Producto encontrado, o null si no se encuentra o si ocurre un error.
      */
-    @Override
-    public Producto save(Object data) {
-        Producto producto = (Producto) data;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            session.beginTransaction();
-            session.save(producto);
-            session.getTransaction().commit();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+    public Producto findByName(String nombre) {
+            Producto producto = null;
+            try {
+                producto = UnidadDeTrabajo.leer(session -> {
+                    Query<Producto> query = session.createNamedQuery("Producto.findByNombre", Producto.class)
+                            .setCacheable(true)
+                            .setCacheRegion(REGION_CONSULTAS);
+                    query.setParameter("nombre", nombre);
+                    return query.uniqueResult();
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return producto;
         }
-        return producto;
-    }
-
-    /**
-     * Método no implementado para actualizar un Producto.
-     *
-     * @param data El objeto Producto a actualizar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
-     */
-    @Override
-    public void update(Object data) {}
 
     /**
-     * Método no implementado para eliminar un Producto.
-     *
-     * @param data El objeto Producto a eliminar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * Invalida la caché del catálogo cuando se confirman cambios hechos a través de este DAO.
      */
     @Override
-    public void delete(Object data) {}
+    protected void alConfirmarCambios() {
+        invalidarCache();
+    }
 
     /**
-     * Método no implementado para eliminar un Producto.
-     *
-     * @param o El objeto Producto a eliminar.
-     * @return boolean Siempre retorna falso ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
+     * Vacía las regiones de caché de productos y de consultas del catálogo.
+     * Se llama tras cualquier modificación de productos para que el catálogo no quede desactualizado.
      */
-    @Override
-    public boolean remove(Object o) {
-        return false;
+    public static void invalidarCache() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        if (sf != null) {
+            sf.getCache().evictEntityData(Producto.class);
+            sf.getCache().evictQueryRegion(REGION_CONSULTAS);
+        }
     }
 
     /**
-     * Busca un producto por su nombre en la base de datos.
-     * Abre una sesión con Hibernate, ejecuta una consulta para buscar el producto por nombre,
-     * y maneja las excepciones correspondientes.
+     * Devuelve los aciertos y fallos acumulados de la caché de productos.
      *
-     * @param nombre El nombre del producto a buscar.
-     * @return Producto El objeto Producto encontrado, o null si no se encuentra o si ocurre un error.
+     * @return EstadisticasCache Estadísticas de las regiones de productos y de consultas del catálogo.
      */
-    public Producto findByName(String nombre) {
-            Producto producto = null;
-            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-                Query<Producto> query = session.createQuery("FROM Producto WHERE nombre = :nombre", Producto.class);
-                query.setParameter("nombre", nombre);
-                producto = query.uniqueResult();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            return producto;
-        }
-    }
\ No newline at end of file
+    public static EstadisticasCache getEstadisticasCache() {
+        return EstadisticasCache.de(REGION_CACHE, REGION_CONSULTAS);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.example.gestionpedidoscondao.domain.producto;
+
+import com.example.gestionpedidoscondao.domain.UnidadDeTrabajo;
+import org.hibernate.SharedSessionContract;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Clase ReservaStock.
+ * Descuenta y devuelve la cantidad disponible de los productos dentro de la transacción de la sesión recibida.
+ * Cada reserva es un lote JDBC con una sentencia condicional por producto
+ * (<code>UPDATE ... WHERE cantidad_disponible &gt;= ?</code>): la comprobación y el descuento son atómicos
+ * en la base de datos, por lo que compradores simultáneos no pueden vender más unidades de las que hay.
+ * Si algún producto no tiene stock suficiente se lanza {@link StockInsuficienteException} y,
+ * al deshacerse la transacción, no se descuenta nada.
+ * Los productos se actualizan siempre en orden de ID para que dos compras simultáneas no se bloqueen mutuamente.
+ * Las sentencias incrementan la versión del producto y, al confirmarse, se invalida la caché del catálogo.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public class ReservaStock {
+
+    private static final String RESERVAR = "UPDATE Productos SET cantidad_disponible = cantidad_disponible - ?, version = version + 1 " +
+            "WHERE id_productos = ? AND cantidad_disponible >= ?";
+    private static final String LIBERAR = "UPDATE Productos SET cantidad_disponible = cantidad_disponible + ?, version = version + 1 " +
+            "WHERE id_productos = ?";
+
+    private ReservaStock() {
+    }
+
+    /**
+     * Descuenta las cantidades indicadas del stock de cada producto.
+     *
+     * @param sesion     Sesión con la transacción en curso.
+     * @param cantidades Cantidad a descontar por ID de producto.
+     * @throws StockInsuficienteException Si algún producto no existe o no tiene stock suficiente.
+     * @throws IllegalArgumentException   Si alguna cantidad no es positiva.
+     */
+    public static void reservar(SharedSessionContract sesion, Map<Long, Integer> cantidades) {
+        Map<Long, Integer> ordenadas = ordenar(cantidades, true);
+        if (ordenadas.isEmpty()) {
+            return;
+        }
+        Set<Long> sinStock = sesion.doReturningWork(conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(RESERVAR)) {
+                for (Map.Entry<Long, Integer> linea : ordenadas.entrySet()) {
+                    ps.setInt(1, linea.getValue());
+                    ps.setLong(2, linea.getKey());
+                    ps.setInt(3, linea.getValue());
+                    ps.addBatch();
+                }
+                int[] actualizadas = ps.executeBatch();
+                Set<Long> fallidos = new TreeSet<>();
+                int i = 0;
+                for (Long id : ordenadas.keySet()) {
+                    int filas = actualizadas[i++];
+                    if (filas == Statement.SUCCESS_NO_INFO) {
+                        throw new IllegalStateException("El driver JDBC no informa de las filas actualizadas; no se puede verificar la reserva");
+                    }
+                    if (filas == 0) {
+                        fallidos.add(id);
+                    }
+                }
+                return fallidos;
+            }
+        });
+        if (!sinStock.isEmpty()) {
+            throw new StockInsuficienteException(sinStock);
+        }
+        UnidadDeTrabajo.despuesDeConfirmar(ProductoDAO::invalidarCache);
+    }
+
+    /**
+     * Devuelve al stock de cada producto las cantidades indicadas, por ejemplo al borrar ítems o pedidos.
+     *
+     * @param sesion     Sesión con la transacción en curso.
+     * @param cantidades Cantidad a devolver por ID de producto; las cantidades nulas o no positivas se ignoran.
+     */
+    public static void liberar(SharedSessionContract sesion, Map<Long, Integer> cantidades) {
+        Map<Long, Integer> ordenadas = ordenar(cantidades, false);
+        if (ordenadas.isEmpty()) {
+            return;
+        }
+        sesion.doWork(conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(LIBERAR)) {
+                for (Map.Entry<Long, Integer> linea : ordenadas.entrySet()) {
+                    ps.setInt(1, linea.getValue());
+                    ps.setLong(2, linea.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+        UnidadDeTrabajo.despuesDeConfirmar(ProductoDAO::invalidarCache);
+    }
+
+    private static Map<Long, Integer> ordenar(Map<Long, Integer> cantidades, boolean estricto) {
+        Map<Long, Integer> ordenadas = new TreeMap<>();
+        cantidades.forEach((id, cantidad) -> {
+            if (cantidad == null || cantidad <= 0) {
+                if (estricto) {
+                    throw new IllegalArgumentException("Cantidad no válida para el producto " + id + ": " + cantidad);
+                }
+                return;
+            }
+            ordenadas.merge(id, cantidad, Integer::sum);
+        });
+        return ordenadas;
+    }
+}
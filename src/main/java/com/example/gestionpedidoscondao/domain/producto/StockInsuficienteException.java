@@ -0,0 +1,26 @@
+package com.example.gestionpedidoscondao.domain.producto;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Clase StockInsuficienteException.
+ * Se lanza cuando una reserva de {@link ReservaStock} no puede descontar la cantidad pedida de algún producto.
+ * Al ser una excepción no comprobada, deshace la transacción o unidad de trabajo en curso,
+ * de modo que no se descuenta el stock de ninguna línea.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+public class StockInsuficienteException extends IllegalStateException {
+
+    private final Set<Long> productos; // IDs de los productos sin stock suficiente
+
+    public StockInsuficienteException(Set<Long> productos) {
+        super("Stock insuficiente para los productos " + productos);
+        this.productos = productos;
+    }
+}
@@ -11,6 +11,8 @@ import java.util.List;
  * Representa un usuario en la base de datos.
  * Esta clase está mapeada a la tabla "usuarios" en la base de datos y contiene información sobre el usuario,
  * incluyendo su identificador único, nombre, contraseña, email y una lista de pedidos asociados al usuario.
+ * La lista de pedidos se carga de forma perezosa; el grafo "login" carga solo los datos del usuario.
+ * El índice sobre "nombre" sirve a la validación de credenciales, declarada como consulta con nombre.
  *
  * @author Author Name
  * @version 1.0
@@ -18,14 +20,18 @@ import java.util.List;
  */
 @Data
 @Entity
-@Table(name = "usuarios")
+@Table(name = "usuarios", indexes = @Index(name = "idx_usuarios_nombre", columnList = "nombre"))
+@NamedQuery(name = "Usuario.validar", query = "FROM Usuario u WHERE u.nombre = :u AND u.contraseña = :p")
+@NamedEntityGraph(name = "login")
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Setter
 public class Usuario {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "usuarios_id")
+    @TableGenerator(name = "usuarios_id", table = "secuencias_id", pkColumnName = "entidad",
+            valueColumnName = "siguiente_valor", pkColumnValue = "usuarios", initialValue = 1, allocationSize = 10)
     @Column(name = "id_usuarios")
     private Long id;
 
@@ -38,8 +44,8 @@ public class Usuario {
     @Column(name = "email")
     private String email;
 
-
-    @OneToMany(mappedBy = "usuario", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "usuario")
+    @EqualsAndHashCode.Exclude
     private List<Pedido> pedidos;
 
     @Override
@@ -1,116 +1,47 @@
 package com.example.gestionpedidoscondao.domain.usuario;
 
-import com.example.gestionpedidoscondao.domain.DAO;
-import com.example.gestionpedidoscondao.domain.HibernateUtil;
-import org.hibernate.Session;
+import com.example.gestionpedidoscondao.domain.HibernateDAO;
+import com.example.gestionpedidoscondao.domain.UnidadDeTrabajo;
+import org.hibernate.jpa.SpecHints;
 import org.hibernate.query.Query;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Clase UsuarioDAO.
- * Implementa la interfaz DAO para la gestión de objetos de tipo Usuario en la base de datos.
- * Permite realizar operaciones como buscar, guardar, actualizar y eliminar usuarios.
+ * Gestiona los objetos de tipo Usuario en la base de datos a partir de {@link HibernateDAO},
+ * que proporciona las operaciones para buscar, guardar, actualizar y eliminar usuarios, también de forma masiva.
  *
  * @author Author Name
  * @version 1.0
  * @since 2023-11-21
  */
-public class UsuarioDAO implements DAO {
+public class UsuarioDAO extends HibernateDAO<Usuario> {
 
-    /**
-     * Método no implementado para obtener todos los usuarios.
-     *
-     * @return ArrayList<Usuario> Retorna null ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
-     */
-    @Override
-    public ArrayList<Usuario> getAll() {return null;}
-
-    /**
-     * Método no implementado para obtener un Usuario por su ID.
-     *
-     * @param id El ID único del Usuario a obtener.
-     * @return Usuario Retorna null ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
-     */
-    @Override
-    public Usuario get(Long id) {return null;}
-
-    /**
-     * Guarda un objeto Usuario en la base de datos.
-     * Abre una sesión con Hibernate, inicia una transacción, guarda el usuario,
-     * y maneja las transacciones y excepciones correspondientes.
-     *
-     * @param data El objeto Usuario a ser guardado.
-     * @return Usuario El objeto Usuario guardado, o null en caso de error.
-     */
-    @Override
-    public Usuario save(Object data) {
-        Usuario usuario = (Usuario) data;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            session.beginTransaction();
-            session.save(usuario);
-            session.getTransaction().commit();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-        return usuario;
-    }
-
-    /**
-     * Método no implementado para actualizar un Usuario.
-     *
-     * @param data El objeto Usuario a actualizar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
-     */
-    @Override
-    public void update(Object data) {}
-
-    /**
-     * Método no implementado para eliminar un Usuario.
-     *
-     * @param data El objeto Usuario a eliminar.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
-     */
-    @Override
-    public void delete(Object data) {}
-
-    /**
-     * Método no implementado para eliminar un Usuario.
-     *
-     * @param o El objeto Usuario a eliminar.
-     * @return boolean Siempre retorna falso ya que el método no está implementado.
-     * @deprecated Este método no está implementado. Su uso no es recomendado.
-     */
-    @Override
-    public boolean remove(Object o) {
-        return false;
+    public UsuarioDAO() {
+        super(Usuario.class);
     }
 
     /**
      * Valida las credenciales de un usuario.
      * Realiza una consulta en la base de datos para verificar si existe un usuario con el nombre de usuario y contraseña proporcionados.
+     * Usa el grafo "login", que carga solo los datos del usuario y no su historial de pedidos.
      *
      * @param username Nombre de usuario a validar.
      * @param password Contraseña a validar.
      * @return Usuario El usuario validado, o null si las credenciales no son válidas o si ocurre un error.
      */
     public Usuario validateUser(String username, String password){
-        Usuario result = null;
-        try( Session session = HibernateUtil.getSessionFactory().openSession()){
-            Query<Usuario> q = session.createQuery("from Usuario where nombre=:u and contraseña=:p",Usuario.class);
+        return UnidadDeTrabajo.leer(session -> {
+            Query<Usuario> q = session.createNamedQuery("Usuario.validar", Usuario.class);
             q.setParameter("u",username);
             q.setParameter("p",password);
+            q.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph("login"));
 
             try {
-                result = q.getSingleResult();
+                return q.getSingleResult();
             } catch (Exception e) {
                 System.out.println(e.getMessage());
+                return null;
             }
-        }
-        return result;
+        });
     }
 }
\ No newline at end of file
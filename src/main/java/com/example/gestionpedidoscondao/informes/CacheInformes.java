@@ -0,0 +1,251 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.pedido.CambiosPedido;
+import com.example.gestionpedidoscondao.domain.pedido.HuellaPedido;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Clase CacheInformes.
+ * Guarda en disco los informes ya exportados para no volver a generarlos mientras el pedido no cambie.
+ * Cada entrada se identifica por el código del pedido, la {@link HuellaPedido} de todo lo que muestra el informe,
+ * la versión de la plantilla y el formato; si cualquiera de ellos cambia, la clave es otra.
+ * Cuando el tamaño total supera el máximo se eliminan primero las entradas usadas hace más tiempo.
+ * Las entradas de un pedido se borran en cuanto {@link CambiosPedido} avisa de que ha cambiado.
+ * <p>
+ * El directorio y el tamaño máximo se configuran con las propiedades del sistema
+ * <code>informes.directorioCache</code> e <code>informes.tamañoMaximoCacheMb</code>.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class CacheInformes {
+
+    /**
+     * Propiedad del sistema con el directorio de la caché.
+     */
+    public static final String PROP_DIRECTORIO = "informes.directorioCache";
+    /**
+     * Propiedad del sistema con el tamaño máximo de la caché en megabytes.
+     */
+    public static final String PROP_TAMAÑO_MAXIMO_MB = "informes.tamañoMaximoCacheMb";
+
+    private static final String DIRECTORIO_POR_DEFECTO = "cache-informes";
+    private static final long TAMAÑO_MAXIMO_POR_DEFECTO_MB = 256;
+
+    private static CacheInformes instancia;
+
+    private final Path directorio;
+    private final long tamañoMaximo;
+    private final LinkedHashMap<String, Long> entradas = new LinkedHashMap<>(16, 0.75f, true); // Fichero -> bytes, en orden de uso
+    private long tamañoTotal;
+    private long aciertos;
+    private long fallos;
+
+    private CacheInformes(Path directorio, long tamañoMaximo) {
+        this.directorio = directorio.toAbsolutePath();
+        this.tamañoMaximo = tamañoMaximo;
+    }
+
+    /**
+     * Devuelve la caché compartida, creándola la primera vez con la configuración de las propiedades del sistema.
+     *
+     * @return CacheInformes Instancia única de la caché.
+     */
+    public static synchronized CacheInformes getInstancia() {
+        if (instancia == null) {
+            instancia = new CacheInformes(Paths.get(System.getProperty(PROP_DIRECTORIO, DIRECTORIO_POR_DEFECTO)),
+                    Long.getLong(PROP_TAMAÑO_MAXIMO_MB, TAMAÑO_MAXIMO_POR_DEFECTO_MB) * 1024 * 1024);
+            instancia.cargarIndice();
+            CambiosPedido.suscribir(instancia::invalidar);
+        }
+        return instancia;
+    }
+
+    /**
+     * Copia el informe guardado en la caché al fichero de destino, si existe.
+     *
+     * @param codigoPedido     El código del pedido.
+     * @param huella           Huella del contenido actual del pedido.
+     * @param versionPlantilla Versión de la plantilla con la que se generaría el informe.
+     * @param formato          Formato del informe.
+     * @param destino          Fichero al que copiar el informe.
+     * @return boolean Verdadero si el informe estaba en la caché y se ha copiado.
+     */
+    public boolean copiar(String codigoPedido, HuellaPedido huella, long versionPlantilla, FormatoExportacion formato, File destino) {
+        String nombre = nombreEntrada(codigoPedido, huella, versionPlantilla, formato);
+        synchronized (this) {
+            if (entradas.get(nombre) == null) { // get, y no containsKey, para marcarla como usada
+                fallos++;
+                return false;
+            }
+            aciertos++;
+        }
+        try {
+            Path entrada = directorio.resolve(nombre);
+            Files.copy(entrada, destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(entrada, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            // La entrada ha desaparecido del disco: se olvida y se genera de nuevo
+            olvidar(nombre);
+            return false;
+        }
+    }
+
+    /**
+     * Guarda en la caché una copia de un informe recién exportado.
+     *
+     * @param codigoPedido     El código del pedido.
+     * @param huella           Huella del contenido del pedido con el que se generó el informe.
+     * @param versionPlantilla Versión de la plantilla con la que se generó el informe.
+     * @param formato          Formato del informe.
+     * @param origen           Fichero exportado.
+     */
+    public void guardar(String codigoPedido, HuellaPedido huella, long versionPlantilla, FormatoExportacion formato, File origen) {
+        String nombre = nombreEntrada(codigoPedido, huella, versionPlantilla, formato);
+        try {
+            Path temporal = Files.createTempFile(directorio, nombre, ".tmp");
+            Files.copy(origen.toPath(), temporal, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporal, directorio.resolve(nombre), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long tamaño = Files.size(directorio.resolve(nombre));
+            synchronized (this) {
+                Long anterior = entradas.put(nombre, tamaño);
+                tamañoTotal += tamaño - (anterior != null ? anterior : 0);
+                expulsar();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Elimina de la caché todos los informes de un pedido.
+     *
+     * @param codigoPedido El código del pedido.
+     */
+    public void invalidar(String codigoPedido) {
+        String prefijo = prefijo(codigoPedido);
+        List<String> eliminar;
+        synchronized (this) {
+            eliminar = entradas.keySet().stream().filter(nombre -> nombre.startsWith(prefijo)).toList();
+        }
+        eliminar.forEach(this::olvidar);
+        if (!eliminar.isEmpty()) {
+            log.fine("Caché de informes: " + eliminar.size() + " entradas del pedido " + codigoPedido + " invalidadas");
+        }
+    }
+
+    /**
+     * Devuelve un resumen del uso de la caché.
+     *
+     * @return String Entradas, tamaño ocupado y tasa de aciertos.
+     */
+    public synchronized String getResumen() {
+        long consultas = aciertos + fallos;
+        return String.format("%d entradas, %d/%d KB, %d aciertos de %d consultas (%.1f%%)",
+                entradas.size(), tamañoTotal / 1024, tamañoMaximo / 1024, aciertos, consultas,
+                consultas == 0 ? 0.0 : aciertos * 100.0 / consultas);
+    }
+
+    /**
+     * Elimina las entradas menos usadas hasta que el tamaño total no supere el máximo.
+     * Debe llamarse con el monitor de la caché adquirido.
+     */
+    private void expulsar() {
+        Iterator<Map.Entry<String, Long>> it = entradas.entrySet().iterator();
+        while (tamañoTotal > tamañoMaximo && it.hasNext()) {
+            Map.Entry<String, Long> entrada = it.next();
+            it.remove();
+            tamañoTotal -= entrada.getValue();
+            borrar(entrada.getKey());
+        }
+    }
+
+    private void olvidar(String nombre) {
+        synchronized (this) {
+            Long tamaño = entradas.remove(nombre);
+            if (tamaño != null) {
+                tamañoTotal -= tamaño;
+            }
+        }
+        borrar(nombre);
+    }
+
+    private void borrar(String nombre) {
+        try {
+            Files.deleteIfExists(directorio.resolve(nombre));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reconstruye el índice a partir de los ficheros del directorio, del usado hace más tiempo al más reciente.
+     */
+    private synchronized void cargarIndice() {
+        try {
+            Files.createDirectories(directorio);
+            try (Stream<Path> ficheros = Files.list(directorio)) {
+                for (Path fichero : ficheros.sorted(Comparator.comparing(CacheInformes::fechaModificacion)).toList()) {
+                    if (fichero.getFileName().toString().endsWith(".tmp")) {
+                        Files.deleteIfExists(fichero);
+                        continue;
+                    }
+                    long tamaño = Files.size(fichero);
+                    entradas.put(fichero.getFileName().toString(), tamaño);
+                    tamañoTotal += tamaño;
+                }
+            }
+            expulsar();
+            log.info("Caché de informes en " + directorio + ": " + getResumen());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static FileTime fechaModificacion(Path fichero) {
+        try {
+            return Files.getLastModifiedTime(fichero);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Forma el nombre de fichero de una entrada: el código del pedido seguido de un resumen SHA-256
+     * de la huella, la versión de la plantilla y el formato.
+     */
+    private static String nombreEntrada(String codigoPedido, HuellaPedido huella, long versionPlantilla, FormatoExportacion formato) {
+        String contenido = codigoPedido + "|" + huella.getClave() + "|" + versionPlantilla + "|" + formato;
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(contenido.getBytes(StandardCharsets.UTF_8));
+            return prefijo(codigoPedido) + HexFormat.of().formatHex(resumen, 0, 16) + "." + formato.getExtension();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String prefijo(String codigoPedido) {
+        return codigoPedido + "-";
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.gestionpedidoscondao.informes;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperPrint;
+
+import java.io.OutputStream;
+
+/**
+ * Interfaz Exportador.
+ * Convierte un informe ya relleno a un formato concreto escribiéndolo en un flujo de salida.
+ * El exportador no cierra el flujo; de eso se encarga quien lo abre.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@FunctionalInterface
+public interface Exportador {
+
+    /**
+     * Escribe el informe en el flujo de salida.
+     *
+     * @param jasperPrint Informe relleno.
+     * @param salida      Flujo de destino.
+     * @throws JRException Si ocurre un error durante la exportación.
+     */
+    void exportar(JasperPrint jasperPrint, OutputStream salida) throws JRException;
+}
@@ -0,0 +1,179 @@
+package com.example.gestionpedidoscondao.informes;
+
+import lombok.extern.java.Log;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperPrint;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase ExportadorInformes.
+ * Registro de exportadores por formato y punto único por el que se escriben los informes rellenos.
+ * Un mismo {@link JasperPrint} puede exportarse a varios formatos sin volver a rellenarlo.
+ * Cada exportación se escribe directamente en un flujo y se mide: tiempo y bytes por formato,
+ * consultables con {@link #getMetricas()}.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class ExportadorInformes {
+
+    private static final Map<FormatoExportacion, Exportador> exportadores = new EnumMap<>(FormatoExportacion.class);
+    private static final Map<FormatoExportacion, Contador> contadores = new EnumMap<>(FormatoExportacion.class);
+
+    static {
+        for (FormatoExportacion formato : FormatoExportacion.values()) {
+            exportadores.put(formato, formato.getExportadorPorDefecto());
+            contadores.put(formato, new Contador());
+        }
+    }
+
+    private ExportadorInformes() {
+    }
+
+    /**
+     * Sustituye el exportador de un formato, por ejemplo para cambiar su configuración.
+     *
+     * @param formato    Formato a sustituir.
+     * @param exportador Nuevo exportador.
+     */
+    public static synchronized void registrar(FormatoExportacion formato, Exportador exportador) {
+        exportadores.put(formato, exportador);
+    }
+
+    /**
+     * Exporta un informe a un flujo de salida en el formato indicado.
+     *
+     * @param jasperPrint Informe relleno.
+     * @param formato     Formato de salida.
+     * @param salida      Flujo de destino; no se cierra.
+     * @throws JRException Si ocurre un error durante la exportación.
+     */
+    public static void exportar(JasperPrint jasperPrint, FormatoExportacion formato, OutputStream salida) throws JRException {
+        Exportador exportador;
+        synchronized (ExportadorInformes.class) {
+            exportador = exportadores.get(formato);
+        }
+        SalidaContada contada = new SalidaContada(salida);
+        long inicio = System.nanoTime();
+        exportador.exportar(jasperPrint, contada);
+        long nanos = System.nanoTime() - inicio;
+        contadores.get(formato).registrar(nanos, contada.bytes);
+        log.fine("Informe exportado a " + formato + " en " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms (" + contada.bytes + " bytes)");
+    }
+
+    /**
+     * Exporta un informe a un fichero en el formato indicado.
+     *
+     * @param jasperPrint Informe relleno.
+     * @param formato     Formato de salida.
+     * @param fichero     Fichero de destino.
+     * @throws JRException Si ocurre un error durante la exportación o al escribir el fichero.
+     */
+    public static void exportar(JasperPrint jasperPrint, FormatoExportacion formato, File fichero) throws JRException {
+        try (OutputStream salida = new BufferedOutputStream(new FileOutputStream(fichero))) {
+            exportar(jasperPrint, formato, salida);
+        } catch (IOException e) {
+            throw new JRException(e);
+        }
+    }
+
+    /**
+     * Exporta un mismo informe a varios formatos, un fichero por formato.
+     *
+     * @param jasperPrint Informe relleno.
+     * @param formatos    Formatos de salida.
+     * @param directorio  Directorio de destino.
+     * @param nombreBase  Nombre de los ficheros, sin extensión.
+     * @return Map Fichero generado para cada formato.
+     * @throws JRException Si ocurre un error durante alguna exportación.
+     */
+    public static Map<FormatoExportacion, File> exportar(JasperPrint jasperPrint, Collection<FormatoExportacion> formatos,
+                                                        Path directorio, String nombreBase) throws JRException {
+        Map<FormatoExportacion, File> ficheros = new EnumMap<>(FormatoExportacion.class);
+        for (FormatoExportacion formato : formatos) {
+            File fichero = directorio.resolve(nombreBase + "." + formato.getExtension()).toFile();
+            exportar(jasperPrint, formato, fichero);
+            ficheros.put(formato, fichero);
+        }
+        return ficheros;
+    }
+
+    /**
+     * Devuelve las métricas acumuladas de cada formato desde el arranque.
+     *
+     * @return Map Métricas por formato.
+     */
+    public static Map<FormatoExportacion, MetricaExportacion> getMetricas() {
+        Map<FormatoExportacion, MetricaExportacion> metricas = new EnumMap<>(FormatoExportacion.class);
+        contadores.forEach((formato, contador) -> metricas.put(formato, contador.instantanea(formato)));
+        return metricas;
+    }
+
+    /**
+     * Acumuladores de tiempo y tamaño de las exportaciones de un formato.
+     */
+    private static class Contador {
+        private final LongAdder exportaciones = new LongAdder();
+        private final LongAdder nanosTotales = new LongAdder();
+        private final LongAdder bytesTotales = new LongAdder();
+        private final AtomicLong nanosMaximos = new AtomicLong();
+
+        void registrar(long nanos, long bytes) {
+            exportaciones.increment();
+            nanosTotales.add(nanos);
+            bytesTotales.add(bytes);
+            nanosMaximos.accumulateAndGet(nanos, Math::max);
+        }
+
+        MetricaExportacion instantanea(FormatoExportacion formato) {
+            long n = exportaciones.sum();
+            return new MetricaExportacion(formato, n,
+                    n == 0 ? 0.0 : nanosTotales.sum() / 1_000_000.0 / n,
+                    TimeUnit.NANOSECONDS.toMillis(nanosMaximos.get()),
+                    n == 0 ? 0 : bytesTotales.sum() / n);
+        }
+    }
+
+    /**
+     * Flujo que cuenta los bytes escritos sin cerrar el flujo subyacente.
+     */
+    private static class SalidaContada extends FilterOutputStream {
+        private long bytes;
+
+        SalidaContada(OutputStream salida) {
+            super(salida);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.gestionpedidoscondao.informes;
+
+import lombok.Getter;
+import net.sf.jasperreports.engine.export.HtmlExporter;
+import net.sf.jasperreports.engine.export.JRCsvExporter;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
+import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleHtmlExporterOutput;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
+import net.sf.jasperreports.export.SimpleWriterExporterOutput;
+import net.sf.jasperreports.export.SimpleXlsxReportConfiguration;
+
+/**
+ * Enumeración FormatoExportacion.
+ * Formatos a los que se puede exportar un informe, con la extensión de fichero de cada uno
+ * y el {@link Exportador} que se usa por defecto (puede sustituirse en {@link ExportadorInformes}).
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public enum FormatoExportacion {
+
+    PDF("pdf", (jasperPrint, salida) -> {
+        JRPdfExporter exporter = new JRPdfExporter();
+        exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+        exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(salida));
+        exporter.exportReport();
+    }),
+
+    CSV("csv", (jasperPrint, salida) -> {
+        JRCsvExporter exporter = new JRCsvExporter();
+        exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+        exporter.setExporterOutput(new SimpleWriterExporterOutput(salida, "UTF-8"));
+        exporter.exportReport();
+    }),
+
+    XLSX("xlsx", (jasperPrint, salida) -> {
+        SimpleXlsxReportConfiguration configuracion = new SimpleXlsxReportConfiguration();
+        configuracion.setOnePagePerSheet(false);
+        configuracion.setRemoveEmptySpaceBetweenRows(true);
+        configuracion.setDetectCellType(true);
+        JRXlsxExporter exporter = new JRXlsxExporter();
+        exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+        exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(salida));
+        exporter.setConfiguration(configuracion);
+        exporter.exportReport();
+    }),
+
+    HTML("html", (jasperPrint, salida) -> {
+        HtmlExporter exporter = new HtmlExporter();
+        exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+        exporter.setExporterOutput(new SimpleHtmlExporterOutput(salida, "UTF-8"));
+        exporter.exportReport();
+    });
+
+    @Getter
+    private final String extension; // Extensión de fichero, sin punto
+    @Getter
+    private final Exportador exportadorPorDefecto; // Exportador de JasperReports para este formato
+
+    FormatoExportacion(String extension, Exportador exportadorPorDefecto) {
+        this.extension = extension;
+        this.exportadorPorDefecto = exportadorPorDefecto;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.pedido.PedidoDAO;
+import lombok.extern.java.Log;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
+import org.hibernate.Session;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase InformesPorLotes.
+ * Genera los informes de muchos pedidos de una vez, por ejemplo al cierre de mes.
+ * Reparte los pedidos entre un número limitado de hilos; cada hilo usa una única sesión
+ * para rellenar todos los informes que le tocan, incluidos los de pedidos archivados (ver {@link ServicioInformes}).
+ * El resultado puede ser un PDF por pedido o un único PDF con todos los informes en el orden recibido.
+ * Con un PDF por pedido, cada informe usa su propio virtualizador, que pasa a solo lectura para exportar y se libera
+ * en cuanto el PDF está escrito, de modo que ni las páginas en memoria ni el fichero de intercambio crecen con el lote.
+ * Al fusionar, los informes de cada parte comparten un virtualizador, de modo que las páginas en memoria están limitadas
+ * aunque se fusionen muchos pedidos.
+ * Para fusionar, en cambio, hay que conservar cada informe relleno hasta exportarlos todos juntos; por eso un lote fusionado
+ * se divide en partes de como mucho <code>informes.maximoFusionado</code> pedidos (250 por defecto), y cada parte se escribe
+ * en su propio PDF (<code>GestorPedidos_lote_1.pdf</code>, <code>GestorPedidos_lote_2.pdf</code>...) y se libera antes de
+ * rellenar la siguiente. Si el lote cabe en una parte, el fichero es <code>GestorPedidos_lote.pdf</code>.
+ * Devuelve un {@link ResultadoLote} con el rendimiento obtenido.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class InformesPorLotes {
+
+    /**
+     * Propiedad del sistema con el número máximo de pedidos que se fusionan en un mismo PDF.
+     */
+    public static final String PROP_MAXIMO_FUSIONADO = "informes.maximoFusionado";
+
+    static final int MAXIMO_FUSIONADO = Math.max(1, Integer.getInteger(PROP_MAXIMO_FUSIONADO, 250));
+
+    private final int hilos;
+
+    /**
+     * Crea un generador por lotes.
+     *
+     * @param hilos Número máximo de informes que se rellenan en paralelo; no debería superar el tamaño del pool de conexiones.
+     */
+    public InformesPorLotes(int hilos) {
+        this.hilos = Math.max(1, hilos);
+    }
+
+    /**
+     * Genera los informes de los pedidos realizados entre dos fechas.
+     *
+     * @param desde     Fecha inicial, incluida.
+     * @param hasta     Fecha final, incluida.
+     * @param destino   Directorio de salida.
+     * @param fusionado Si es verdadero, se escriben uno o varios PDF fusionados (ver {@link #PROP_MAXIMO_FUSIONADO});
+     *                  si no, un PDF por pedido.
+     * @return ResultadoLote Resumen de rendimiento del lote.
+     * @throws Exception Si no se puede crear el directorio o escribir el PDF fusionado.
+     */
+    public ResultadoLote generar(Date desde, Date hasta, Path destino, boolean fusionado) throws Exception {
+        return generar(new PedidoDAO().findCodigosByFecha(desde, hasta), destino, fusionado);
+    }
+
+    /**
+     * Genera los informes de los pedidos indicados.
+     *
+     * @param codigos   Códigos de los pedidos.
+     * @param destino   Directorio de salida.
+     * @param fusionado Si es verdadero, se escriben uno o varios PDF fusionados (ver {@link #PROP_MAXIMO_FUSIONADO});
+     *                  si no, un PDF por pedido.
+     * @return ResultadoLote Resumen de rendimiento del lote.
+     * @throws Exception Si no se puede crear el directorio o escribir el PDF fusionado.
+     */
+    public ResultadoLote generar(Collection<String> codigos, Path destino, boolean fusionado) throws Exception {
+        Files.createDirectories(destino);
+        String[] todos = codigos.toArray(new String[0]);
+        int porParte = fusionado ? MAXIMO_FUSIONADO : Math.max(1, todos.length);
+        int partes = (todos.length + porParte - 1) / porParte;
+        AtomicInteger fallidos = new AtomicInteger();
+
+        reiniciarPicosHeap();
+        long inicio = System.nanoTime();
+
+        int trabajadores = Math.min(hilos, Math.max(1, Math.min(porParte, todos.length)));
+        ExecutorService ejecutor = Executors.newFixedThreadPool(trabajadores);
+        try {
+            for (int parte = 0; parte < partes; parte++) {
+                String[] pendientes = Arrays.copyOfRange(todos, parte * porParte, Math.min(todos.length, (parte + 1) * porParte));
+                File fusion = !fusionado ? null
+                        : destino.resolve(partes == 1 ? "GestorPedidos_lote.pdf" : "GestorPedidos_lote_" + (parte + 1) + ".pdf").toFile();
+                generarParte(ejecutor, trabajadores, pendientes, destino, fusion, fallidos);
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        ResultadoLote resultado = new ResultadoLote(todos.length, fallidos.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), picoHeapMb());
+        log.info(String.format("Lote de informes terminado: %d pedidos (%d fallidos) en %d ms, %.1f pedidos/s, pico de heap %d MB",
+                resultado.getPedidos(), resultado.getFallidos(), resultado.getDuracionMs(),
+                resultado.getPedidosPorSegundo(), resultado.getPicoHeapMb()));
+        return resultado;
+    }
+
+    /**
+     * Rellena los informes de una parte del lote. Al fusionar, la parte usa un virtualizador propio que se libera al terminar;
+     * con un PDF por pedido, cada informe usa el suyo y lo libera tras exportarse.
+     *
+     * @param ejecutor     Pool de hilos del lote.
+     * @param trabajadores Número de hilos que rellenan informes a la vez.
+     * @param pendientes   Códigos de los pedidos de la parte.
+     * @param destino      Directorio de salida de los PDF por pedido.
+     * @param fusion       Fichero del PDF fusionado de la parte, o null para escribir un PDF por pedido.
+     * @param fallidos     Contador de pedidos cuyo informe no se ha podido generar.
+     * @throws Exception Si falla un hilo o no se puede escribir el PDF fusionado.
+     */
+    private void generarParte(ExecutorService ejecutor, int trabajadores, String[] pendientes, Path destino, File fusion,
+                              AtomicInteger fallidos) throws Exception {
+        boolean fusionado = fusion != null;
+        JasperPrint[] rellenos = fusionado ? new JasperPrint[pendientes.length] : null;
+        AtomicInteger siguiente = new AtomicInteger();
+        JRSwapFileVirtualizer compartido = fusionado ? VirtualizacionInformes.crear() : null;
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < trabajadores; i++) {
+                tareas.add(ejecutor.submit(() -> {
+                    try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                        int posicion;
+                        while ((posicion = siguiente.getAndIncrement()) < pendientes.length) {
+                            String codigo = pendientes[posicion];
+                            JRSwapFileVirtualizer virtualizador = fusionado ? compartido : VirtualizacionInformes.crear();
+                            try {
+                                JasperPrint jasperPrint = ServicioInformes.rellenar(codigo, session, virtualizador);
+                                if (fusionado) {
+                                    rellenos[posicion] = jasperPrint;
+                                } else {
+                                    virtualizador.setReadOnly(true);
+                                    ExportadorInformes.exportar(jasperPrint, FormatoExportacion.PDF,
+                                            destino.resolve(ServicioInformes.nombreFichero(codigo, FormatoExportacion.PDF)).toFile());
+                                }
+                            } catch (Exception e) {
+                                fallidos.incrementAndGet();
+                                log.warning("Informe del pedido " + codigo + " no generado: " + e.getMessage());
+                            } finally {
+                                if (!fusionado) {
+                                    virtualizador.cleanup();
+                                }
+                                session.clear();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            if (fusionado) {
+                compartido.setReadOnly(true);
+                exportarFusionado(rellenos, fusion);
+            }
+        } finally {
+            if (compartido != null) {
+                compartido.cleanup();
+            }
+        }
+    }
+
+    /**
+     * Escribe todos los informes rellenos en un único PDF, en el orden de los pedidos.
+     *
+     * @param rellenos Informes rellenos; los de pedidos fallidos son null y se omiten.
+     * @param fichero  Fichero de destino.
+     * @throws JRException Si ocurre un error durante la exportación.
+     */
+    private void exportarFusionado(JasperPrint[] rellenos, File fichero) throws JRException {
+        List<JasperPrint> informes = Arrays.stream(rellenos).filter(Objects::nonNull).toList();
+        if (informes.isEmpty()) {
+            return;
+        }
+        JRPdfExporter exporter = new JRPdfExporter();
+        exporter.setExporterInput(SimpleExporterInput.getInstance(informes));
+        exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(fichero));
+        exporter.exportReport();
+    }
+
+    private static void reiniciarPicosHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long picoHeapMb() {
+        long pico = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pico += pool.getPeakUsage().getUsed();
+            }
+        }
+        return pico / (1024 * 1024);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
+import lombok.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Clase InstantaneaPedido.
+ * Datos de un pedido ya cargados en memoria (por ejemplo, los que muestra la tabla de ítems),
+ * junto con el momento en que se leyeron de la base de datos.
+ * Permite rellenar el informe del pedido sin volver a consultar la base de datos mientras los datos sean recientes.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@AllArgsConstructor
+public class InstantaneaPedido {
+    private final String codigoPedido;
+    private final Long idUsuario;
+    private final String nombreUsuario;
+    private final String emailUsuario;
+    private final List<ItemPedidoResumen> items;
+    private final Instant cargadoEn;
+
+    /**
+     * Indica si los datos se leyeron hace menos del tiempo indicado.
+     *
+     * @param antiguedadMaxima Antigüedad máxima admitida.
+     * @return boolean Verdadero si la instantánea es más reciente que la antigüedad indicada.
+     */
+    public boolean isReciente(Duration antiguedadMaxima) {
+        return cargadoEn != null && Duration.between(cargadoEn, Instant.now()).compareTo(antiguedadMaxima) <= 0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.gestionpedidoscondao.informes;
+
+import lombok.*;
+
+/**
+ * Clase MetricaExportacion.
+ * Instantánea de las exportaciones realizadas a un formato desde el arranque:
+ * número de exportaciones, tiempo medio y máximo y tamaño medio de los ficheros generados.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MetricaExportacion {
+    private final FormatoExportacion formato;
+    private final long exportaciones;
+    private final double tiempoMedioMs;
+    private final long tiempoMaximoMs;
+    private final long bytesMedios;
+}
@@ -0,0 +1,72 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+
+/**
+ * Clase PedidoDataSource.
+ * Origen de datos de JasperReports que entrega las filas del informe <code>GestorPedidos1</code>
+ * a partir de una {@link InstantaneaPedido}, sin consultar la base de datos.
+ * Cada fila corresponde a un ítem del pedido y tiene los mismos campos y tipos que devuelve
+ * la consulta SQL de la plantilla.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public class PedidoDataSource implements JRDataSource {
+
+    private final InstantaneaPedido pedido;
+    private final BigDecimal total;
+    private final Iterator<ItemPedidoResumen> items;
+    private ItemPedidoResumen actual;
+
+    /**
+     * Crea el origen de datos para un pedido.
+     *
+     * @param pedido Datos del pedido ya cargados.
+     */
+    public PedidoDataSource(InstantaneaPedido pedido) {
+        this.pedido = pedido;
+        this.total = BigDecimal.valueOf(pedido.getItems().stream().mapToDouble(ItemPedidoResumen::getPrecioTotal).sum());
+        this.items = pedido.getItems().iterator();
+    }
+
+    /**
+     * Avanza al siguiente ítem del pedido.
+     *
+     * @return boolean Verdadero si hay otro ítem.
+     */
+    @Override
+    public boolean next() {
+        actual = items.hasNext() ? items.next() : null;
+        return actual != null;
+    }
+
+    /**
+     * Devuelve el valor de un campo de la fila actual.
+     *
+     * @param campo Campo de la plantilla.
+     * @return Object Valor del campo, del tipo declarado en la plantilla.
+     * @throws JRException Si la plantilla pide un campo desconocido.
+     */
+    @Override
+    public Object getFieldValue(JRField campo) throws JRException {
+        return switch (campo.getName()) {
+            case "id_usuarios" -> pedido.getIdUsuario() != null ? pedido.getIdUsuario().intValue() : null;
+            case "nombre" -> pedido.getNombreUsuario();
+            case "email" -> pedido.getEmailUsuario();
+            case "nombreProducto" -> actual.getNombreProducto();
+            case "cantidad" -> actual.getCantidad();
+            case "precio" -> BigDecimal.valueOf(actual.getPrecio());
+            case "total" -> total;
+            case "código" -> pedido.getCodigoPedido();
+            default -> throw new JRException("Campo desconocido en el informe: " + campo.getName());
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.gestionpedidoscondao.informes;
+
+/**
+ * Interfaz ProgresoInforme.
+ * Recibe los avisos de avance de un trabajo de generación de informes.
+ * Se invoca desde el hilo que genera el informe, no desde el hilo de JavaFX.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@FunctionalInterface
+public interface ProgresoInforme {
+
+    /**
+     * Progreso que no hace nada, para cuando no se necesita seguir el avance.
+     */
+    ProgresoInforme NINGUNO = (fase, fraccion) -> {};
+
+    /**
+     * Notifica el avance del trabajo.
+     *
+     * @param fase     Descripción de la fase en curso.
+     * @param fraccion Fracción completada, entre 0 y 1.
+     */
+    void progreso(String fase, double fraccion);
+}
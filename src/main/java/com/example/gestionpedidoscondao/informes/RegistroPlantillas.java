@@ -0,0 +1,226 @@
+package com.example.gestionpedidoscondao.informes;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.java.Log;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Clase RegistroPlantillas.
+ * Mantiene en memoria los informes compilados ({@link JasperReport}) para no leerlos del disco en cada informe.
+ * Al crearse carga todas las plantillas del directorio de informes, compilando antes los <code>.jrxml</code>
+ * que no tengan <code>.jasper</code> o que sean más recientes que él.
+ * Vigila el directorio y, cuando una plantilla cambia, la vuelve a cargar y sustituye la anterior de una vez;
+ * si la nueva versión no se puede cargar se sigue usando la anterior.
+ * Cada plantilla se publica junto con su versión en un único valor ({@link PlantillaCargada}), de modo que un informe
+ * que se rellena durante una recarga nunca combina la plantilla nueva con la versión de la anterior.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class RegistroPlantillas {
+
+    private static final String EXT_COMPILADA = ".jasper";
+    private static final String EXT_FUENTE = ".jrxml";
+
+    private static RegistroPlantillas instancia;
+
+    private final Path directorio;
+    private final Map<String, PlantillaCargada> plantillas = new ConcurrentHashMap<>();
+    private WatchService vigilante;
+
+    private RegistroPlantillas(Path directorio) {
+        this.directorio = directorio.toAbsolutePath();
+    }
+
+    /**
+     * Devuelve el registro compartido, creándolo la primera vez sobre el directorio de trabajo.
+     *
+     * @return RegistroPlantillas Instancia única del registro.
+     */
+    public static synchronized RegistroPlantillas getInstancia() {
+        if (instancia == null) {
+            instancia = new RegistroPlantillas(Paths.get(""));
+            instancia.cargarTodas();
+            instancia.vigilar();
+        }
+        return instancia;
+    }
+
+    /**
+     * Deja de vigilar el directorio de plantillas.
+     */
+    public static synchronized void cerrar() {
+        if (instancia != null && instancia.vigilante != null) {
+            try {
+                instancia.vigilante.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        instancia = null;
+    }
+
+    /**
+     * Devuelve el informe compilado con el nombre dado, cargándolo si todavía no está en memoria.
+     *
+     * @param nombre Nombre de la plantilla, sin extensión (por ejemplo "GestorPedidos1").
+     * @return JasperReport Informe compilado.
+     * @throws JRException Si la plantilla no existe o no se puede cargar.
+     */
+    public JasperReport get(String nombre) throws JRException {
+        return getCargada(nombre).getPlantilla();
+    }
+
+    /**
+     * Devuelve el informe compilado con el nombre dado junto con su versión, cargándolo si todavía no está en memoria.
+     * Quien necesite ambos datos, por ejemplo para la clave de {@link CacheInformes}, debe leerlos de aquí y no
+     * con {@link #get(String)} y {@link #getVersion(String)} por separado.
+     *
+     * @param nombre Nombre de la plantilla, sin extensión.
+     * @return PlantillaCargada Informe compilado y su versión.
+     * @throws JRException Si la plantilla no existe o no se puede cargar.
+     */
+    PlantillaCargada getCargada(String nombre) throws JRException {
+        PlantillaCargada cargada = plantillas.get(nombre);
+        if (cargada == null) {
+            cargada = cargar(nombre);
+        }
+        return cargada;
+    }
+
+    /**
+     * Devuelve la versión de una plantilla cargada: la fecha de modificación de su fichero compilado.
+     * Cambia cada vez que la plantilla se recompila o se sustituye.
+     *
+     * @param nombre Nombre de la plantilla, sin extensión.
+     * @return long Versión de la plantilla, o 0 si todavía no se ha cargado.
+     */
+    public long getVersion(String nombre) {
+        PlantillaCargada cargada = plantillas.get(nombre);
+        return cargada != null ? cargada.getVersion() : 0L;
+    }
+
+    /**
+     * Carga todas las plantillas presentes en el directorio.
+     */
+    private void cargarTodas() {
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(directorio, "*.{jasper,jrxml}")) {
+            for (Path fichero : ficheros) {
+                String nombre = nombreSinExtension(fichero);
+                if (!plantillas.containsKey(nombre)) {
+                    try {
+                        cargar(nombre);
+                    } catch (JRException e) {
+                        log.warning("No se pudo cargar la plantilla " + nombre + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Carga (y compila si hace falta) una plantilla y la publica en el registro.
+     *
+     * @param nombre Nombre de la plantilla, sin extensión.
+     * @return PlantillaCargada Informe compilado y su versión.
+     * @throws JRException Si la plantilla no existe o no se puede cargar.
+     */
+    private PlantillaCargada cargar(String nombre) throws JRException {
+        long inicio = System.currentTimeMillis();
+        Path compilada = directorio.resolve(nombre + EXT_COMPILADA);
+        Path fuente = directorio.resolve(nombre + EXT_FUENTE);
+        try {
+            if (Files.exists(fuente) && (!Files.exists(compilada)
+                    || Files.getLastModifiedTime(fuente).compareTo(Files.getLastModifiedTime(compilada)) > 0)) {
+                JasperCompileManager.compileReportToFile(fuente.toString(), compilada.toString());
+                log.info("Plantilla " + nombre + " compilada desde " + fuente.getFileName());
+            }
+        } catch (IOException e) {
+            throw new JRException(e);
+        }
+        JasperReport plantilla = (JasperReport) JRLoader.loadObject(compilada.toFile());
+        PlantillaCargada cargada = new PlantillaCargada(plantilla, compilada.toFile().lastModified());
+        plantillas.put(nombre, cargada);
+        log.info("Plantilla " + nombre + " cargada en " + (System.currentTimeMillis() - inicio) + " ms");
+        return cargada;
+    }
+
+    /**
+     * Arranca un hilo en segundo plano que recarga las plantillas modificadas.
+     */
+    private void vigilar() {
+        try {
+            vigilante = directorio.getFileSystem().newWatchService();
+            directorio.register(vigilante, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warning("No se vigilarán los cambios de las plantillas: " + e.getMessage());
+            return;
+        }
+        Thread hilo = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey clave = vigilante.take();
+                    for (WatchEvent<?> evento : clave.pollEvents()) {
+                        if (evento.context() instanceof Path fichero && esPlantilla(fichero)) {
+                            recargar(nombreSinExtension(fichero));
+                        }
+                    }
+                    clave.reset();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Registro cerrado
+            }
+        }, "plantillas-vigilante");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    private void recargar(String nombre) {
+        try {
+            cargar(nombre);
+        } catch (JRException e) {
+            log.warning("Plantilla " + nombre + " no recargada, se mantiene la versión anterior: " + e.getMessage());
+        }
+    }
+
+    private static boolean esPlantilla(Path fichero) {
+        String nombre = fichero.getFileName().toString();
+        return nombre.endsWith(EXT_COMPILADA) || nombre.endsWith(EXT_FUENTE);
+    }
+
+    private static String nombreSinExtension(Path fichero) {
+        String nombre = fichero.getFileName().toString();
+        return nombre.substring(0, nombre.lastIndexOf('.'));
+    }
+
+    /**
+     * Informe compilado y su versión, publicados juntos en el registro.
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class PlantillaCargada {
+        private final JasperReport plantilla;
+        private final long version;
+    }
+}
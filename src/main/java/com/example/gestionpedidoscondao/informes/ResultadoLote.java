@@ -0,0 +1,31 @@
+package com.example.gestionpedidoscondao.informes;
+
+import lombok.*;
+
+/**
+ * Clase ResultadoLote.
+ * Resumen de rendimiento de un lote de informes generado por {@link InformesPorLotes}:
+ * pedidos procesados y fallidos, duración, pedidos por segundo y pico de memoria heap.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ResultadoLote {
+    private final int pedidos;
+    private final int fallidos;
+    private final long duracionMs;
+    private final long picoHeapMb;
+
+    /**
+     * Calcula el rendimiento del lote.
+     *
+     * @return double Pedidos generados con éxito por segundo.
+     */
+    public double getPedidosPorSegundo() {
+        return duracionMs == 0 ? 0.0 : (pedidos - fallidos) * 1000.0 / duracionMs;
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.pedido.ArchivoPedidos;
+import com.example.gestionpedidoscondao.domain.pedido.HuellaPedido;
+import com.example.gestionpedidoscondao.domain.pedido.Pedido;
+import com.example.gestionpedidoscondao.domain.pedido.PedidoDAO;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.extern.java.Log;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.engine.JRVirtualizer;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import org.hibernate.Session;
+
+import java.io.File;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase ServicioInformes.
+ * Genera los informes de pedidos en segundo plano, fuera del hilo de JavaFX.
+ * Los trabajos se encolan en un pool de hilos de tamaño fijo con una cola limitada;
+ * cada trabajo notifica su avance, puede cancelarse y entrega los ficheros generados mediante un futuro.
+ * Un informe se rellena una sola vez aunque se pida en varios formatos ({@link FormatoExportacion}).
+ * La conexión a la base de datos solo se mantiene mientras se rellena el informe, y la memoria de cada informe
+ * está limitada por un virtualizador de {@link VirtualizacionInformes}.
+ * Las plantillas compiladas se toman de {@link RegistroPlantillas}, que las mantiene en memoria.
+ * Si se dispone de los datos del pedido ya cargados ({@link InstantaneaPedido}) y son recientes,
+ * el informe se rellena con ellos mediante {@link PedidoDataSource} sin usar ninguna conexión.
+ * Si el pedido no ha cambiado desde la última vez, el informe se copia de {@link CacheInformes} sin rellenarlo.
+ * Los pedidos archivados ({@link ArchivoPedidos}) se leen del archivo y se rellenan también con {@link PedidoDataSource},
+ * ya que la consulta de la plantilla solo lee las tablas de uso diario.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+public class ServicioInformes {
+
+    /**
+     * Nombre de la plantilla de {@link RegistroPlantillas} que se rellena para cada pedido.
+     */
+    public static final String PLANTILLA = "GestorPedidos1";
+
+    private static final int HILOS = 2;
+    private static final int CAPACIDAD_COLA = 20;
+
+    /**
+     * Antigüedad máxima de una {@link InstantaneaPedido} para rellenar el informe con ella en lugar de consultar la base de datos.
+     */
+    public static final Duration ANTIGUEDAD_MAXIMA_INSTANTANEA = Duration.ofSeconds(60);
+
+    private static ServicioInformes instancia;
+
+    private final ThreadPoolExecutor ejecutor;
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+
+    private ServicioInformes() {
+        AtomicInteger contador = new AtomicInteger();
+        ejecutor = new ThreadPoolExecutor(HILOS, HILOS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(CAPACIDAD_COLA),
+                runnable -> {
+                    Thread hilo = new Thread(runnable, "informes-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    /**
+     * Devuelve la instancia compartida del servicio, creándola la primera vez.
+     *
+     * @return ServicioInformes Instancia única del servicio.
+     */
+    public static synchronized ServicioInformes getInstancia() {
+        if (instancia == null) {
+            instancia = new ServicioInformes();
+        }
+        return instancia;
+    }
+
+    /**
+     * Detiene el servicio, cancelando los trabajos pendientes.
+     */
+    public static synchronized void cerrar() {
+        if (instancia != null) {
+            instancia.ejecutor.shutdownNow();
+            instancia = null;
+        }
+    }
+
+    /**
+     * Encola la generación del informe PDF de un pedido.
+     *
+     * @param codigoPedido El código del pedido.
+     * @param progreso     Receptor de los avisos de avance.
+     * @return TrabajoInforme Trabajo encolado; su resultado falla con {@link RejectedExecutionException} si la cola está llena.
+     */
+    public TrabajoInforme generar(String codigoPedido, ProgresoInforme progreso) {
+        return encolar(codigoPedido, null, EnumSet.of(FormatoExportacion.PDF), progreso);
+    }
+
+    /**
+     * Encola la generación del informe PDF de un pedido cuyos datos ya están cargados en memoria.
+     * Si la instantánea es más antigua que {@link #ANTIGUEDAD_MAXIMA_INSTANTANEA} se descarta y el informe
+     * se rellena consultando la base de datos.
+     *
+     * @param instantanea Datos del pedido ya cargados.
+     * @param progreso    Receptor de los avisos de avance.
+     * @return TrabajoInforme Trabajo encolado; su resultado falla con {@link RejectedExecutionException} si la cola está llena.
+     */
+    public TrabajoInforme generar(InstantaneaPedido instantanea, ProgresoInforme progreso) {
+        return generar(instantanea, EnumSet.of(FormatoExportacion.PDF), progreso);
+    }
+
+    /**
+     * Encola la generación del informe de un pedido cuyos datos ya están cargados en memoria, en varios formatos.
+     * El informe se rellena una vez y se exporta a cada formato.
+     *
+     * @param instantanea Datos del pedido ya cargados.
+     * @param formatos    Formatos de salida.
+     * @param progreso    Receptor de los avisos de avance.
+     * @return TrabajoInforme Trabajo encolado; su resultado falla con {@link RejectedExecutionException} si la cola está llena.
+     */
+    public TrabajoInforme generar(InstantaneaPedido instantanea, Set<FormatoExportacion> formatos, ProgresoInforme progreso) {
+        return encolar(instantanea.getCodigoPedido(), instantanea, formatos, progreso);
+    }
+
+    private TrabajoInforme encolar(String codigoPedido, InstantaneaPedido instantanea, Set<FormatoExportacion> formatos,
+                                   ProgresoInforme progreso) {
+        TrabajoInforme trabajo = new TrabajoInforme(codigoPedido);
+        try {
+            trabajo.setTarea(ejecutor.submit(() -> ejecutar(trabajo, instantanea, formatos, progreso)));
+        } catch (RejectedExecutionException e) {
+            log.warning("Cola de informes llena, se descarta el informe del pedido " + codigoPedido);
+            trabajo.getResultado().completeExceptionally(e);
+        }
+        return trabajo;
+    }
+
+    /**
+     * Ejecuta un trabajo: rellena el informe, con los datos en memoria si son recientes o con una conexión del pool si no,
+     * y lo exporta a cada formato pedido.
+     *
+     * @param trabajo     Trabajo a ejecutar.
+     * @param instantanea Datos del pedido ya cargados, o null para consultarlos.
+     * @param formatos    Formatos de salida.
+     * @param progreso    Receptor de los avisos de avance.
+     */
+    private void ejecutar(TrabajoInforme trabajo, InstantaneaPedido instantanea, Set<FormatoExportacion> formatos,
+                          ProgresoInforme progreso) {
+        String codigoPedido = trabajo.getCodigoPedido();
+        JRSwapFileVirtualizer virtualizador = VirtualizacionInformes.crear();
+        try {
+            comprobarCancelacion(trabajo);
+            progreso.progreso("Buscando en caché", 0.05);
+            RegistroPlantillas.PlantillaCargada cargada = RegistroPlantillas.getInstancia().getCargada(PLANTILLA);
+            JasperReport plantilla = cargada.getPlantilla();
+            long versionPlantilla = cargada.getVersion();
+            boolean reciente = instantanea != null && instantanea.isReciente(ANTIGUEDAD_MAXIMA_INSTANTANEA);
+            HuellaPedido huella = reciente
+                    ? HuellaPedido.de(instantanea.getIdUsuario(), instantanea.getNombreUsuario(), instantanea.getEmailUsuario(), instantanea.getItems())
+                    : pedidoDAO.findHuellaByCodigo(codigoPedido);
+
+            // Los formatos ya generados para esta versión del pedido se copian de la caché
+            CacheInformes cache = CacheInformes.getInstancia();
+            Map<FormatoExportacion, File> ficheros = new EnumMap<>(FormatoExportacion.class);
+            Set<FormatoExportacion> pendientes = EnumSet.noneOf(FormatoExportacion.class);
+            for (FormatoExportacion formato : formatos) {
+                File fichero = new File(nombreFichero(codigoPedido, formato));
+                if (huella != null && cache.copiar(codigoPedido, huella, versionPlantilla, formato, fichero)) {
+                    ficheros.put(formato, fichero);
+                } else {
+                    pendientes.add(formato);
+                }
+            }
+            if (pendientes.isEmpty()) {
+                log.info("Informe del pedido " + codigoPedido + " servido desde la caché (" + cache.getResumen() + ")");
+                progreso.progreso("Informe generado", 1.0);
+                trabajo.getResultado().complete(ficheros);
+                return;
+            }
+
+            comprobarCancelacion(trabajo);
+            progreso.progreso("Rellenando informe", 0.1);
+            long inicio = System.nanoTime();
+            JasperPrint jasperPrint;
+            String origen;
+            if (reciente) {
+                jasperPrint = rellenar(plantilla, instantanea, virtualizador);
+                origen = "datos en memoria";
+            } else {
+                try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                    jasperPrint = rellenar(plantilla, codigoPedido, session, virtualizador);
+                }
+                origen = instantanea != null ? "consulta SQL (instantánea caducada)" : "consulta SQL";
+            }
+            virtualizador.setReadOnly(true);
+            log.info("Informe del pedido " + codigoPedido + " rellenado con " + origen + " en "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms ("
+                    + jasperPrint.getPages().size() + " páginas)");
+
+            int exportados = 0;
+            for (FormatoExportacion formato : pendientes) {
+                comprobarCancelacion(trabajo);
+                progreso.progreso("Exportando a " + formato, 0.5 + 0.5 * exportados++ / pendientes.size());
+                File fichero = new File(nombreFichero(codigoPedido, formato));
+                ExportadorInformes.exportar(jasperPrint, formato, fichero);
+                if (huella != null) {
+                    cache.guardar(codigoPedido, huella, versionPlantilla, formato, fichero);
+                }
+                ficheros.put(formato, fichero);
+            }
+
+            progreso.progreso("Informe generado", 1.0);
+            trabajo.getResultado().complete(ficheros);
+        } catch (Exception e) {
+            if (!trabajo.isTerminado()) {
+                e.printStackTrace();
+            }
+            trabajo.getResultado().completeExceptionally(e);
+        } finally {
+            virtualizador.cleanup();
+        }
+    }
+
+    /**
+     * Rellena el informe del pedido con la sesión indicada.
+     * Las páginas que superan el máximo en memoria se vuelcan al fichero de intercambio del virtualizador,
+     * que debe seguir abierto hasta exportar el informe.
+     *
+     * @param codigoPedido  El código del pedido.
+     * @param session       Sesión de la que el informe lee sus datos.
+     * @param virtualizador Virtualizador que limita las páginas en memoria.
+     * @return JasperPrint Informe relleno.
+     */
+    static JasperPrint rellenar(String codigoPedido, Session session, JRVirtualizer virtualizador) {
+        try {
+            return rellenar(RegistroPlantillas.getInstancia().get(PLANTILLA), codigoPedido, session, virtualizador);
+        } catch (JRException e) {
+            throw new JRRuntimeException(e);
+        }
+    }
+
+    /**
+     * Rellena el informe de un pedido leyendo sus datos de la base de datos.
+     * La consulta de la plantilla solo lee las tablas de uso diario, así que si el pedido está archivado
+     * sus datos se leen de {@link ArchivoPedidos} y el informe se rellena con ellos mediante {@link PedidoDataSource}.
+     */
+    private static JasperPrint rellenar(JasperReport plantilla, String codigoPedido, Session session, JRVirtualizer virtualizador) {
+        Pedido archivado = ArchivoPedidos.buscarPedido(session, codigoPedido);
+        if (archivado == null) {
+            return session.doReturningWork(conexion -> rellenar(plantilla, codigoPedido, conexion, virtualizador));
+        }
+        Usuario usuario = archivado.getUsuario();
+        InstantaneaPedido instantanea = new InstantaneaPedido(codigoPedido,
+                usuario != null ? usuario.getId() : null,
+                usuario != null ? usuario.getNombre() : null,
+                usuario != null ? usuario.getEmail() : null,
+                ArchivoPedidos.buscarResumen(session, codigoPedido),
+                Instant.now());
+        try {
+            return rellenar(plantilla, instantanea, virtualizador);
+        } catch (JRException e) {
+            throw new JRRuntimeException(e);
+        }
+    }
+
+    /**
+     * Rellena el informe de un pedido con la consulta SQL de la plantilla sobre la conexión indicada.
+     *
+     * @param plantilla     Informe compilado.
+     * @param codigoPedido  El código del pedido.
+     * @param conexion      Conexión de la que la plantilla lee sus datos.
+     * @param virtualizador Virtualizador que limita las páginas en memoria.
+     * @return JasperPrint Informe relleno.
+     */
+    static JasperPrint rellenar(JasperReport plantilla, String codigoPedido, Connection conexion, JRVirtualizer virtualizador) {
+        try {
+            return JasperFillManager.getInstance(VirtualizacionInformes.getContextoJdbc())
+                    .fill(plantilla, parametros(codigoPedido, virtualizador), conexion);
+        } catch (JRException e) {
+            throw new JRRuntimeException(e);
+        }
+    }
+
+    /**
+     * Rellena el informe del pedido con los datos ya cargados, sin acceder a la base de datos.
+     *
+     * @param plantilla     Informe compilado.
+     * @param instantanea   Datos del pedido.
+     * @param virtualizador Virtualizador que limita las páginas en memoria.
+     * @return JasperPrint Informe relleno.
+     * @throws JRException Si ocurre un error al rellenar el informe.
+     */
+    static JasperPrint rellenar(JasperReport plantilla, InstantaneaPedido instantanea, JRVirtualizer virtualizador) throws JRException {
+        return JasperFillManager.getInstance(VirtualizacionInformes.getContexto())
+                .fill(plantilla, parametros(instantanea.getCodigoPedido(), virtualizador), new PedidoDataSource(instantanea));
+    }
+
+    private static Map<String, Object> parametros(String codigoPedido, JRVirtualizer virtualizador) {
+        Map<String, Object> parametros = new HashMap<>();
+        parametros.put("Parameter1", codigoPedido);
+        parametros.put(JRParameter.REPORT_VIRTUALIZER, virtualizador);
+        return parametros;
+    }
+
+    /**
+     * Devuelve el nombre del fichero del informe de un pedido en un formato.
+     *
+     * @param codigoPedido El código del pedido.
+     * @param formato      Formato del fichero.
+     * @return String Nombre del fichero.
+     */
+    static String nombreFichero(String codigoPedido, FormatoExportacion formato) {
+        return "GestorPedido_" + codigoPedido + "." + formato.getExtension();
+    }
+
+    private void comprobarCancelacion(TrabajoInforme trabajo) {
+        if (trabajo.isTerminado() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Informe del pedido " + trabajo.getCodigoPedido() + " cancelado");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.gestionpedidoscondao.informes;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Clase TrabajoInforme.
+ * Representa un informe encolado en {@link ServicioInformes}.
+ * Permite esperar o reaccionar al resultado mediante un futuro y cancelar el trabajo
+ * tanto si está en cola como si ya se está generando.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public class TrabajoInforme {
+
+    @Getter
+    private final String codigoPedido; // Pedido del que se genera el informe
+    @Getter
+    private final CompletableFuture<Map<FormatoExportacion, File>> resultado; // Ficheros generados por formato, cuando termina
+    private volatile Future<?> tarea; // Tarea del pool que ejecuta el trabajo
+
+    TrabajoInforme(String codigoPedido) {
+        this.codigoPedido = codigoPedido;
+        this.resultado = new CompletableFuture<>();
+    }
+
+    void setTarea(Future<?> tarea) {
+        this.tarea = tarea;
+    }
+
+    /**
+     * Cancela el trabajo. Si el informe se está rellenando, se interrumpe el hilo que lo genera.
+     *
+     * @return boolean Verdadero si el trabajo se ha cancelado antes de terminar.
+     */
+    public boolean cancelar() {
+        Future<?> t = tarea;
+        if (t != null) {
+            t.cancel(true);
+        }
+        return resultado.cancel(false);
+    }
+
+    /**
+     * Indica si el trabajo ha terminado, con éxito, con error o por cancelación.
+     *
+     * @return boolean Verdadero si el trabajo ha terminado.
+     */
+    public boolean isTerminado() {
+        return resultado.isDone();
+    }
+}
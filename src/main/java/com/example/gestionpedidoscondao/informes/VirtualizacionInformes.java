@@ -0,0 +1,97 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.query.JRJdbcQueryExecutorFactory;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+
+/**
+ * Clase VirtualizacionInformes.
+ * Limita la memoria que ocupa un informe mientras se rellena y se exporta.
+ * Las páginas ya generadas se mantienen en memoria solo hasta un máximo; el resto se vuelca a un fichero
+ * de intercambio en disco y se recupera al exportar, de modo que el consumo de heap no crece con el tamaño del pedido.
+ * Además, las consultas JDBC de las plantillas leen las filas con el tamaño de lectura configurado en
+ * {@link HibernateUtil#getTamañoLecturaStreaming()}: con MySQL, en streaming en lugar de cargar todo el resultado.
+ * <p>
+ * El máximo de páginas en memoria y el directorio de intercambio se configuran con las propiedades del sistema
+ * <code>informes.paginasEnMemoria</code> e <code>informes.directorioIntercambio</code>.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public final class VirtualizacionInformes {
+
+    /**
+     * Propiedad del sistema con el número máximo de páginas de un informe que se mantienen en memoria.
+     */
+    public static final String PROP_PAGINAS_EN_MEMORIA = "informes.paginasEnMemoria";
+    /**
+     * Propiedad del sistema con el directorio donde se crean los ficheros de intercambio.
+     */
+    public static final String PROP_DIRECTORIO_INTERCAMBIO = "informes.directorioIntercambio";
+
+    private static final int PAGINAS_POR_DEFECTO = 20;
+    private static final int TAMAÑO_BLOQUE = 4096; // Bytes por bloque del fichero de intercambio
+    private static final int CRECIMIENTO_MINIMO = 256; // Bloques que se añaden cada vez que el fichero crece
+
+    private static final JasperReportsContext CONTEXTO = new SimpleJasperReportsContext();
+
+    private static volatile JasperReportsContext contextoJdbc;
+
+    private VirtualizacionInformes() {
+    }
+
+    /**
+     * Crea un virtualizador con el máximo de páginas en memoria configurado.
+     * Debe liberarse con {@link JRSwapFileVirtualizer#cleanup()} una vez exportado el informe.
+     *
+     * @return JRSwapFileVirtualizer Virtualizador nuevo.
+     */
+    public static JRSwapFileVirtualizer crear() {
+        return crear(Integer.getInteger(PROP_PAGINAS_EN_MEMORIA, PAGINAS_POR_DEFECTO));
+    }
+
+    /**
+     * Crea un virtualizador que mantiene en memoria como mucho el número de páginas indicado.
+     * Debe liberarse con {@link JRSwapFileVirtualizer#cleanup()} una vez exportado el informe.
+     *
+     * @param paginasEnMemoria Número máximo de páginas en memoria.
+     * @return JRSwapFileVirtualizer Virtualizador nuevo.
+     */
+    public static JRSwapFileVirtualizer crear(int paginasEnMemoria) {
+        String directorio = System.getProperty(PROP_DIRECTORIO_INTERCAMBIO, System.getProperty("java.io.tmpdir"));
+        JRSwapFile intercambio = new JRSwapFile(directorio, TAMAÑO_BLOQUE, CRECIMIENTO_MINIMO);
+        return new JRSwapFileVirtualizer(Math.max(1, paginasEnMemoria), intercambio, true);
+    }
+
+    /**
+     * Devuelve el contexto de JasperReports con el que se rellenan los informes a partir de un origen de datos.
+     *
+     * @return JasperReportsContext Contexto compartido.
+     */
+    public static JasperReportsContext getContexto() {
+        return CONTEXTO;
+    }
+
+    /**
+     * Devuelve el contexto de JasperReports con el que se rellenan los informes que leen sus datos con la consulta SQL
+     * de la plantilla. Fija el tamaño de lectura de las consultas en el configurado para Hibernate, ya que el valor
+     * que hace que MySQL entregue las filas de una en una (<code>Integer.MIN_VALUE</code>) no es válido en otros conectores.
+     * Se crea la primera vez que se pide, cuando la SessionFactory ya está disponible.
+     *
+     * @return JasperReportsContext Contexto compartido para consultas JDBC.
+     */
+    public static JasperReportsContext getContextoJdbc() {
+        JasperReportsContext contexto = contextoJdbc;
+        if (contexto == null) {
+            SimpleJasperReportsContext nuevo = new SimpleJasperReportsContext(CONTEXTO);
+            nuevo.setProperty(JRJdbcQueryExecutorFactory.PROPERTY_JDBC_FETCH_SIZE, String.valueOf(HibernateUtil.getTamañoLecturaStreaming()));
+            contexto = nuevo;
+            contextoJdbc = contexto;
+        }
+        return contexto;
+    }
+}
@@ -5,8 +5,11 @@ module com.example.gestionpedidoscondao {
     requires lombok;
     requires jakarta.persistence;
     requires org.hibernate.orm.core;
+    requires org.hibernate.orm.hikaricp;
+    requires com.zaxxer.hikari;
     requires java.naming;
     requires jasperreports;
+    requires org.apache.poi.ooxml;
     requires java.desktop;
     requires javafx.swing;
 
@@ -21,4 +24,7 @@ module com.example.gestionpedidoscondao {
     opens com.example.gestionpedidoscondao.domain.itemPedido to org.hibernate.orm.core, javafx.base;
     opens com.example.gestionpedidoscondao.domain.producto to org.hibernate.orm.core, javafx.base;
     opens com.example.gestionpedidoscondao.domain.carrito to javafx.base;
+
+    // Hibernate instancia el proveedor de conexiones por reflexión
+    opens com.example.gestionpedidoscondao.domain.pool to org.hibernate.orm.core;
 }
@@ -0,0 +1,30 @@
+-- Migración 001: identificadores asignados por Hibernate desde la tabla secuencias_id.
+--
+-- Las entidades dejan de usar AUTO_INCREMENT (GenerationType.IDENTITY) y reservan bloques de ids
+-- con el optimizador pooled-lo, lo que permite a Hibernate agrupar las inserciones en lotes JDBC.
+-- Cada fila guarda el siguiente id libre de una tabla; el tamaño del bloque se define por entidad
+-- en el allocationSize de su @TableGenerator.
+--
+-- Ejecutar una sola vez con la aplicación parada. Las columnas AUTO_INCREMENT existentes se pueden
+-- conservar: MySQL acepta ids explícitos y los inserts manuales siguen funcionando.
+
+CREATE TABLE IF NOT EXISTS secuencias_id (
+    entidad         VARCHAR(64) NOT NULL PRIMARY KEY,
+    siguiente_valor BIGINT      NOT NULL
+) ENGINE = InnoDB;
+
+INSERT INTO secuencias_id (entidad, siguiente_valor)
+SELECT 'usuarios', COALESCE(MAX(id_usuarios), 0) + 1 FROM usuarios
+ON DUPLICATE KEY UPDATE siguiente_valor = GREATEST(siguiente_valor, VALUES(siguiente_valor));
+
+INSERT INTO secuencias_id (entidad, siguiente_valor)
+SELECT 'Pedidos', COALESCE(MAX(id_pedidos), 0) + 1 FROM Pedidos
+ON DUPLICATE KEY UPDATE siguiente_valor = GREATEST(siguiente_valor, VALUES(siguiente_valor));
+
+INSERT INTO secuencias_id (entidad, siguiente_valor)
+SELECT 'ItemsPedidos', COALESCE(MAX(id_items), 0) + 1 FROM ItemsPedidos
+ON DUPLICATE KEY UPDATE siguiente_valor = GREATEST(siguiente_valor, VALUES(siguiente_valor));
+
+INSERT INTO secuencias_id (entidad, siguiente_valor)
+SELECT 'Productos', COALESCE(MAX(id_productos), 0) + 1 FROM Productos
+ON DUPLICATE KEY UPDATE siguiente_valor = GREATEST(siguiente_valor, VALUES(siguiente_valor));
@@ -0,0 +1,18 @@
+-- Migración 002: reserva de stock y bloqueo optimista de productos.
+--
+-- La compra descuenta cantidad_disponible con sentencias condicionales
+-- (UPDATE ... WHERE cantidad_disponible >= ?) y la libera al borrar ítems o pedidos.
+-- La columna version la usa Hibernate (@Version) para detectar modificaciones concurrentes
+-- de un producto; las reservas también la incrementan.
+-- La restricción CHECK impide que el stock quede negativo aunque se modifique fuera de la aplicación
+-- (MySQL 8.0.16 o superior).
+--
+-- Ejecutar una sola vez con la aplicación parada.
+
+ALTER TABLE Productos
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+UPDATE Productos SET cantidad_disponible = 0 WHERE cantidad_disponible < 0;
+
+ALTER TABLE Productos
+    ADD CONSTRAINT chk_productos_stock CHECK (cantidad_disponible >= 0);
@@ -0,0 +1,11 @@
+-- Migración 003: bloqueo optimista de pedidos.
+--
+-- Hibernate (@Version) comprueba e incrementa la columna version al guardar un pedido,
+-- y las actualizaciones incrementales del total (UPDATE VERSIONED) también la incrementan.
+-- Guardar una copia anterior de un pedido falla entonces con un conflicto optimista,
+-- que ReintentoOptimista resuelve repitiendo la operación.
+--
+-- Ejecutar una sola vez con la aplicación parada.
+
+ALTER TABLE Pedidos
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,36 @@
+-- Migración 004: archivo de pedidos históricos.
+--
+-- PedidoDAO.archivarAntiguos() (o ArchivoPedidos como tarea programada) copia a estas tablas los pedidos
+-- con más antigüedad que archivo.diasAntiguedad (365 días por defecto) junto con sus ítems, y los elimina
+-- de Pedidos e ItemsPedidos en la misma transacción, por lotes de purga.pedidosPorLote pedidos.
+-- Las búsquedas por código de PedidoDAO e ItemPedidoDAO consultan el archivo cuando el pedido
+-- ya no está en las tablas de uso diario.
+-- Las tablas de archivo no tienen claves ajenas para que los productos y usuarios se puedan seguir
+-- borrando, y se guardan comprimidas porque solo se leen de forma ocasional.
+-- Cada ítem guarda el nombre y el precio que tenía su producto al archivarlo, de modo que los informes
+-- y el detalle de un pedido archivado no cambian si después se edita o se borra el producto.
+-- Los tipos de columna deben coincidir con los de Pedidos e ItemsPedidos.
+--
+-- Ejecutar una sola vez con la aplicación parada.
+
+CREATE TABLE IF NOT EXISTS PedidosArchivo (
+    id_pedidos   BIGINT       NOT NULL PRIMARY KEY,
+    `código`     VARCHAR(255) NOT NULL,
+    fecha        DATE,
+    usuario      BIGINT,
+    total        DOUBLE       NOT NULL DEFAULT 0,
+    version      BIGINT       NOT NULL DEFAULT 0,
+    archivado_en TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_pedidos_archivo_codigo (`código`),
+    KEY idx_pedidos_archivo_usuario (usuario)
+) ENGINE = InnoDB ROW_FORMAT = COMPRESSED;
+
+CREATE TABLE IF NOT EXISTS ItemsPedidosArchivo (
+    id_items  BIGINT       NOT NULL PRIMARY KEY,
+    codPedido VARCHAR(255) NOT NULL,
+    cantidad  INT          NOT NULL,
+    producto  BIGINT,
+    nombre    VARCHAR(255),
+    precio    DOUBLE,
+    KEY idx_items_archivo_pedido (codPedido)
+) ENGINE = InnoDB ROW_FORMAT = COMPRESSED;
@@ -0,0 +1,27 @@
+-- Migración 005: índices de las consultas frecuentes.
+--
+-- Son los índices y restricciones únicas que declaran las entidades en @Table. AsesorEsquema los comprueba
+-- al arrancar y avisa en el log si falta alguno o si una consulta con nombre recorre una tabla completa.
+--   uk_pedidos_codigo         Pedido.findByCodigo, deleteByCodigo y la unión de ItemsPedidos.codPedido con Pedidos.código
+--   idx_pedidos_usuario_fecha Pedido.findByUsuarioId y la paginación por (fecha, id) de los pedidos de un usuario
+--   idx_items_pedidos_pedido  ItemPedido.findByPedidoCodigo y findResumenByPedidoCodigo
+--   idx_productos_nombre      Producto.findByNombre
+--   idx_usuarios_nombre       Usuario.validar
+--
+-- La restricción única falla si hay códigos de pedido repetidos; se pueden localizar antes con
+--   SELECT `código`, COUNT(*) FROM Pedidos GROUP BY `código` HAVING COUNT(*) > 1;
+--
+-- Ejecutar una sola vez con la aplicación parada.
+
+ALTER TABLE Pedidos
+    ADD CONSTRAINT uk_pedidos_codigo UNIQUE (`código`),
+    ADD INDEX idx_pedidos_usuario_fecha (usuario, fecha, id_pedidos);
+
+ALTER TABLE ItemsPedidos
+    ADD INDEX idx_items_pedidos_pedido (codPedido);
+
+ALTER TABLE Productos
+    ADD INDEX idx_productos_nombre (nombre);
+
+ALTER TABLE usuarios
+    ADD INDEX idx_usuarios_nombre (nombre);
@@ -0,0 +1,137 @@
+package com.example.gestionpedidoscondao.domain;
+
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.pedido.Pedido;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import org.hibernate.SessionFactory;
+
+import java.util.Date;
+
+/**
+ * Clase BaseDeDatosPrueba.
+ * Arranca Hibernate contra la base de datos H2 en memoria de <code>hibernate-test.cfg.xml</code>
+ * y ofrece utilidades para preparar datos y comprobar el estado de las tablas en las pruebas.
+ * Las tablas de archivo, que no son entidades, se crean aquí con el mismo esquema que db/migracion_004_archivo_pedidos.sql.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public final class BaseDeDatosPrueba {
+
+    private static final String[] TABLAS_ARCHIVO = {
+            "CREATE TABLE IF NOT EXISTS PedidosArchivo (id_pedidos BIGINT NOT NULL PRIMARY KEY, `código` VARCHAR(255) NOT NULL UNIQUE, " +
+                    "fecha DATE, usuario BIGINT, total DOUBLE NOT NULL DEFAULT 0, version BIGINT NOT NULL DEFAULT 0, " +
+                    "archivado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)",
+            "CREATE TABLE IF NOT EXISTS ItemsPedidosArchivo (id_items BIGINT NOT NULL PRIMARY KEY, codPedido VARCHAR(255) NOT NULL, " +
+                    "cantidad INT NOT NULL, producto BIGINT, nombre VARCHAR(255), precio DOUBLE)"
+    };
+    private static final String[] TABLAS = {"ItemsPedidosArchivo", "PedidosArchivo", "ItemsPedidos", "Pedidos", "Productos", "usuarios"};
+
+    private BaseDeDatosPrueba() {
+    }
+
+    /**
+     * Arranca Hibernate con la configuración de pruebas, si no estaba arrancado, y crea las tablas de archivo.
+     *
+     * @return SessionFactory SessionFactory de pruebas.
+     */
+    public static synchronized SessionFactory iniciar() {
+        System.setProperty(HibernateUtil.PROP_CONFIGURACION, "hibernate-test.cfg.xml");
+        System.setProperty(AsesorEsquema.PROP_ACTIVO, "false");
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            for (String sql : TABLAS_ARCHIVO) {
+                session.createNativeMutationQuery(sql).executeUpdate();
+            }
+        });
+        return sessionFactory;
+    }
+
+    /**
+     * Borra todos los datos y vacía la caché de segundo nivel.
+     */
+    public static void vaciar() {
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            for (String tabla : TABLAS) {
+                session.createNativeMutationQuery("DELETE FROM " + tabla).executeUpdate();
+            }
+        });
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    /**
+     * Crea un usuario.
+     *
+     * @param nombre     Nombre de usuario.
+     * @param contraseña Contraseña.
+     * @return Usuario Usuario guardado.
+     */
+    public static Usuario crearUsuario(String nombre, String contraseña) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre(nombre);
+        usuario.setContraseña(contraseña);
+        usuario.setEmail(nombre + "@example.com");
+        HibernateUtil.getSessionFactory().inTransaction(session -> session.persist(usuario));
+        return usuario;
+    }
+
+    /**
+     * Crea un producto.
+     *
+     * @param nombre Nombre del producto.
+     * @param precio Precio unitario.
+     * @param stock  Cantidad disponible.
+     * @return Producto Producto guardado.
+     */
+    public static Producto crearProducto(String nombre, double precio, int stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setPrecio(precio);
+        producto.setCantidadDisponible(stock);
+        HibernateUtil.getSessionFactory().inTransaction(session -> session.persist(producto));
+        return producto;
+    }
+
+    /**
+     * Crea un pedido con varios ítems de una unidad del mismo producto, sin tocar el stock.
+     *
+     * @param usuario  Usuario del pedido.
+     * @param codigo   Código del pedido.
+     * @param fecha    Fecha del pedido.
+     * @param producto Producto de todos los ítems.
+     * @param items    Número de ítems.
+     * @return Pedido Pedido guardado.
+     */
+    public static Pedido crearPedido(Usuario usuario, String codigo, Date fecha, Producto producto, int items) {
+        Pedido pedido = new Pedido();
+        pedido.setCodigo(codigo);
+        pedido.setFecha(fecha);
+        pedido.setUsuario(usuario);
+        pedido.setTotal(items * producto.getPrecio());
+        HibernateUtil.getSessionFactory().inTransaction(session -> {
+            session.persist(pedido);
+            for (int i = 0; i < items; i++) {
+                ItemPedido item = new ItemPedido();
+                item.setPedido(pedido);
+                item.setProducto(session.getReference(Producto.class, producto.getId()));
+                item.setCantidad(1);
+                session.persist(item);
+            }
+        });
+        return pedido;
+    }
+
+    /**
+     * Ejecuta una consulta SQL que devuelve un único número.
+     *
+     * @param sql Consulta SQL.
+     * @return Number Resultado de la consulta.
+     */
+    public static Number consultarNumero(String sql) {
+        return HibernateUtil.getSessionFactory().fromSession(session ->
+                session.createNativeQuery(sql, Number.class).getSingleResult());
+    }
+}
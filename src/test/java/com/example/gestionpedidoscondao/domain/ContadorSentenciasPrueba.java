@@ -0,0 +1,39 @@
+package com.example.gestionpedidoscondao.domain;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Clase ContadorSentenciasPrueba.
+ * Inspector de sentencias que la configuración de pruebas registra para toda la SessionFactory
+ * (<code>hibernate.session_factory.statement_inspector</code>). Cuenta las sentencias SQL que prepara Hibernate
+ * en cualquier sesión, igual que hace el contador de {@link UnidadDeTrabajo} dentro de una unidad.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+public class ContadorSentenciasPrueba implements StatementInspector {
+
+    private static final AtomicInteger total = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        total.incrementAndGet();
+        return sql;
+    }
+
+    /**
+     * Ejecuta una consulta y cuenta las sentencias SQL que prepara.
+     *
+     * @param consulta Consulta a medir; su resultado se descarta.
+     * @return int Número de sentencias preparadas durante la consulta.
+     */
+    public static int contar(Supplier<?> consulta) {
+        int antes = total.get();
+        consulta.get();
+        return total.get() - antes;
+    }
+}
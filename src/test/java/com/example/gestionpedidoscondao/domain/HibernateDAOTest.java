@@ -0,0 +1,86 @@
+package com.example.gestionpedidoscondao.domain;
+
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.producto.ProductoDAO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase HibernateDAOTest.
+ * Comprueba las operaciones masivas de {@link HibernateDAO} con {@link ProductoDAO}: inserción, carga por IDs,
+ * actualización y borrado por lotes, y el recorrido completo con {@link HibernateDAO#forEach} con más filas
+ * que el tamaño de lectura y que un lote.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class HibernateDAOTest {
+
+    private static final int PRODUCTOS = 3 * HibernateDAO.TAMAÑO_LOTE + 7;
+
+    private final ProductoDAO productoDAO = new ProductoDAO();
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+    }
+
+    @Test
+    void operacionesMasivas() {
+        List<Producto> nuevos = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("Masivo_" + i);
+            producto.setPrecio(i);
+            producto.setCantidadDisponible(10);
+            nuevos.add(producto);
+        }
+        assertEquals(PRODUCTOS, productoDAO.saveAll(nuevos));
+        assertEquals(PRODUCTOS, BaseDeDatosPrueba.consultarNumero("SELECT count(*) FROM Productos").intValue());
+
+        List<Long> ids = nuevos.stream().map(Producto::getId).toList();
+        assertTrue(ids.stream().allMatch(id -> id != null));
+        List<Long> buscados = new ArrayList<>(ids);
+        buscados.add(-1L);
+        List<Producto> cargados = productoDAO.getAll(buscados);
+        assertEquals(PRODUCTOS, cargados.size());
+        assertEquals(ids, cargados.stream().map(Producto::getId).toList());
+
+        cargados.forEach(producto -> producto.setCantidadDisponible(99));
+        assertEquals(PRODUCTOS, productoDAO.updateAll(cargados));
+        assertEquals(99 * PRODUCTOS, BaseDeDatosPrueba.consultarNumero("SELECT sum(cantidad_disponible) FROM Productos").intValue());
+
+        Set<Long> recorridos = new HashSet<>();
+        long leidos = productoDAO.forEach(producto -> recorridos.add(producto.getId()));
+        assertTrue(PRODUCTOS > HibernateUtil.getTamañoLecturaStreaming());
+        assertEquals(PRODUCTOS, leidos);
+        assertEquals(new HashSet<>(ids), recorridos);
+
+        assertEquals(PRODUCTOS - 1, productoDAO.deleteAll(ids.subList(1, ids.size())));
+        assertEquals(1, BaseDeDatosPrueba.consultarNumero("SELECT count(*) FROM Productos").intValue());
+        assertEquals(1, productoDAO.forEach(producto -> assertEquals(ids.get(0), producto.getId())));
+    }
+
+    @Test
+    void lasOperacionesVaciasNoHacenNada() {
+        assertEquals(0, productoDAO.saveAll(List.of()));
+        assertEquals(0, productoDAO.updateAll(null));
+        assertEquals(0, productoDAO.deleteAll(List.of()));
+        assertTrue(productoDAO.getAll(List.of()).isEmpty());
+        assertEquals(0, productoDAO.forEach(producto -> fail("La tabla debería estar vacía")));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.gestionpedidoscondao.domain;
+
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO;
+import com.example.gestionpedidoscondao.domain.pedido.PedidoDAO;
+import com.example.gestionpedidoscondao.domain.pedido.PedidoResumen;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import com.example.gestionpedidoscondao.domain.usuario.UsuarioDAO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase SentenciasPorPantallaTest.
+ * Comprueba con {@link ContadorSentenciasPrueba} que el inicio de sesión, la lista de pedidos y el detalle de un pedido
+ * ejecutan un número fijo de sentencias SQL, sin que dependa de cuántos pedidos tenga el usuario ni de cuántos ítems
+ * tenga el pedido (sin consultas N+1).
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class SentenciasPorPantallaTest {
+
+    private static final int PAGINA = 20;
+    private static final int PEDIDOS_HISTORIAL_GRANDE = 120;
+
+    private static final UsuarioDAO usuarioDAO = new UsuarioDAO();
+    private static final PedidoDAO pedidoDAO = new PedidoDAO();
+    private static final ItemPedidoDAO itemPedidoDAO = new ItemPedidoDAO();
+
+    private static Usuario conPocos;
+    private static Usuario conMuchos;
+
+    @BeforeAll
+    static void preparar() {
+        BaseDeDatosPrueba.iniciar();
+        BaseDeDatosPrueba.vaciar();
+        Producto producto = BaseDeDatosPrueba.crearProducto("Teclado", 25.0, 1000);
+        long dia = 24L * 60 * 60 * 1000;
+
+        conPocos = BaseDeDatosPrueba.crearUsuario("ana", "clave");
+        BaseDeDatosPrueba.crearPedido(conPocos, "ANA_1", new Date(0), producto, 2);
+        BaseDeDatosPrueba.crearPedido(conPocos, "ANA_2", new Date(dia), producto, 2);
+
+        conMuchos = BaseDeDatosPrueba.crearUsuario("luis", "clave");
+        for (int i = 0; i < PEDIDOS_HISTORIAL_GRANDE; i++) {
+            BaseDeDatosPrueba.crearPedido(conMuchos, "LUIS_" + i, new Date(i * dia), producto, 5);
+        }
+        BaseDeDatosPrueba.crearPedido(conMuchos, "LUIS_GRANDE", new Date(PEDIDOS_HISTORIAL_GRANDE * dia), producto, 60);
+    }
+
+    @Test
+    void inicioDeSesion() {
+        int pocos = medir(() -> usuarioDAO.validateUser("ana", "clave"));
+        int muchos = medir(() -> usuarioDAO.validateUser("luis", "clave"));
+        assertEquals(1, pocos);
+        assertEquals(pocos, muchos);
+    }
+
+    @Test
+    void listaDePedidos() {
+        int pocos = medir(() -> pedidoDAO.findPageByUsuarioId(conPocos.getId(), null, null, PAGINA));
+        int muchos = medir(() -> pedidoDAO.findPageByUsuarioId(conMuchos.getId(), null, null, PAGINA));
+        assertEquals(1, pocos);
+        assertEquals(pocos, muchos);
+
+        List<PedidoResumen> primera = pedidoDAO.findPageByUsuarioId(conMuchos.getId(), null, null, PAGINA);
+        assertEquals(PAGINA, primera.size());
+        PedidoResumen ultimo = primera.get(primera.size() - 1);
+        assertEquals(1, medir(() -> pedidoDAO.findPageByUsuarioId(conMuchos.getId(), ultimo.getFecha(), ultimo.getId(), PAGINA)));
+
+        int completaPocos = medir(() -> pedidoDAO.findByUsuarioId(conPocos.getId().intValue()));
+        int completaMuchos = medir(() -> pedidoDAO.findByUsuarioId(conMuchos.getId().intValue()));
+        assertTrue(completaPocos <= 2, "Sentencias: " + completaPocos);
+        assertEquals(completaPocos, completaMuchos);
+    }
+
+    @Test
+    void detalleDePedido() {
+        int pedidoPequeño = medir(() -> pedidoDAO.findByCodigo("ANA_1"));
+        int pedidoGrande = medir(() -> pedidoDAO.findByCodigo("LUIS_GRANDE"));
+        assertTrue(pedidoPequeño <= 2, "Sentencias: " + pedidoPequeño);
+        assertEquals(pedidoPequeño, pedidoGrande);
+
+        int resumenPequeño = medir(() -> itemPedidoDAO.findResumenByPedidoCodigo("ANA_1"));
+        int resumenGrande = medir(() -> itemPedidoDAO.findResumenByPedidoCodigo("LUIS_GRANDE"));
+        assertEquals(1, resumenPequeño);
+        assertEquals(resumenPequeño, resumenGrande);
+        assertEquals(60, itemPedidoDAO.findResumenByPedidoCodigo("LUIS_GRANDE").size());
+
+        int itemsPequeño = medir(() -> itemPedidoDAO.findItemsByPedidoCodigo("ANA_1"));
+        int itemsGrande = medir(() -> itemPedidoDAO.findItemsByPedidoCodigo("LUIS_GRANDE"));
+        assertTrue(itemsPequeño <= 4, "Sentencias: " + itemsPequeño);
+        assertEquals(itemsPequeño, itemsGrande);
+    }
+
+    /**
+     * Ejecuta la consulta una vez para calentar las cachés y devuelve las sentencias de la segunda ejecución.
+     */
+    private static int medir(Supplier<?> consulta) {
+        consulta.get();
+        return ContadorSentenciasPrueba.contar(consulta);
+    }
+}
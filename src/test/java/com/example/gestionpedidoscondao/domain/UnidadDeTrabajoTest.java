@@ -0,0 +1,91 @@
+package com.example.gestionpedidoscondao.domain;
+
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO;
+import com.example.gestionpedidoscondao.domain.pedido.Pedido;
+import com.example.gestionpedidoscondao.domain.pedido.PedidoDAO;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.producto.ProductoDAO;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.extern.java.Log;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase UnidadDeTrabajoTest.
+ * Compara el caso de uso "añadir ítem" (buscar el producto, buscar el pedido y guardar el ítem) ejecutado como una sola
+ * {@link UnidadDeTrabajo} con el mismo caso ejecutado como tres llamadas sueltas a los DAO. Registra en el log
+ * las sesiones abiertas y las sentencias SQL de cada forma, y comprueba que la unidad usa una sola sesión.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+class UnidadDeTrabajoTest {
+
+    private static final String CODIGO = "PEDIDO_UNIDAD";
+    private static final String PRODUCTO = "Monitor";
+
+    private final ProductoDAO productoDAO = new ProductoDAO();
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+    private final ItemPedidoDAO itemPedidoDAO = new ItemPedidoDAO();
+
+    @BeforeAll
+    static void preparar() {
+        BaseDeDatosPrueba.iniciar();
+        BaseDeDatosPrueba.vaciar();
+        Usuario usuario = BaseDeDatosPrueba.crearUsuario("unidad", "clave");
+        Producto producto = BaseDeDatosPrueba.crearProducto(PRODUCTO, 150.0, 1000);
+        BaseDeDatosPrueba.crearPedido(usuario, CODIGO, new Date(0), producto, 1);
+    }
+
+    @Test
+    void anadirItemEnUnaUnidadFrenteATresLlamadas() {
+        Statistics estadisticas = HibernateUtil.getSessionFactory().getStatistics();
+        // Una pasada de cada forma para calentar cachés y conexiones
+        anadirEnUnidad();
+        anadirPorSeparado();
+
+        long sesionesAntes = estadisticas.getSessionOpenCount();
+        int sentenciasUnidad = ContadorSentenciasPrueba.contar(this::anadirEnUnidad);
+        long sesionesUnidad = estadisticas.getSessionOpenCount() - sesionesAntes;
+
+        sesionesAntes = estadisticas.getSessionOpenCount();
+        int sentenciasSeparado = ContadorSentenciasPrueba.contar(this::anadirPorSeparado);
+        long sesionesSeparado = estadisticas.getSessionOpenCount() - sesionesAntes;
+
+        log.info(String.format("Añadir ítem: en una unidad de trabajo %d sesiones y %d sentencias; " +
+                "con tres llamadas sueltas %d sesiones y %d sentencias", sesionesUnidad, sentenciasUnidad, sesionesSeparado, sentenciasSeparado));
+
+        assertEquals(1, sesionesUnidad);
+        assertTrue(sesionesSeparado >= 3, "Sesiones con llamadas sueltas: " + sesionesSeparado);
+        assertTrue(sentenciasUnidad <= sentenciasSeparado,
+                "Sentencias en la unidad: " + sentenciasUnidad + ", sueltas: " + sentenciasSeparado);
+        assertEquals(5, itemPedidoDAO.findResumenByPedidoCodigo(CODIGO).size());
+    }
+
+    private ItemPedido anadirEnUnidad() {
+        return UnidadDeTrabajo.ejecutar("añadir ítem", session -> anadir());
+    }
+
+    private ItemPedido anadirPorSeparado() {
+        assertFalse(UnidadDeTrabajo.isActiva());
+        return anadir();
+    }
+
+    private ItemPedido anadir() {
+        Producto producto = productoDAO.findByName(PRODUCTO);
+        Pedido pedido = pedidoDAO.findByCodigo(CODIGO);
+        ItemPedido item = new ItemPedido();
+        item.setProducto(producto);
+        item.setCantidad(1);
+        item.setPedido(pedido);
+        return itemPedidoDAO.save(item);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.gestionpedidoscondao.domain.itemPedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.pedido.Pedido;
+import com.example.gestionpedidoscondao.domain.pedido.PedidoDAO;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.producto.StockInsuficienteException;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase ItemPedidoDAOTest.
+ * Comprueba las operaciones CRUD de {@link ItemPedidoDAO}: las lecturas cargan el producto de cada ítem,
+ * y la actualización y el borrado ajustan el stock del producto y el total del pedido.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class ItemPedidoDAOTest {
+
+    private static final String CODIGO = "PEDIDO_CRUD";
+    private static final int STOCK = 10;
+
+    private final ItemPedidoDAO itemPedidoDAO = new ItemPedidoDAO();
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+
+    private Producto teclado;
+    private Producto raton;
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+        Usuario usuario = BaseDeDatosPrueba.crearUsuario("crud", "clave");
+        teclado = BaseDeDatosPrueba.crearProducto("Teclado", 20.0, STOCK);
+        raton = BaseDeDatosPrueba.crearProducto("Ratón", 5.0, STOCK);
+        BaseDeDatosPrueba.crearPedido(usuario, CODIGO, new Date(0), teclado, 2);
+    }
+
+    @Test
+    void leeLosItemsConSuProducto() {
+        List<ItemPedido> items = itemPedidoDAO.getAll();
+        assertEquals(2, items.size());
+        assertEquals("Teclado", items.get(0).getProducto().getNombre());
+
+        ItemPedido item = itemPedidoDAO.get(items.get(0).getId());
+        assertNotNull(item);
+        assertEquals(20.0, item.getPrecioTotal(), 0.001);
+        assertNull(itemPedidoDAO.get(-1L));
+    }
+
+    @Test
+    void actualizarAjustaElStockYElTotal() {
+        ItemPedido item = itemPedidoDAO.get(itemPedidoDAO.getAll().get(0).getId());
+
+        item.setCantidad(4);
+        itemPedidoDAO.update(item);
+        assertEquals(STOCK - 3, stock(teclado));
+        assertEquals(5 * 20.0, total(), 0.001);
+
+        item.setProducto(raton);
+        item.setCantidad(2);
+        itemPedidoDAO.update(item);
+        assertEquals(STOCK + 1, stock(teclado));
+        assertEquals(STOCK - 2, stock(raton));
+        assertEquals(20.0 + 2 * 5.0, total(), 0.001);
+
+        item.setCantidad(STOCK + 1);
+        assertThrows(StockInsuficienteException.class, () -> itemPedidoDAO.update(item));
+        assertEquals(STOCK - 2, stock(raton));
+        assertEquals(2, itemPedidoDAO.get(item.getId()).getCantidad());
+    }
+
+    @Test
+    void borrarDevuelveElStockYRestaDelTotal() {
+        ItemPedido item = itemPedidoDAO.getAll().get(0);
+        itemPedidoDAO.delete(item);
+
+        assertNull(itemPedidoDAO.get(item.getId()));
+        assertEquals(1, itemPedidoDAO.getAll().size());
+        assertEquals(STOCK + 1, stock(teclado));
+        assertEquals(20.0, total(), 0.001);
+    }
+
+    private double total() {
+        Pedido pedido = pedidoDAO.findByCodigo(CODIGO);
+        return pedido.getTotal();
+    }
+
+    private int stock(Producto producto) {
+        return BaseDeDatosPrueba.consultarNumero(
+                "SELECT cantidad_disponible FROM Productos WHERE id_productos = " + producto.getId()).intValue();
+    }
+}
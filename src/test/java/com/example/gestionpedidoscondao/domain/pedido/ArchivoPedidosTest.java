@@ -0,0 +1,94 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase ArchivoPedidosTest.
+ * Comprueba que los ítems archivados conservan el nombre y el precio que tenía su producto al archivarlos,
+ * aunque después se modifique o se borre, y que {@link ExtractorPedidos} incluye los pedidos archivados.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class ArchivoPedidosTest {
+
+    private static final String ARCHIVADO = "PEDIDO_ARCHIVADO";
+    private static final String ACTUAL = "PEDIDO_ACTUAL";
+
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+    private final ItemPedidoDAO itemPedidoDAO = new ItemPedidoDAO();
+
+    private Producto silla;
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+        Usuario usuario = BaseDeDatosPrueba.crearUsuario("archivo", "clave");
+        silla = BaseDeDatosPrueba.crearProducto("Silla", 30.0, 100);
+        BaseDeDatosPrueba.crearPedido(usuario, ARCHIVADO, new Date(0), silla, 2);
+        BaseDeDatosPrueba.crearPedido(usuario, ACTUAL, new Date(), silla, 1);
+        pedidoDAO.archivarAnterioresA(1);
+        assertEquals(1, BaseDeDatosPrueba.consultarNumero("SELECT count(*) FROM PedidosArchivo").intValue());
+    }
+
+    @Test
+    void losItemsArchivadosConservanElProductoDeEntonces() {
+        ejecutar("UPDATE Productos SET nombre = 'Silla de oficina', precio = 45.0 WHERE id_productos = " + silla.getId());
+
+        List<ItemPedidoResumen> resumen = itemPedidoDAO.findResumenByPedidoCodigo(ARCHIVADO);
+        assertEquals(2, resumen.size());
+        assertTrue(resumen.stream().allMatch(item -> item.getNombreProducto().equals("Silla") && item.getPrecio() == 30.0));
+
+        List<ItemPedido> items = itemPedidoDAO.findItemsByPedidoCodigo(ARCHIVADO);
+        assertEquals(2, items.size());
+        assertEquals("Silla", items.get(0).getProducto().getNombre());
+        assertEquals(30.0, items.get(0).getPrecioTotal(), 0.001);
+
+        ejecutar("DELETE FROM ItemsPedidos");
+        ejecutar("DELETE FROM Productos");
+        assertEquals("Silla", itemPedidoDAO.findResumenByPedidoCodigo(ARCHIVADO).get(0).getNombreProducto());
+    }
+
+    @Test
+    void laExtraccionIncluyeLosPedidosArchivados(@TempDir Path directorio) throws Exception {
+        Path fichero = directorio.resolve("pedidos.ndjson");
+        ResultadoExtraccion resultado = new ExtractorPedidos(FormatoExtraccion.NDJSON, 1).extraer(fichero);
+
+        assertTrue(resultado.isCompleta());
+        assertEquals(2, resultado.getPedidos());
+        assertEquals(3, resultado.getItems());
+        List<String> lineas = Files.readAllLines(fichero);
+        assertEquals(2, lineas.size());
+        assertTrue(lineas.get(0).contains(ACTUAL));
+        assertTrue(lineas.get(1).contains(ARCHIVADO));
+        assertTrue(lineas.get(1).contains("\"nombre\":\"Silla\""));
+        assertFalse(Files.exists(directorio.resolve("pedidos.ndjson.checkpoint")));
+    }
+
+    private static void ejecutar(String sql) {
+        HibernateUtil.getSessionFactory().inTransaction(session -> session.createNativeMutationQuery(sql).executeUpdate());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.MetricaReintentos;
+import com.example.gestionpedidoscondao.domain.ReintentoOptimista;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.producto.ProductoDAO;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase EdicionSimultaneaPedidoTest.
+ * Varios hilos añaden y quitan ítems de un mismo pedido mientras otros editan el pedido completo.
+ * Comprueba que el total del pedido coincide al final con la suma de sus ítems, y que los conflictos optimistas
+ * de las ediciones quedan contados en las métricas de {@link ReintentoOptimista}.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class EdicionSimultaneaPedidoTest {
+
+    private static final String CODIGO = "PEDIDO_COMPARTIDO";
+    private static final String AÑADIR = "añadir ítem";
+    private static final String EDITAR = "editar pedido";
+    private static final int HILOS_ITEMS = 4;
+    private static final int HILOS_EDICION = 2;
+    private static final int OPERACIONES_POR_HILO = 60;
+    private static final int EDICIONES_POR_HILO = 30;
+
+    private final ProductoDAO productoDAO = new ProductoDAO();
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+    private final ItemPedidoDAO itemPedidoDAO = new ItemPedidoDAO();
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+        Usuario usuario = BaseDeDatosPrueba.crearUsuario("editor", "clave");
+        Producto base = BaseDeDatosPrueba.crearProducto("Ratón", 12.5, 1_000_000);
+        BaseDeDatosPrueba.crearProducto("Cable", 2.25, 1_000_000);
+        BaseDeDatosPrueba.crearPedido(usuario, CODIGO, new Date(0), base, 3);
+    }
+
+    @Test
+    void elTotalCoincideConLosItemsYLosConflictosSeCuentan() throws Exception {
+        MetricaReintentos añadirAntes = metrica(AÑADIR);
+        MetricaReintentos editarAntes = metrica(EDITAR);
+        AtomicInteger añadidos = new AtomicInteger();
+        AtomicInteger quitados = new AtomicInteger();
+        AtomicInteger edicionesAbandonadas = new AtomicInteger();
+
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS_ITEMS + HILOS_EDICION);
+        List<Future<?>> hilos = new ArrayList<>();
+        try {
+            for (int h = 0; h < HILOS_ITEMS; h++) {
+                String nombreProducto = h % 2 == 0 ? "Ratón" : "Cable";
+                hilos.add(ejecutor.submit(() -> {
+                    salida.await();
+                    Deque<Long> propios = new ArrayDeque<>(); // Cada hilo solo quita los ítems que ha añadido él
+                    for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                        if (!propios.isEmpty() && ThreadLocalRandom.current().nextBoolean()) {
+                            assertTrue(itemPedidoDAO.removeById(propios.pop()));
+                            quitados.incrementAndGet();
+                        } else {
+                            propios.push(añadir(nombreProducto, 1 + ThreadLocalRandom.current().nextInt(4)).getId());
+                            añadidos.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int h = 0; h < HILOS_EDICION; h++) {
+                hilos.add(ejecutor.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < EDICIONES_POR_HILO; i++) {
+                        try {
+                            editar();
+                        } catch (RuntimeException e) {
+                            if (!ReintentoOptimista.isConflicto(e)) {
+                                throw e;
+                            }
+                            edicionesAbandonadas.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> hilo : hilos) {
+                hilo.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        double total = BaseDeDatosPrueba.consultarNumero(
+                "SELECT total FROM Pedidos WHERE `código` = '" + CODIGO + "'").doubleValue();
+        double sumaItems = BaseDeDatosPrueba.consultarNumero(
+                "SELECT coalesce(sum(i.cantidad * p.precio), 0) FROM ItemsPedidos i " +
+                        "JOIN Productos p ON p.id_productos = i.producto WHERE i.codPedido = '" + CODIGO + "'").doubleValue();
+        assertEquals(sumaItems, total, 0.001);
+        assertEquals(3 + añadidos.get() - quitados.get(), BaseDeDatosPrueba.consultarNumero(
+                "SELECT count(*) FROM ItemsPedidos WHERE codPedido = '" + CODIGO + "'").intValue());
+
+        MetricaReintentos añadir = metrica(AÑADIR);
+        assertEquals(añadidos.get(), añadir.getEjecuciones() - añadirAntes.getEjecuciones());
+
+        MetricaReintentos editar = metrica(EDITAR);
+        long conflictos = editar.getConflictos() - editarAntes.getConflictos();
+        long reintentos = editar.getReintentos() - editarAntes.getReintentos();
+        long agotadas = editar.getAgotadas() - editarAntes.getAgotadas();
+        assertEquals((long) HILOS_EDICION * EDICIONES_POR_HILO, editar.getEjecuciones() - editarAntes.getEjecuciones());
+        assertTrue(conflictos > 0, "Las ediciones simultáneas deberían haber chocado con los cambios de ítems");
+        assertEquals(conflictos, reintentos + agotadas);
+        assertEquals(edicionesAbandonadas.get(), agotadas);
+    }
+
+    /**
+     * Añade un ítem al pedido igual que la ventana de ítems: busca el producto y el pedido y guarda el ítem en una unidad de trabajo.
+     */
+    private ItemPedido añadir(String nombreProducto, int cantidad) {
+        return ReintentoOptimista.enUnidadDeTrabajo(AÑADIR, session -> {
+            ItemPedido nuevoItem = new ItemPedido();
+            nuevoItem.setProducto(productoDAO.findByName(nombreProducto));
+            nuevoItem.setCantidad(cantidad);
+            nuevoItem.setPedido(pedidoDAO.findByCodigo(CODIGO));
+            return itemPedidoDAO.save(nuevoItem);
+        });
+    }
+
+    /**
+     * Modifica el pedido completo a partir de una copia leída un momento antes, de modo que choca
+     * con cualquier ítem añadido o quitado entretanto.
+     */
+    private void editar() {
+        ReintentoOptimista.enUnidadDeTrabajo(EDITAR, session -> {
+            Pedido pedido = pedidoDAO.findByCodigo(CODIGO);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pedido.setFecha(new Date(pedido.getFecha().getTime() + TimeUnit.DAYS.toMillis(1)));
+            return pedido;
+        });
+    }
+
+    private static MetricaReintentos metrica(String operacion) {
+        MetricaReintentos metrica = ReintentoOptimista.getMetricas().get(operacion);
+        return metrica != null ? metrica : new MetricaReintentos(operacion, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase HuellaPedidoTest.
+ * Comprueba que la huella que calcula {@link PedidoDAO#findHuellaByCodigo(String)} cambia con cada dato que muestra
+ * el informe del pedido aunque sus ítems no cambien, y que coincide con la que se calcula con los datos ya cargados.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class HuellaPedidoTest {
+
+    private static final String CODIGO = "PEDIDO_HUELLA";
+
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+
+    private Usuario usuario;
+    private Producto producto;
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+        usuario = BaseDeDatosPrueba.crearUsuario("huella", "clave");
+        producto = BaseDeDatosPrueba.crearProducto("Lámpara", 12.5, 100);
+        BaseDeDatosPrueba.crearPedido(usuario, CODIGO, new Date(0), producto, 3);
+    }
+
+    @Test
+    void coincideConLaDeLosDatosCargados() {
+        HuellaPedido enMemoria = HuellaPedido.de(usuario.getId(), usuario.getNombre(), usuario.getEmail(),
+                new ItemPedidoDAO().findResumenByPedidoCodigo(CODIGO));
+        assertEquals(enMemoria, pedidoDAO.findHuellaByCodigo(CODIGO));
+        assertNull(pedidoDAO.findHuellaByCodigo("NO_EXISTE"));
+    }
+
+    @Test
+    void cambiaConLosDatosQueMuestraElInforme() {
+        HuellaPedido inicial = pedidoDAO.findHuellaByCodigo(CODIGO);
+        assertNotNull(inicial);
+
+        ejecutar("UPDATE Productos SET nombre = 'Lámpara de pie' WHERE id_productos = " + producto.getId());
+        HuellaPedido renombrado = pedidoDAO.findHuellaByCodigo(CODIGO);
+        assertNotEquals(inicial, renombrado);
+
+        ejecutar("UPDATE Productos SET precio = 13.0 WHERE id_productos = " + producto.getId());
+        HuellaPedido otroPrecio = pedidoDAO.findHuellaByCodigo(CODIGO);
+        assertNotEquals(renombrado, otroPrecio);
+
+        ejecutar("UPDATE usuarios SET email = 'otro@example.com' WHERE id_usuarios = " + usuario.getId());
+        HuellaPedido otroEmail = pedidoDAO.findHuellaByCodigo(CODIGO);
+        assertNotEquals(otroPrecio, otroEmail);
+
+        ejecutar("UPDATE usuarios SET nombre = 'huella2' WHERE id_usuarios = " + usuario.getId());
+        HuellaPedido otroNombre = pedidoDAO.findHuellaByCodigo(CODIGO);
+        assertNotEquals(otroEmail, otroNombre);
+
+        ejecutar("UPDATE Pedidos SET total = 0 WHERE `código` = '" + CODIGO + "'");
+        HuellaPedido otroTotal = pedidoDAO.findHuellaByCodigo(CODIGO);
+        assertNotEquals(otroNombre, otroTotal);
+        assertEquals(otroNombre.getItems(), otroTotal.getItems());
+        assertEquals(otroNombre.getResumen(), otroTotal.getResumen());
+
+        assertEquals(otroTotal, pedidoDAO.findHuellaByCodigo(CODIGO));
+    }
+
+    private static void ejecutar(String sql) {
+        HibernateUtil.getSessionFactory().inTransaction(session -> session.createNativeMutationQuery(sql).executeUpdate());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.ContadorSentenciasPrueba;
+import com.example.gestionpedidoscondao.domain.HibernateDAO;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedido;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.extern.java.Log;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase InsercionPorLotesTest.
+ * Inserta muchos pedidos con sus ítems mediante {@link HibernateDAO#saveAll} y comprueba que, con los IDs asignados
+ * por el generador de tabla con optimizador pooled-lo, las inserciones se agrupan en lotes JDBC:
+ * el número de sentencias preparadas queda muy por debajo del número de filas. Registra en el log las filas por segundo.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+class InsercionPorLotesTest {
+
+    private static final int PEDIDOS = 1000;
+    private static final int ITEMS_POR_PEDIDO = 2;
+
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+    private final HibernateDAO<ItemPedido> itemDAO = new HibernateDAO<>(ItemPedido.class) {
+    };
+
+    private Usuario usuario;
+    private Producto producto;
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+        usuario = BaseDeDatosPrueba.crearUsuario("importador", "clave");
+        producto = BaseDeDatosPrueba.crearProducto("Lápiz", 0.5, 1_000_000);
+    }
+
+    @Test
+    void lasInsercionesSeAgrupanEnLotes() {
+        List<Pedido> pedidos = new ArrayList<>();
+        List<ItemPedido> items = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            Pedido pedido = new Pedido();
+            pedido.setCodigo("LOTE_" + i);
+            pedido.setFecha(new Date(0));
+            pedido.setUsuario(usuario);
+            pedido.setTotal(ITEMS_POR_PEDIDO * producto.getPrecio());
+            pedidos.add(pedido);
+            for (int j = 0; j < ITEMS_POR_PEDIDO; j++) {
+                ItemPedido item = new ItemPedido();
+                item.setPedido(pedido);
+                item.setProducto(producto);
+                item.setCantidad(1);
+                items.add(item);
+            }
+        }
+
+        AtomicInteger insertados = new AtomicInteger();
+        long inicio = System.nanoTime();
+        int sentencias = ContadorSentenciasPrueba.contar(() -> {
+            insertados.addAndGet(pedidoDAO.saveAll(pedidos));
+            return insertados.addAndGet(itemDAO.saveAll(items));
+        });
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        int filas = PEDIDOS * (1 + ITEMS_POR_PEDIDO);
+        log.info(String.format("Inserción por lotes: %d filas en %d sentencias, %.0f filas/s", filas, sentencias, filas / segundos));
+
+        assertEquals(filas, insertados.get());
+        assertEquals(PEDIDOS, BaseDeDatosPrueba.consultarNumero("SELECT count(*) FROM Pedidos").intValue());
+        assertEquals(PEDIDOS * ITEMS_POR_PEDIDO, BaseDeDatosPrueba.consultarNumero("SELECT count(*) FROM ItemsPedidos").intValue());
+        assertTrue(sentencias < filas / 10, "Sentencias para " + filas + " filas: " + sentencias);
+    }
+}
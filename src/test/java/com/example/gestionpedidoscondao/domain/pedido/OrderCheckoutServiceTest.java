@@ -0,0 +1,96 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.carrito.Carrito;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.producto.StockInsuficienteException;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase OrderCheckoutServiceTest.
+ * Lanza cientos de compras simultáneas de un producto con poco stock y comprueba que la reserva es atómica:
+ * el stock nunca queda en negativo, se aceptan exactamente las compras que caben en el stock inicial
+ * y las demás fallan con {@link StockInsuficienteException} sin dejar pedidos a medias.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class OrderCheckoutServiceTest {
+
+    private static final int STOCK = 30;
+    private static final int CANTIDAD = 3;
+    private static final int COMPRAS = 300;
+    private static final int HILOS = 8; // Por debajo del pool de conexiones de pruebas, que también atiende al generador de IDs
+
+    private Usuario usuario;
+    private Producto producto;
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+        usuario = BaseDeDatosPrueba.crearUsuario("comprador", "clave");
+        producto = BaseDeDatosPrueba.crearProducto("Monitor", 150.0, STOCK);
+    }
+
+    @Test
+    void comprasSimultaneasNoVendenMasDelStock() throws Exception {
+        OrderCheckoutService servicio = new OrderCheckoutService();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        List<Future<Pedido>> compras = new ArrayList<>();
+        try {
+            for (int i = 0; i < COMPRAS; i++) {
+                compras.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return servicio.checkout(usuario, List.of(new Carrito(producto.getNombre(), CANTIDAD, 0.0)));
+                }));
+            }
+            salida.countDown();
+
+            int aceptadas = 0;
+            int sinStock = 0;
+            for (Future<Pedido> compra : compras) {
+                try {
+                    Pedido pedido = compra.get(60, TimeUnit.SECONDS);
+                    assertEquals(CANTIDAD * producto.getPrecio(), pedido.getTotal(), 0.001);
+                    aceptadas++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(StockInsuficienteException.class, e.getCause());
+                    sinStock++;
+                }
+            }
+
+            assertEquals(STOCK / CANTIDAD, aceptadas);
+            assertEquals(COMPRAS - STOCK / CANTIDAD, sinStock);
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        int stockFinal = BaseDeDatosPrueba.consultarNumero(
+                "SELECT cantidad_disponible FROM Productos WHERE id_productos = " + producto.getId()).intValue();
+        assertTrue(stockFinal >= 0, "Stock final: " + stockFinal);
+        assertEquals(STOCK - (STOCK / CANTIDAD) * CANTIDAD, stockFinal);
+        assertEquals(STOCK / CANTIDAD, BaseDeDatosPrueba.consultarNumero("SELECT count(*) FROM Pedidos").intValue());
+        assertEquals(STOCK - stockFinal, BaseDeDatosPrueba.consultarNumero("SELECT coalesce(sum(cantidad), 0) FROM ItemsPedidos").intValue());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase RecorridoPedidosTest.
+ * Recorre con {@link PedidoDAO#streamByUsuarioId} un historial con más pedidos que el tamaño de lectura
+ * y que el bloque de vaciado de la sesión, y comprueba que se entregan todos, una sola vez y del más reciente al más antiguo.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class RecorridoPedidosTest {
+
+    private static final int BLOQUE = 40;
+    private static final int PEDIDOS = 250;
+
+    private static final PedidoDAO pedidoDAO = new PedidoDAO();
+
+    private static Usuario usuario;
+
+    @BeforeAll
+    static void preparar() {
+        BaseDeDatosPrueba.iniciar();
+        BaseDeDatosPrueba.vaciar();
+        usuario = BaseDeDatosPrueba.crearUsuario("historial", "clave");
+        Producto producto = BaseDeDatosPrueba.crearProducto("Libreta", 3.0, 1000);
+        long dia = 24L * 60 * 60 * 1000;
+        for (int i = 0; i < PEDIDOS; i++) {
+            BaseDeDatosPrueba.crearPedido(usuario, "HIST_" + i, new Date(i * dia), producto, 1);
+        }
+    }
+
+    @Test
+    void recorreTodosLosPedidosPorBloques() {
+        assertTrue(PEDIDOS > HibernateUtil.getTamañoLecturaStreaming(), "El historial debe superar el tamaño de lectura");
+
+        List<String> codigos = new ArrayList<>();
+        long leidos = pedidoDAO.streamByUsuarioId(usuario.getId(), BLOQUE, pedido -> codigos.add(pedido.getCodigo()));
+
+        assertEquals(PEDIDOS, leidos);
+        assertEquals(PEDIDOS, codigos.size());
+        for (int i = 0; i < PEDIDOS; i++) {
+            assertEquals("HIST_" + (PEDIDOS - 1 - i), codigos.get(i));
+        }
+    }
+
+    @Test
+    void unUsuarioSinPedidosNoRecorreNada() {
+        Usuario sinPedidos = BaseDeDatosPrueba.crearUsuario("nuevo", "clave");
+        assertEquals(0, pedidoDAO.streamByUsuarioId(sinPedidos.getId(), BLOQUE, pedido -> fail("No debería haber pedidos")));
+    }
+}
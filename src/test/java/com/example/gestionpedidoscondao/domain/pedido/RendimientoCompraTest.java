@@ -0,0 +1,94 @@
+package com.example.gestionpedidoscondao.domain.pedido;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.ContadorSentenciasPrueba;
+import com.example.gestionpedidoscondao.domain.carrito.Carrito;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.extern.java.Log;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase RendimientoCompraTest.
+ * Mide con {@link ContadorSentenciasPrueba} las sentencias SQL y la latencia de {@link OrderCheckoutService#checkout}
+ * para carritos de 1, 10 y 100 líneas. Como los productos se resuelven con una sola consulta y los ítems se insertan
+ * en lotes, las sentencias de una compra no crecen con el número de líneas más que un lote por cada
+ * {@link OrderCheckoutService#TAMAÑO_LOTE} ítems.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+class RendimientoCompraTest {
+
+    private static final int[] LINEAS = {1, 10, 100};
+    private static final int REPETICIONES = 5;
+    private static final int MARGEN = 2; // Sentencias del generador de IDs cuando una compra agota su bloque
+
+    private final OrderCheckoutService servicio = new OrderCheckoutService();
+    private Usuario usuario;
+    private List<Producto> productos;
+
+    @BeforeAll
+    static void arrancar() {
+        BaseDeDatosPrueba.iniciar();
+    }
+
+    @BeforeEach
+    void preparar() {
+        BaseDeDatosPrueba.vaciar();
+        usuario = BaseDeDatosPrueba.crearUsuario("comprador", "clave");
+        productos = new ArrayList<>();
+        for (int i = 0; i < LINEAS[LINEAS.length - 1]; i++) {
+            productos.add(BaseDeDatosPrueba.crearProducto("Producto_" + i, 1.0 + i, 1_000_000));
+        }
+    }
+
+    @Test
+    void lasSentenciasNoCrecenConLasLineasDelCarrito() {
+        // Calienta Hibernate, el pool y el generador de IDs
+        servicio.checkout(usuario, carrito(LINEAS[LINEAS.length - 1]));
+
+        int[] sentencias = new int[LINEAS.length];
+        for (int i = 0; i < LINEAS.length; i++) {
+            List<Carrito> lineas = carrito(LINEAS[i]);
+            int minimo = Integer.MAX_VALUE;
+            long nanos = 0;
+            for (int r = 0; r < REPETICIONES; r++) {
+                long inicio = System.nanoTime();
+                minimo = Math.min(minimo, ContadorSentenciasPrueba.contar(() -> servicio.checkout(usuario, lineas)));
+                nanos += System.nanoTime() - inicio;
+            }
+            sentencias[i] = minimo;
+            log.info(String.format("Compra de %d líneas: %d sentencias, %.2f ms de media",
+                    LINEAS[i], minimo, nanos / (double) REPETICIONES / TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+
+        for (int i = 1; i < LINEAS.length; i++) {
+            int lotes = (LINEAS[i] + OrderCheckoutService.TAMAÑO_LOTE - 1) / OrderCheckoutService.TAMAÑO_LOTE;
+            assertTrue(sentencias[i] <= sentencias[0] + lotes + MARGEN,
+                    LINEAS[i] + " líneas: " + sentencias[i] + " sentencias, 1 línea: " + sentencias[0]);
+        }
+        assertTrue(sentencias[LINEAS.length - 1] < LINEAS[LINEAS.length - 1] / 10,
+                "Sentencias para " + LINEAS[LINEAS.length - 1] + " líneas: " + sentencias[LINEAS.length - 1]);
+        assertEquals(1 + REPETICIONES * LINEAS.length, BaseDeDatosPrueba.consultarNumero("SELECT count(*) FROM Pedidos").intValue());
+    }
+
+    private List<Carrito> carrito(int lineas) {
+        List<Carrito> carrito = new ArrayList<>();
+        for (int i = 0; i < lineas; i++) {
+            Producto producto = productos.get(i);
+            carrito.add(new Carrito(producto.getNombre(), 1, producto.getPrecio()));
+        }
+        return carrito;
+    }
+}
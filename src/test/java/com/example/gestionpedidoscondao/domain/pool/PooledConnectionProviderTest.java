@@ -0,0 +1,123 @@
+package com.example.gestionpedidoscondao.domain.pool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase PooledConnectionProviderTest.
+ * Arranca el proveedor de conexiones contra una base de datos H2 en memoria y comprueba
+ * que {@link PooledConnectionProvider#getEstadisticas()} refleja el uso real del pool.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class PooledConnectionProviderTest {
+
+    private static final int TAMAÑO_MAXIMO = 4;
+
+    private PooledConnectionProvider provider;
+
+    @BeforeEach
+    void arrancar() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("hibernate.connection.url", "jdbc:h2:mem:pool;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        props.put("hibernate.connection.driver_class", "org.h2.Driver");
+        props.put("hibernate.connection.username", "sa");
+        props.put("hibernate.connection.password", "");
+        props.put("hibernate.hikari.maximumPoolSize", String.valueOf(TAMAÑO_MAXIMO));
+        props.put("hibernate.hikari.minimumIdle", "1");
+        props.put("hibernate.hikari.connectionTimeout", "5000");
+        provider = new PooledConnectionProvider();
+        provider.configure(props);
+    }
+
+    @AfterEach
+    void parar() {
+        if (provider != null) {
+            provider.stop();
+        }
+    }
+
+    @Test
+    void cuentaLasConexionesPrestadasYDevueltas() throws Exception {
+        EstadisticasPool inicial = PooledConnectionProvider.getEstadisticas();
+        assertNotNull(inicial);
+        assertEquals(TAMAÑO_MAXIMO, inicial.getTamañoMaximo());
+        assertEquals(0, inicial.getActivas());
+        assertEquals(0, inicial.getAdquisiciones());
+
+        List<Connection> prestadas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            prestadas.add(provider.getConnection());
+        }
+        EstadisticasPool enUso = PooledConnectionProvider.getEstadisticas();
+        assertEquals(3, enUso.getActivas());
+        assertEquals(3, enUso.getAdquisiciones());
+        assertTrue(enUso.getActivas() + enUso.getInactivas() <= TAMAÑO_MAXIMO);
+
+        for (Connection conexion : prestadas) {
+            provider.closeConnection(conexion);
+        }
+        EstadisticasPool devueltas = PooledConnectionProvider.getEstadisticas();
+        assertEquals(0, devueltas.getActivas());
+        assertEquals(3, devueltas.getAdquisiciones());
+        assertTrue(devueltas.getInactivas() >= 1);
+        assertTrue(devueltas.getEsperaMediaMs() >= 0.0);
+    }
+
+    @Test
+    void mideLaEsperaCuandoElPoolEstaAgotado() throws Exception {
+        List<Connection> prestadas = new ArrayList<>();
+        for (int i = 0; i < TAMAÑO_MAXIMO; i++) {
+            prestadas.add(provider.getConnection());
+        }
+
+        CompletableFuture<Connection> enEspera = CompletableFuture.supplyAsync(() -> {
+            try {
+                return provider.getConnection();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (PooledConnectionProvider.getEstadisticas().getHilosEsperando() == 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, PooledConnectionProvider.getEstadisticas().getHilosEsperando());
+
+        Thread.sleep(200);
+        provider.closeConnection(prestadas.remove(0));
+        Connection obtenida = enEspera.get(5, TimeUnit.SECONDS);
+
+        EstadisticasPool estadisticas = PooledConnectionProvider.getEstadisticas();
+        assertEquals(TAMAÑO_MAXIMO + 1, estadisticas.getAdquisiciones());
+        assertEquals(0, estadisticas.getHilosEsperando());
+        assertEquals(TAMAÑO_MAXIMO, estadisticas.getActivas());
+        assertTrue(estadisticas.getEsperaMaximaMs() >= 150, "Espera máxima: " + estadisticas.getEsperaMaximaMs());
+        assertTrue(estadisticas.getEsperaMediaMs() > 0.0);
+
+        provider.closeConnection(obtenida);
+        for (Connection conexion : prestadas) {
+            provider.closeConnection(conexion);
+        }
+    }
+
+    @Test
+    void dejaDePublicarEstadisticasAlParar() {
+        provider.stop();
+        provider = null;
+        assertNull(PooledConnectionProvider.getEstadisticas());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.BaseDeDatosPrueba;
+import com.example.gestionpedidoscondao.domain.ContadorSentenciasPrueba;
+import com.example.gestionpedidoscondao.domain.HibernateUtil;
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoDAO;
+import com.example.gestionpedidoscondao.domain.producto.Producto;
+import com.example.gestionpedidoscondao.domain.usuario.Usuario;
+import lombok.extern.java.Log;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase OrigenesInformeTest.
+ * Rellena el informe del mismo pedido por los dos caminos de {@link ServicioInformes}: con los datos ya cargados
+ * mediante {@link PedidoDataSource} y con la consulta SQL de la plantilla sobre una conexión. Registra en el log
+ * la duración media y las sentencias SQL de cada camino, y comprueba que el primero no ejecuta ninguna
+ * y que ambos producen el mismo número de páginas.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+class OrigenesInformeTest {
+
+    private static final String CODIGO = "PEDIDO_INFORME";
+    private static final int ITEMS = 50;
+    private static final int REPETICIONES = 20;
+
+    private static Usuario usuario;
+
+    @BeforeAll
+    static void preparar() {
+        BaseDeDatosPrueba.iniciar();
+        BaseDeDatosPrueba.vaciar();
+        usuario = BaseDeDatosPrueba.crearUsuario("informes", "clave");
+        Producto producto = BaseDeDatosPrueba.crearProducto("Grapadora", 7.25, 1000);
+        BaseDeDatosPrueba.crearPedido(usuario, CODIGO, new Date(0), producto, ITEMS);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        RegistroPlantillas.cerrar();
+    }
+
+    @Test
+    void compararDatosEnMemoriaConConsultaSql() throws Exception {
+        JasperReport plantilla = RegistroPlantillas.getInstancia().get(ServicioInformes.PLANTILLA);
+        InstantaneaPedido instantanea = new InstantaneaPedido(CODIGO, usuario.getId(), usuario.getNombre(), usuario.getEmail(),
+                new ItemPedidoDAO().findResumenByPedidoCodigo(CODIGO), Instant.now());
+        assertEquals(ITEMS, instantanea.getItems().size());
+
+        JRSwapFileVirtualizer virtualizador = VirtualizacionInformes.crear();
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            AtomicInteger sentenciasSql = new AtomicInteger();
+            // Una pasada de cada camino para cargar clases y calentar la conexión
+            int paginasMemoria = ServicioInformes.rellenar(plantilla, instantanea, virtualizador).getPages().size();
+            int paginasSql = session.doReturningWork(conexion ->
+                    ServicioInformes.rellenar(plantilla, CODIGO, contar(conexion, sentenciasSql), virtualizador)).getPages().size();
+            assertEquals(paginasMemoria, paginasSql);
+            assertTrue(sentenciasSql.get() >= 1, "La consulta de la plantilla no se ha ejecutado");
+
+            AtomicInteger sentenciasMemoria = new AtomicInteger();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < REPETICIONES; i++) {
+                sentenciasMemoria.addAndGet(ContadorSentenciasPrueba.contar(() -> rellenarSinFallar(plantilla, instantanea, virtualizador)));
+            }
+            long nanosMemoria = System.nanoTime() - inicio;
+
+            sentenciasSql.set(0);
+            inicio = System.nanoTime();
+            for (int i = 0; i < REPETICIONES; i++) {
+                session.doReturningWork(conexion -> ServicioInformes.rellenar(plantilla, CODIGO, contar(conexion, sentenciasSql), virtualizador));
+            }
+            long nanosSql = System.nanoTime() - inicio;
+
+            log.info(String.format("Informe de %d ítems, %d repeticiones: datos en memoria %.2f ms y %d sentencias por informe; " +
+                            "consulta SQL %.2f ms y %.1f sentencias por informe",
+                    ITEMS, REPETICIONES, media(nanosMemoria), sentenciasMemoria.get() / REPETICIONES,
+                    media(nanosSql), sentenciasSql.get() / (double) REPETICIONES));
+
+            assertEquals(0, sentenciasMemoria.get());
+            assertTrue(sentenciasSql.get() >= REPETICIONES, "Sentencias SQL: " + sentenciasSql.get());
+        } finally {
+            virtualizador.cleanup();
+        }
+    }
+
+    private static JasperPrint rellenarSinFallar(JasperReport plantilla, InstantaneaPedido instantanea, JRSwapFileVirtualizer virtualizador) {
+        try {
+            return ServicioInformes.rellenar(plantilla, instantanea, virtualizador);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Envuelve la conexión para contar las sentencias que se crean con ella, sin cambiar su comportamiento.
+     */
+    private static Connection contar(Connection conexion, AtomicInteger sentencias) {
+        Set<String> creadoras = Set.of("prepareStatement", "createStatement", "prepareCall");
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, args) -> {
+                    if (creadoras.contains(metodo.getName())) {
+                        sentencias.incrementAndGet();
+                    }
+                    try {
+                        return metodo.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static double media(long nanos) {
+        return nanos / (double) REPETICIONES / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.gestionpedidoscondao.informes;
+
+import com.example.gestionpedidoscondao.domain.itemPedido.ItemPedidoResumen;
+import lombok.extern.java.Log;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase RegistroPlantillasTest.
+ * Compara el tiempo de rellenar repetidamente el informe de un pedido a partir del nombre del fichero compilado,
+ * que lo lee y prepara en cada informe, con el de rellenarlo con la plantilla que {@link RegistroPlantillas}
+ * mantiene en memoria. Comprueba además que la plantilla y su versión se leen juntas.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+@Log
+class RegistroPlantillasTest {
+
+    private static final int REPETICIONES = 30;
+    private static final Path COMPILADA = Path.of(ServicioInformes.PLANTILLA + ".jasper");
+
+    @AfterAll
+    static void cerrar() {
+        RegistroPlantillas.cerrar();
+    }
+
+    @Test
+    void rellenarDesdeElRegistroEsMasRapidoQueDesdeElFichero() throws Exception {
+        assertTrue(Files.exists(COMPILADA), "No se encuentra " + COMPILADA.toAbsolutePath());
+        InstantaneaPedido instantanea = instantanea();
+        Map<String, Object> parametros = Map.of("Parameter1", instantanea.getCodigoPedido());
+        JasperFillManager rellenador = JasperFillManager.getInstance(VirtualizacionInformes.getContexto());
+        RegistroPlantillas registro = RegistroPlantillas.getInstancia();
+
+        // Una pasada de cada tipo para cargar clases antes de medir
+        rellenador.fill(COMPILADA.toString(), parametros, new PedidoDataSource(instantanea));
+        rellenador.fill(registro.get(ServicioInformes.PLANTILLA), parametros, new PedidoDataSource(instantanea));
+
+        long desdeFichero = medir(() -> rellenador.fill(COMPILADA.toString(), parametros, new PedidoDataSource(instantanea)));
+        long desdeRegistro = medir(() -> rellenador.fill(registro.get(ServicioInformes.PLANTILLA), parametros, new PedidoDataSource(instantanea)));
+        log.info(String.format("%d informes: %.2f ms de media desde el fichero, %.2f ms desde el registro",
+                REPETICIONES, desdeFichero / (double) REPETICIONES / TimeUnit.MILLISECONDS.toNanos(1),
+                desdeRegistro / (double) REPETICIONES / TimeUnit.MILLISECONDS.toNanos(1)));
+
+        assertTrue(desdeRegistro < desdeFichero,
+                "Desde el registro: " + desdeRegistro + " ns, desde el fichero: " + desdeFichero + " ns");
+    }
+
+    @Test
+    void laPlantillaSePublicaConSuVersion() throws Exception {
+        RegistroPlantillas registro = RegistroPlantillas.getInstancia();
+        RegistroPlantillas.PlantillaCargada cargada = registro.getCargada(ServicioInformes.PLANTILLA);
+        assertSame(cargada.getPlantilla(), registro.get(ServicioInformes.PLANTILLA));
+        assertEquals(cargada.getVersion(), registro.getVersion(ServicioInformes.PLANTILLA));
+        assertEquals(Files.getLastModifiedTime(COMPILADA).toMillis(), cargada.getVersion());
+    }
+
+    private static long medir(Relleno relleno) throws JRException {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            assertFalse(relleno.rellenar().getPages().isEmpty());
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private static InstantaneaPedido instantanea() {
+        List<ItemPedidoResumen> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(new ItemPedidoResumen((long) i, "Producto " + i, 1.5 * i, i % 3 + 1));
+        }
+        return new InstantaneaPedido("PEDIDO_PLANTILLA", 1L, "ana", "ana@example.com", items, Instant.now());
+    }
+
+    /**
+     * Relleno de un informe que se repite en la medición.
+     */
+    @FunctionalInterface
+    private interface Relleno {
+        JasperPrint rellenar() throws JRException;
+    }
+}
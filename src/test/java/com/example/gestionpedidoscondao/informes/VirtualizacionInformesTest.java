@@ -0,0 +1,170 @@
+package com.example.gestionpedidoscondao.informes;
+
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JRVirtualizable;
+import net.sf.jasperreports.engine.JRVirtualizer;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.design.JRDesignBand;
+import net.sf.jasperreports.engine.design.JRDesignExpression;
+import net.sf.jasperreports.engine.design.JRDesignField;
+import net.sf.jasperreports.engine.design.JRDesignSection;
+import net.sf.jasperreports.engine.design.JRDesignTextField;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase VirtualizacionInformesTest.
+ * Rellena informes de cientos y de miles de páginas a partir de orígenes de datos de distinto tamaño con un virtualizador de
+ * {@link VirtualizacionInformes} y comprueba que, sea cual sea el tamaño, nunca hay en memoria más páginas que el máximo
+ * indicado: el resto se vuelca al fichero de intercambio y se recupera al exportar.
+ *
+ * @author José Miguel Ruiz Guevara
+ * @version 1.0
+ * @since 2023-11-21
+ */
+class VirtualizacionInformesTest {
+
+    private static final int FILAS_POR_PAGINA = 9;
+    private static final int PAGINAS_EN_MEMORIA = 5;
+
+    @TempDir
+    Path intercambio;
+
+    @AfterEach
+    void restaurar() {
+        System.clearProperty(VirtualizacionInformes.PROP_DIRECTORIO_INTERCAMBIO);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 30_000})
+    void mantieneEnMemoriaComoMuchoLasPaginasIndicadas(int filas) throws Exception {
+        System.setProperty(VirtualizacionInformes.PROP_DIRECTORIO_INTERCAMBIO, intercambio.toString());
+        JRSwapFileVirtualizer virtualizador = VirtualizacionInformes.crear(PAGINAS_EN_MEMORIA);
+        Set<JRVirtualizable<?>> registrados = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        try {
+            Map<String, Object> parametros = Map.of(JRParameter.REPORT_VIRTUALIZER, observar(virtualizador, registrados));
+            JasperPrint jasperPrint = JasperFillManager.getInstance(VirtualizacionInformes.getContexto())
+                    .fill(plantilla(), parametros, new FilasGeneradas(filas));
+
+            int paginas = jasperPrint.getPages().size();
+            assertEquals((filas + FILAS_POR_PAGINA - 1) / FILAS_POR_PAGINA, paginas);
+
+            long enMemoria;
+            synchronized (registrados) {
+                enMemoria = registrados.stream().filter(pagina -> !pagina.isVirtualized()).count();
+            }
+            assertTrue(registrados.size() >= paginas, "Páginas registradas: " + registrados.size());
+            assertTrue(enMemoria <= PAGINAS_EN_MEMORIA, "Páginas en memoria: " + enMemoria);
+
+            try (Stream<Path> ficheros = Files.list(intercambio)) {
+                assertTrue(ficheros.findAny().isPresent(), "No se ha creado el fichero de intercambio");
+            }
+
+            // Las páginas volcadas se recuperan del fichero de intercambio al exportar
+            virtualizador.setReadOnly(true);
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+            JasperExportManager.exportReportToPdfStream(jasperPrint, pdf);
+            assertTrue(pdf.size() > 0);
+        } finally {
+            virtualizador.cleanup();
+        }
+    }
+
+    /**
+     * Envuelve el virtualizador para anotar las páginas que se le registran, sin cambiar su comportamiento.
+     */
+    private static JRVirtualizer observar(JRVirtualizer virtualizador, Set<JRVirtualizable<?>> registrados) {
+        return (JRVirtualizer) Proxy.newProxyInstance(JRVirtualizer.class.getClassLoader(), new Class<?>[]{JRVirtualizer.class},
+                (proxy, metodo, args) -> {
+                    if ("registerObject".equals(metodo.getName())) {
+                        registrados.add((JRVirtualizable<?>) args[0]);
+                    } else if ("deregisterObject".equals(metodo.getName())) {
+                        registrados.remove((JRVirtualizable<?>) args[0]);
+                    }
+                    try {
+                        return metodo.invoke(virtualizador, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Compila una plantilla con una fila de 20 puntos por registro y páginas de {@value #FILAS_POR_PAGINA} filas.
+     */
+    private static JasperReport plantilla() throws JRException {
+        JasperDesign diseño = new JasperDesign();
+        diseño.setName("PaginasVirtualizadas");
+        diseño.setPageWidth(300);
+        diseño.setPageHeight(200);
+        diseño.setColumnWidth(280);
+        diseño.setLeftMargin(10);
+        diseño.setRightMargin(10);
+        diseño.setTopMargin(10);
+        diseño.setBottomMargin(10);
+
+        JRDesignField campo = new JRDesignField();
+        campo.setName("linea");
+        campo.setValueClass(String.class);
+        diseño.addField(campo);
+
+        JRDesignTextField texto = new JRDesignTextField();
+        texto.setX(0);
+        texto.setY(0);
+        texto.setWidth(280);
+        texto.setHeight(20);
+        texto.setExpression(new JRDesignExpression("$F{linea}"));
+        JRDesignBand detalle = new JRDesignBand();
+        detalle.setHeight(20);
+        detalle.addElement(texto);
+        ((JRDesignSection) diseño.getDetailSection()).addBand(detalle);
+
+        return JasperCompileManager.compileReport(diseño);
+    }
+
+    /**
+     * Origen de datos que genera las filas según se piden, sin tenerlas todas en memoria.
+     */
+    private static class FilasGeneradas implements JRDataSource {
+        private final int total;
+        private int actual;
+
+        private FilasGeneradas(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public boolean next() {
+            return ++actual <= total;
+        }
+
+        @Override
+        public Object getFieldValue(JRField campo) {
+            return "Línea " + actual + " del informe de prueba";
+        }
+    }
+}